@@ -0,0 +1,156 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorsByLine;
+import eu.reuland.sonar.plugin.issue.assignment.scm.ScmAuthorsByLineParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.api.config.Settings;
+import org.sonar.api.user.UserQuery;
+import org.sonar.core.user.UserDao;
+import org.sonar.core.user.UserDto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the resolution of the assignee of each issue: from its line to its SCM author, then to the active
+ * user of the login of this author, with a stub {@link UserDao} holding the users in memory.
+ * <p>
+ * The user cache is either warm (every author has already been resolved in a previous file) or cold, the users being
+ * then loaded one by one or preloaded in bulk.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssigneeResolutionBenchmark {
+
+  private static final int LINES = 2000;
+  private static final int AUTHORS = 30;
+  private static final int ISSUES = 200;
+
+  private final Settings settings = new Settings();
+  private final AuthorDictionary dictionary = new AuthorDictionary();
+  private final InMemoryUserDao userDao = new InMemoryUserDao();
+  private LoginAliasResolver aliasResolver;
+  private AuthorsByLine authorsByLine;
+  private int[] issueLines;
+  private ActiveUserCache warmUserCache;
+
+  @Setup
+  public void generateProject() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_LOGIN_ALIASES, "domain:example.com");
+    aliasResolver = new LoginAliasResolver(settings);
+
+    Random random = new Random(42);
+    StringBuilder data = new StringBuilder();
+    for (int line = 1; line <= LINES; line++) {
+      data.append(line).append("=developer").append(random.nextInt(AUTHORS)).append("@example.com;");
+    }
+    authorsByLine = ScmAuthorsByLineParser.parse(data.toString(), dictionary);
+    issueLines = new int[ISSUES];
+    for (int i = 0; i < ISSUES; i++) {
+      issueLines[i] = 1 + random.nextInt(LINES);
+    }
+    // One author out of ten has no Sonar account
+    for (int i = 0; i < AUTHORS; i++) {
+      if (i % 10 != 0) {
+        userDao.add("developer" + i);
+      }
+    }
+
+    warmUserCache = new ActiveUserCache(userDao, dictionary, aliasResolver, AssignmentMetrics.DISABLED);
+    for (int authorId = 0; authorId < dictionary.size(); authorId++) {
+      warmUserCache.getActiveUser(authorId);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ISSUES)
+  public void resolveWithWarmCache(Blackhole blackhole) {
+    resolve(warmUserCache, blackhole);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ISSUES)
+  public void resolveOneByOne(Blackhole blackhole) {
+    resolve(new ActiveUserCache(userDao, dictionary, aliasResolver, AssignmentMetrics.DISABLED), blackhole);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ISSUES)
+  public void resolveAfterBulkPreload(Blackhole blackhole) {
+    ActiveUserCache userCache = new ActiveUserCache(userDao, dictionary, aliasResolver, AssignmentMetrics.DISABLED);
+    Set<String> logins = new HashSet<String>();
+    for (int line : issueLines) {
+      int authorId = authorsByLine.authorIdAt(line);
+      if (authorId != AuthorDictionary.NO_AUTHOR) {
+        logins.add(userCache.loginOf(authorId));
+      }
+    }
+    userCache.preload(logins);
+    resolve(userCache, blackhole);
+  }
+
+  private void resolve(ActiveUserCache userCache, Blackhole blackhole) {
+    for (int line : issueLines) {
+      int authorId = authorsByLine.authorIdAt(line);
+      if (authorId != AuthorDictionary.NO_AUTHOR) {
+        blackhole.consume(userCache.getActiveUser(authorId));
+      }
+    }
+  }
+
+  private static final class InMemoryUserDao extends UserDao {
+    private final Map<String, UserDto> activeUsersByLogin = new HashMap<String, UserDto>();
+
+    InMemoryUserDao() {
+      super(null);
+    }
+
+    void add(String login) {
+      activeUsersByLogin.put(login, new UserDto().setLogin(login).setName(login.toUpperCase())
+          .setEmail(login + "@example.com").setActive(true));
+    }
+
+    @Override
+    public UserDto selectActiveUserByLogin(String login) {
+      return activeUsersByLogin.get(login);
+    }
+
+    @Override
+    public List<UserDto> selectUsers(UserQuery query) {
+      List<UserDto> users = new ArrayList<UserDto>();
+      for (String login : query.logins()) {
+        UserDto user = activeUsersByLogin.get(login);
+        if (user != null) {
+          users.add(user);
+        }
+      }
+      return users;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.config.EmailSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.notifications.Notification;
+import org.sonar.api.resources.Project;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RuleFinder;
+import org.sonar.core.i18n.RuleI18nManager;
+import org.sonar.plugins.emailnotifications.api.EmailMessage;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Throughput of the creation of the notification of each auto-assigned new issue on the batch side, and of its
+ * formatting into an email on the server side.
+ * <p>
+ * The rule finder and the rule I18n manager are mocks: rule names are cached by the factory, so that they are looked
+ * up during the warmup only.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutoAssignedNewIssueNotificationBenchmark {
+
+  private static final int ISSUES = 1000;
+  private static final int RULES = 50;
+  private static final int COMPONENTS = 200;
+  private static final int ASSIGNEES = 30;
+
+  private final Project project = new Project("org.apache:struts");
+  private final Issue[] issues = new Issue[ISSUES];
+  private final Notification[] notifications = new Notification[ISSUES];
+  private AutoAssignedNewIssueNotificationFactory factory;
+  private AutoAssignedNewIssueNotificationEmailTemplate template;
+  private int next;
+
+  @Setup
+  public void generateIssues() {
+    project.setName("Struts");
+    RuleFinder ruleFinder = mock(RuleFinder.class);
+    RuleI18nManager ruleI18n = mock(RuleI18nManager.class);
+    for (int i = 0; i < RULES; i++) {
+      Rule rule = Rule.create("squid", "Rule" + i, "Rule " + i);
+      when(ruleFinder.findByKey(RuleKey.of("squid", "Rule" + i))).thenReturn(rule);
+      when(ruleI18n.getName(eq(rule), any(Locale.class))).thenReturn("Rule number " + i + " should be respected");
+    }
+    factory = new AutoAssignedNewIssueNotificationFactory(ruleFinder, ruleI18n);
+    template = new AutoAssignedNewIssueNotificationEmailTemplate(new EmailSettings(new Settings()), null, factory);
+
+    for (int i = 0; i < ISSUES; i++) {
+      issues[i] = new DefaultIssue()
+          .setKey("ISSUE-" + i)
+          .setComponentKey("org.apache:struts:org.apache.struts.Action" + (i % COMPONENTS))
+          .setRuleKey(RuleKey.of("squid", "Rule" + (i % RULES)))
+          .setSeverity("MAJOR")
+          .setAssignee("developer" + (i % ASSIGNEES))
+          .setMessage("Has " + i + " cycles");
+      notifications[i] = factory.create(project, issues[i]);
+    }
+  }
+
+  @Benchmark
+  public Notification create() {
+    return factory.create(project, issues[nextIndex()]);
+  }
+
+  @Benchmark
+  public EmailMessage format() {
+    return template.format(notifications[nextIndex()]);
+  }
+
+  private int nextIndex() {
+    int index = next;
+    next = index + 1 == ISSUES ? 0 : index + 1;
+    return index;
+  }
+}
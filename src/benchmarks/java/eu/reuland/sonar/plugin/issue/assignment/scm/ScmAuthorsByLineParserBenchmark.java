@@ -0,0 +1,91 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the parsing of the SCM measures of a file, for realistic file sizes.
+ * <p>
+ * The measures are generated as the SCM activity plugin stores them: blocks of consecutive lines committed by the same
+ * author, among a few dozens of authors.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScmAuthorsByLineParserBenchmark {
+
+  private static final int AUTHORS = 30;
+  private static final int MEAN_BLOCK_LINES = 8;
+  private static final int LOOKED_UP_LINES = 16;
+
+  @Param({"100", "1000", "10000"})
+  private int lines;
+
+  private String authorsData;
+  private String commitTimesData;
+  private int[] issueLines;
+  private AuthorDictionary dictionary;
+
+  @Setup
+  public void generateMeasures() {
+    Random random = new Random(42);
+    StringBuilder authors = new StringBuilder();
+    StringBuilder commitTimes = new StringBuilder();
+    String author = null;
+    String commitTime = null;
+    for (int line = 1; line <= lines; line++) {
+      if (author == null || random.nextInt(MEAN_BLOCK_LINES) == 0) {
+        author = "developer" + random.nextInt(AUTHORS) + "@example.com";
+        commitTime = String.format("20%02d-%02d-%02dT%02d:%02d:00+0100", 10 + random.nextInt(4),
+            1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60));
+      }
+      authors.append(line).append('=').append(author).append(';');
+      commitTimes.append(line).append('=').append(commitTime).append(';');
+    }
+    authorsData = authors.toString();
+    commitTimesData = commitTimes.toString();
+
+    issueLines = new int[LOOKED_UP_LINES];
+    for (int i = 0; i < issueLines.length; i++) {
+      issueLines[i] = 1 + random.nextInt(lines);
+    }
+    Arrays.sort(issueLines);
+    // Shared by all the files of an analysis, so that its authors are already registered
+    dictionary = new AuthorDictionary();
+  }
+
+  @Benchmark
+  public AuthorsByLine parse() {
+    return ScmAuthorsByLineParser.parse(authorsData, dictionary);
+  }
+
+  @Benchmark
+  public AuthorsByLine lookupIssueLines() {
+    return ScmAuthorsByLineParser.lookup(authorsData, issueLines, dictionary);
+  }
+
+  @Benchmark
+  public ScmBlame parseWithCommitTimes() {
+    return ScmBlameParser.parse(authorsData, null, commitTimesData, EnumSet.of(ScmColumn.COMMIT_TIME), dictionary);
+  }
+}
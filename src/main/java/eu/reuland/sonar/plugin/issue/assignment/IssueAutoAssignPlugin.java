@@ -1,11 +1,23 @@
 package eu.reuland.sonar.plugin.issue.assignment;
 
 import com.google.common.collect.ImmutableList;
+import eu.reuland.sonar.plugin.issue.assignment.batch.ActiveUserCache;
+import eu.reuland.sonar.plugin.issue.assignment.batch.AssignmentMetrics;
+import eu.reuland.sonar.plugin.issue.assignment.batch.AutoAssignedIssueRegistry;
+import eu.reuland.sonar.plugin.issue.assignment.batch.BlameStrategy;
+import eu.reuland.sonar.plugin.issue.assignment.batch.ComponentOwnerStrategy;
+import eu.reuland.sonar.plugin.issue.assignment.batch.DefaultAssigneeStrategy;
 import eu.reuland.sonar.plugin.issue.assignment.batch.IssueAutoAssignDecorator;
+import eu.reuland.sonar.plugin.issue.assignment.batch.LoginAliasResolver;
+import eu.reuland.sonar.plugin.issue.assignment.batch.RoutingStrategy;
 import eu.reuland.sonar.plugin.issue.assignment.batch.SendAutoAssignedNewIssueNotificationPostJob;
 import eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationDispatcher;
 import eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationEmailTemplate;
 import eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationFactory;
+import eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssuesDigestEmailTemplate;
+import eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssuesDigestNotificationDispatcher;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import eu.reuland.sonar.plugin.issue.assignment.scm.PersistentBlameCache;
 import org.sonar.api.PropertyType;
 import org.sonar.api.SonarPlugin;
 import org.sonar.api.config.PropertyDefinition;
@@ -34,6 +46,20 @@ public final class IssueAutoAssignPlugin extends SonarPlugin {
   public static final String PROPERTY_PLUGIN_ENABLED = "sonar.autoassign.enabled";
   public static final String PROPERTY_NEW_ISSUES_ONLY = "sonar.autoassign.new_issues_only";
   public static final String PROPERTY_DEFAULT_ASSIGNEE = "sonar.autoassign.default_assignee";
+  public static final String PROPERTY_BULK_USER_LOOKUP = "sonar.autoassign.bulk_user_lookup";
+  public static final String PROPERTY_MODULE_ENGINE = "sonar.autoassign.module_engine";
+  public static final String PROPERTY_PARALLELISM = "sonar.autoassign.parallelism";
+  public static final String PROPERTY_NOTIFICATION_DIGEST = "sonar.autoassign.notification_digest";
+  public static final String PROPERTY_COMPACT_NOTIFICATIONS = "sonar.autoassign.compact_notifications";
+  public static final String PROPERTY_BACKLOG_MAX_ISSUES = "sonar.autoassign.backlog_max_issues";
+  public static final String PROPERTY_BLAME_CACHE_MAX_SIZE = "sonar.autoassign.blame_cache_max_size";
+  public static final String PROPERTY_MAX_LINE_AGE_DAYS = "sonar.autoassign.max_line_age_days";
+  public static final String PROPERTY_OLD_CODE_DEFAULT_ASSIGNEE = "sonar.autoassign.old_code_default_assignee";
+  public static final String PROPERTY_LOGIN_ALIASES = "sonar.autoassign.login_aliases";
+  public static final String PROPERTY_ROUTING_RULES = "sonar.autoassign.routing_rules";
+  public static final String PROPERTY_PERFORMANCE_METRICS = "sonar.autoassign.performance_metrics";
+  public static final String PROPERTY_STRATEGIES = "sonar.autoassign.strategies";
+  public static final String PROPERTY_OWNERS_FILE = "sonar.autoassign.owners_file";
 
   public static List<PropertyDefinition> propertyDefinitions() {
     return Arrays.asList(
@@ -56,6 +82,101 @@ public final class IssueAutoAssignPlugin extends SonarPlugin {
             .onQualifiers(Qualifiers.PROJECT)
             .type(PropertyType.STRING)
             .index(2)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_BULK_USER_LOOKUP)
+            .name("Bulk user lookup")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.BOOLEAN)
+            .defaultValue("false")
+            .index(3)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_MODULE_ENGINE)
+            .name("Module engine")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.BOOLEAN)
+            .defaultValue("false")
+            .index(4)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_PARALLELISM)
+            .name("Parallelism")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.INTEGER)
+            .defaultValue("1")
+            .index(5)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_NOTIFICATION_DIGEST)
+            .name("Notification digest")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.BOOLEAN)
+            .defaultValue("false")
+            .index(6)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_COMPACT_NOTIFICATIONS)
+            .name("Compact notifications")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.BOOLEAN)
+            .defaultValue("false")
+            .index(7)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_BACKLOG_MAX_ISSUES)
+            .name("Backlog limit")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.INTEGER)
+            .defaultValue("0")
+            .index(8)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_BLAME_CACHE_MAX_SIZE)
+            .name("SCM blame cache size")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.INTEGER)
+            .defaultValue("0")
+            .index(9)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_MAX_LINE_AGE_DAYS)
+            .name("Maximum line age")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.INTEGER)
+            .defaultValue("0")
+            .index(10)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_OLD_CODE_DEFAULT_ASSIGNEE)
+            .name("Old code to default assignee")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.BOOLEAN)
+            .defaultValue("false")
+            .index(11)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_LOGIN_ALIASES)
+            .name("Login aliases")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.TEXT)
+            .index(12)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_ROUTING_RULES)
+            .name("Routing rules")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.TEXT)
+            .index(13)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_PERFORMANCE_METRICS)
+            .name("Performance metrics")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.BOOLEAN)
+            .defaultValue("false")
+            .index(14)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_STRATEGIES)
+            .name("Assignment strategies")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.STRING)
+            .defaultValue("routing,blame,owners,default")
+            .index(15)
+            .build(),
+        PropertyDefinition.builder(PROPERTY_OWNERS_FILE)
+            .name("Owners file")
+            .onQualifiers(Qualifiers.PROJECT)
+            .type(PropertyType.STRING)
+            .index(16)
             .build()
     );
   }
@@ -64,11 +185,23 @@ public final class IssueAutoAssignPlugin extends SonarPlugin {
   public List getExtensions() {
     ImmutableList.Builder<Object> extensions = ImmutableList.builder();
 
+    extensions.add(AssignmentMetrics.class);
+    extensions.add(AuthorDictionary.class);
+    extensions.add(PersistentBlameCache.class);
+    extensions.add(LoginAliasResolver.class);
+    extensions.add(ActiveUserCache.class);
+    extensions.add(AutoAssignedIssueRegistry.class);
+    extensions.add(RoutingStrategy.class);
+    extensions.add(BlameStrategy.class);
+    extensions.add(ComponentOwnerStrategy.class);
+    extensions.add(DefaultAssigneeStrategy.class);
     extensions.add(IssueAutoAssignDecorator.class);
     extensions.add(AutoAssignedNewIssueNotificationDispatcher.class);
     extensions.add(AutoAssignedNewIssueNotificationDispatcher.newMetadata());
     extensions.add(AutoAssignedNewIssueNotificationFactory.class);
     extensions.add(AutoAssignedNewIssueNotificationEmailTemplate.class);
+    extensions.add(AutoAssignedNewIssuesDigestNotificationDispatcher.class);
+    extensions.add(AutoAssignedNewIssuesDigestEmailTemplate.class);
     extensions.add(SendAutoAssignedNewIssueNotificationPostJob.class);
     extensions.addAll(propertyDefinitions());
 
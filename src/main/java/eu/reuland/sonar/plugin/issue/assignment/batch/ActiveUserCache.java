@@ -0,0 +1,158 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import com.google.common.collect.Lists;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.user.User;
+import org.sonar.api.user.UserQuery;
+import org.sonar.core.user.UserDao;
+import org.sonar.core.user.UserDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analysis-scoped cache of the active {@link User}s resolved by login name
+ * <p>
+ * Misses are remembered as well as hits: an unknown SCM author or a mistyped default assignee
+ * costs a single {@link UserDao} query for the whole analysis, whatever the number of issues referring to it.
+ * The cache is instantiated once per batch so that it is shared by all the decorated resources (and modules).
+ * </p>
+ * <p>
+ * Logins can also be {@link #preload(java.util.Collection) preloaded} in bulk: they are then resolved with
+ * <code>IN (...)</code> queries of at most {@link #PRELOAD_BATCH_SIZE} logins each.
+ * </p>
+ * <p>
+ * SCM authors registered in the {@link AuthorDictionary} are resolved {@link #getActiveUser(int) by id}:
+ * once an author has been resolved, its user is retrieved with a simple array lookup.
+ * </p>
+ * <p>
+ * The login of a SCM author is given by the {@link LoginAliasResolver}, once per author.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public class ActiveUserCache implements BatchExtension {
+
+  static final int PRELOAD_BATCH_SIZE = 500;
+  private static final int INITIAL_AUTHORS_CAPACITY = 64;
+
+  private static final Logger logger = LoggerFactory.getLogger(ActiveUserCache.class);
+  private final UserDao userDao;
+  private final AuthorDictionary authorDictionary;
+  private final LoginAliasResolver aliasResolver;
+  private final AssignmentMetrics metrics;
+  private final Map<String, User> usersByLogin = new HashMap<String, User>();
+  private String[] loginsByAuthorId = new String[INITIAL_AUTHORS_CAPACITY];
+  private User[] usersByAuthorId = new User[INITIAL_AUTHORS_CAPACITY];
+  private boolean[] resolvedAuthorIds = new boolean[INITIAL_AUTHORS_CAPACITY];
+
+  public ActiveUserCache(UserDao userDao, AuthorDictionary authorDictionary, LoginAliasResolver aliasResolver,
+                         AssignmentMetrics metrics) {
+    this.userDao = userDao;
+    this.authorDictionary = authorDictionary;
+    this.aliasResolver = aliasResolver;
+    this.metrics = metrics;
+  }
+
+  /**
+   * @param authorId the id of a SCM author registered in the {@link AuthorDictionary}
+   * @return the login of the given SCM author
+   */
+  public String loginOf(int authorId) {
+    if (authorId >= loginsByAuthorId.length) {
+      loginsByAuthorId = Arrays.copyOf(loginsByAuthorId, Math.max(authorId + 1, loginsByAuthorId.length * 2));
+    }
+    String login = loginsByAuthorId[authorId];
+    if (login == null) {
+      String author = authorDictionary.author(authorId);
+      login = aliasResolver.loginOf(author);
+      if (!login.equals(author)) {
+        logger.debug("SCM author [{}] is an alias of login [{}]", author, login);
+      }
+      loginsByAuthorId[authorId] = login;
+    }
+    return login;
+  }
+
+  /**
+   * @param authorId the id of a SCM author registered in the {@link AuthorDictionary}
+   * @return the active user whose login is the one of the given SCM author, or <code>null</code> if there is no such
+   * user
+   */
+  public User getActiveUser(int authorId) {
+    if (authorId < resolvedAuthorIds.length && resolvedAuthorIds[authorId]) {
+      metrics.increment(AssignmentMetrics.Counter.USER_CACHE_HIT);
+      return usersByAuthorId[authorId];
+    }
+    User user = getActiveUser(loginOf(authorId));
+    if (authorId >= resolvedAuthorIds.length) {
+      int capacity = Math.max(authorId + 1, resolvedAuthorIds.length * 2);
+      usersByAuthorId = Arrays.copyOf(usersByAuthorId, capacity);
+      resolvedAuthorIds = Arrays.copyOf(resolvedAuthorIds, capacity);
+    }
+    usersByAuthorId[authorId] = user;
+    resolvedAuthorIds[authorId] = true;
+    return user;
+  }
+
+  /**
+   * @return the active user having the given login, or <code>null</code> if there is no such user
+   */
+  public User getActiveUser(String login) {
+    if (usersByLogin.containsKey(login)) {
+      metrics.increment(AssignmentMetrics.Counter.USER_CACHE_HIT);
+      return usersByLogin.get(login);
+    }
+    metrics.increment(AssignmentMetrics.Counter.USER_CACHE_MISS);
+    User user = loadActiveUser(login);
+    usersByLogin.put(login, user);
+    return user;
+  }
+
+  /**
+   * Resolves, in bulk, all the given logins that are not cached yet
+   */
+  public void preload(Collection<String> logins) {
+    List<String> unknownLogins = new ArrayList<String>();
+    for (String login : logins) {
+      if (!usersByLogin.containsKey(login)) {
+        unknownLogins.add(login);
+      }
+    }
+
+    for (List<String> partition : Lists.partition(unknownLogins, PRELOAD_BATCH_SIZE)) {
+      long startTime = metrics.start();
+      List<UserDto> users = userDao.selectUsers(UserQuery.builder().logins(partition).build());
+      metrics.record(AssignmentMetrics.Timer.USER_DB_CALL, startTime);
+      for (UserDto user : users) {
+        usersByLogin.put(user.getLogin(), user.toUser());
+      }
+      for (String login : partition) {
+        if (!usersByLogin.containsKey(login)) {
+          logger.warn("Cannot find an active user with login name [{}]", login);
+          usersByLogin.put(login, null);
+        }
+      }
+    }
+  }
+
+  private User loadActiveUser(String login) {
+    long startTime = metrics.start();
+    UserDto user = userDao.selectActiveUserByLogin(login);
+    metrics.record(AssignmentMetrics.Timer.USER_DB_CALL, startTime);
+    if (user == null) {
+      logger.warn("Cannot find an active user with login name [{}]", login);
+      return null;
+    }
+    return user.toUser();
+  }
+}
@@ -0,0 +1,65 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+
+/**
+ * The assignee decided by an {@link AssignmentStrategy}: either a login or a SCM author, whose login is given by the
+ * login aliases, or nobody
+ * <p>
+ * The assignees are resolved to active users once the decisions are taken, in bulk when enabled.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public final class Assignee {
+
+  /**
+   * Leaves the issue unassigned
+   */
+  public static final Assignee NOBODY = new Assignee(null, AuthorDictionary.NO_AUTHOR);
+
+  private final String login;
+  private final int scmAuthorId;
+
+  private Assignee(String login, int scmAuthorId) {
+    this.login = login;
+    this.scmAuthorId = scmAuthorId;
+  }
+
+  public static Assignee login(String login) {
+    return new Assignee(login, AuthorDictionary.NO_AUTHOR);
+  }
+
+  /**
+   * @param scmAuthorId the id of a SCM author registered in the {@link AuthorDictionary}
+   */
+  public static Assignee scmAuthor(int scmAuthorId) {
+    if (scmAuthorId < 0) {
+      throw new IllegalArgumentException("Unknown SCM author id: " + scmAuthorId);
+    }
+    return new Assignee(null, scmAuthorId);
+  }
+
+  /**
+   * @return the login of the assignee, or <code>null</code> if it is a SCM author or nobody
+   */
+  public String login() {
+    return login;
+  }
+
+  /**
+   * @return the id of the SCM author, or {@link AuthorDictionary#NO_AUTHOR} if the assignee is a login or nobody
+   */
+  public int scmAuthorId() {
+    return scmAuthorId;
+  }
+
+  public boolean isNobody() {
+    return this == NOBODY;
+  }
+
+  @Override
+  public String toString() {
+    return isNobody() ? "nobody" : (login != null ? login : ("SCM author #" + scmAuthorId));
+  }
+}
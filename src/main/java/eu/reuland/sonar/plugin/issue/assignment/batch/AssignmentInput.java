@@ -0,0 +1,30 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import org.sonar.api.measures.CoreMetrics;
+
+/**
+ * Per line SCM information that an {@link AssignmentStrategy} may need to decide the assignee of an issue
+ * <p>
+ * Only the inputs declared by the strategies of the chain are fetched and parsed. The lines are read from the
+ * {@link CoreMetrics#SCM_AUTHORS_BY_LINE} measure, so that the commit times and the revisions imply the authors.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public enum AssignmentInput {
+
+  /**
+   * From the {@link CoreMetrics#SCM_AUTHORS_BY_LINE} measure
+   */
+  AUTHORS,
+
+  /**
+   * From the {@link CoreMetrics#SCM_LAST_COMMIT_DATETIMES_BY_LINE} measure
+   */
+  COMMIT_TIMES,
+
+  /**
+   * From the {@link CoreMetrics#SCM_REVISIONS_BY_LINE} measure
+   */
+  REVISIONS
+}
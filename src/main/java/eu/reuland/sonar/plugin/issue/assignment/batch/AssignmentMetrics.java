@@ -0,0 +1,236 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.batch.bootstrap.ProjectReactor;
+import org.sonar.api.config.Settings;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and timers of the hot paths of the auto assignment, enabled by the
+ * {@link IssueAutoAssignPlugin#PROPERTY_PERFORMANCE_METRICS} property
+ * <p>
+ * Once the analysis is over, they are logged as a single summary line and written as JSON to
+ * {@value #FILE_NAME} in the working directory.
+ * </p>
+ * <p>
+ * Each {@link AssignmentStrategy} of the chain has its own timer, counting how many issues it has evaluated and how
+ * many it has decided.
+ * </p>
+ * <p>
+ * When disabled, measuring only costs a test of a final field: no clock is read and nothing is written. When enabled,
+ * the values are updated atomically, so that they can be shared by the workers of the module engine.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public class AssignmentMetrics implements BatchExtension {
+
+  static final String FILE_NAME = "autoassign-metrics.json";
+  static final AssignmentMetrics DISABLED = new AssignmentMetrics(null, false);
+
+  private static final Logger logger = LoggerFactory.getLogger(AssignmentMetrics.class);
+  private static final double NANOS_PER_MILLI = 1000000.0;
+
+  /**
+   * Timed operations: each timer counts its operations and sums their durations
+   */
+  public enum Timer {
+    BLAME_FETCH("blame_fetch"),
+    BLAME_PARSE("blame_parse"),
+    USER_DB_CALL("user_db_call"),
+    ISSUE_ASSIGN("issue_assign"),
+    ISSUE_CACHE_WRITE("issue_cache_write"),
+    NOTIFICATION_SCHEDULING("notification_scheduling");
+
+    private final String key;
+
+    Timer(String key) {
+      this.key = key;
+    }
+  }
+
+  public enum Counter {
+    USER_CACHE_HIT("user_cache_hits"),
+    USER_CACHE_MISS("user_cache_misses");
+
+    private final String key;
+
+    Counter(String key) {
+      this.key = key;
+    }
+  }
+
+  private final File file;
+  private final boolean enabled;
+  private final AtomicLongArray timerCounts = new AtomicLongArray(Timer.values().length);
+  private final AtomicLongArray timerNanos = new AtomicLongArray(Timer.values().length);
+  private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+  private final Map<String, StrategyTimer> strategyTimers = new LinkedHashMap<String, StrategyTimer>();
+
+  public AssignmentMetrics(Settings settings, ProjectReactor reactor) {
+    this(new File(reactor.getRoot().getWorkDir(), FILE_NAME),
+        settings.getBoolean(IssueAutoAssignPlugin.PROPERTY_PERFORMANCE_METRICS));
+  }
+
+  AssignmentMetrics(File file, boolean enabled) {
+    this.file = file;
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the start time of an operation, to be given to {@link #record(Timer, long)} once it is over
+   */
+  public long start() {
+    return enabled ? System.nanoTime() : 0L;
+  }
+
+  public void record(Timer timer, long startTime) {
+    if (enabled) {
+      timerNanos.addAndGet(timer.ordinal(), System.nanoTime() - startTime);
+      timerCounts.incrementAndGet(timer.ordinal());
+    }
+  }
+
+  public void increment(Counter counter) {
+    if (enabled) {
+      counters.incrementAndGet(counter.ordinal());
+    }
+  }
+
+  /**
+   * @return the timer of the given assignment strategy, shared by all the chains using this strategy
+   */
+  synchronized StrategyTimer strategyTimer(String strategyKey) {
+    StrategyTimer timer = strategyTimers.get(strategyKey);
+    if (timer == null) {
+      timer = new StrategyTimer(strategyKey);
+      strategyTimers.put(strategyKey, timer);
+    }
+    return timer;
+  }
+
+  void record(StrategyTimer timer, long startTime, boolean decided) {
+    if (enabled) {
+      timer.nanos.addAndGet(System.nanoTime() - startTime);
+      timer.evaluations.incrementAndGet();
+      if (decided) {
+        timer.decisions.incrementAndGet();
+      }
+    }
+  }
+
+  long count(Timer timer) {
+    return timerCounts.get(timer.ordinal());
+  }
+
+  long nanos(Timer timer) {
+    return timerNanos.get(timer.ordinal());
+  }
+
+  long count(Counter counter) {
+    return counters.get(counter.ordinal());
+  }
+
+  /**
+   * Logs the summary line and writes the JSON file, once the analysis is over
+   */
+  public void stop() {
+    if (!enabled) {
+      return;
+    }
+    logger.info(summary());
+    try {
+      Files.write(toJson(), file, Charsets.UTF_8);
+    } catch (IOException e) {
+      logger.warn("Unable to write the auto assignment metrics [" + file + "]", e);
+    }
+  }
+
+  String summary() {
+    StringBuilder summary = new StringBuilder("Auto assignment metrics:");
+    for (Timer timer : Timer.values()) {
+      summary.append(' ').append(timer.key).append('=').append(count(timer))
+          .append('/').append(String.format(Locale.ENGLISH, "%.1f", nanos(timer) / NANOS_PER_MILLI)).append("ms");
+    }
+    for (Counter counter : Counter.values()) {
+      summary.append(' ').append(counter.key).append('=').append(count(counter));
+    }
+    for (StrategyTimer timer : strategyTimers()) {
+      summary.append(" strategy.").append(timer.key).append('=').append(timer.decisions()).append('/')
+          .append(timer.evaluations()).append('/')
+          .append(String.format(Locale.ENGLISH, "%.1f", timer.nanos() / NANOS_PER_MILLI)).append("ms");
+    }
+    return summary.toString();
+  }
+
+  String toJson() {
+    StringBuilder json = new StringBuilder("{\n  \"timers\": {");
+    for (Timer timer : Timer.values()) {
+      json.append(timer.ordinal() == 0 ? "\n" : ",\n")
+          .append("    \"").append(timer.key).append("\": {\"count\": ").append(count(timer))
+          .append(", \"nanos\": ").append(nanos(timer)).append('}');
+    }
+    json.append("\n  },\n  \"counters\": {");
+    for (Counter counter : Counter.values()) {
+      json.append(counter.ordinal() == 0 ? "\n" : ",\n")
+          .append("    \"").append(counter.key).append("\": ").append(count(counter));
+    }
+    json.append("\n  },\n  \"strategies\": {");
+    List<StrategyTimer> timers = strategyTimers();
+    for (int i = 0; i < timers.size(); i++) {
+      StrategyTimer timer = timers.get(i);
+      json.append(i == 0 ? "\n" : ",\n")
+          .append("    \"").append(timer.key).append("\": {\"evaluations\": ").append(timer.evaluations())
+          .append(", \"decisions\": ").append(timer.decisions()).append(", \"nanos\": ").append(timer.nanos())
+          .append('}');
+    }
+    return json.append(timers.isEmpty() ? "}\n}\n" : "\n  }\n}\n").toString();
+  }
+
+  private synchronized List<StrategyTimer> strategyTimers() {
+    return new ArrayList<StrategyTimer>(strategyTimers.values());
+  }
+
+  static final class StrategyTimer {
+    private final String key;
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong decisions = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+
+    private StrategyTimer(String key) {
+      this.key = key;
+    }
+
+    long evaluations() {
+      return evaluations.get();
+    }
+
+    long decisions() {
+      return decisions.get();
+    }
+
+    long nanos() {
+      return nanos.get();
+    }
+  }
+}
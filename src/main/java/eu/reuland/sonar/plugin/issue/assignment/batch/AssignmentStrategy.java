@@ -0,0 +1,45 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import org.sonar.api.BatchExtension;
+import org.sonar.api.issue.Issue;
+
+import java.util.Set;
+
+/**
+ * A link of the chain deciding the assignee of the candidate issues
+ * <p>
+ * The strategies of the chain are the extensions whose {@link #key()} is listed in the
+ * {@link IssueAutoAssignPlugin#PROPERTY_STRATEGIES} property, in the order of this property. They are evaluated in
+ * turn until one of them decides: the next ones are not evaluated.
+ * </p>
+ * <p>
+ * Each strategy declares the {@link #inputs() inputs} it needs: the SCM blame measures are only fetched and parsed
+ * when a strategy of the chain needs them, and the strategies without inputs that come before the first one with
+ * inputs are evaluated before any SCM blame measure is fetched.
+ * </p>
+ * <p>
+ * Strategies are only called from the thread of the analysis.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public interface AssignmentStrategy extends BatchExtension {
+
+  /**
+   * @return the key of the strategy in the {@link IssueAutoAssignPlugin#PROPERTY_STRATEGIES} property
+   */
+  String key();
+
+  /**
+   * @return the SCM information needed by {@link #decide(Issue, IssueBlame)}, empty if none
+   */
+  Set<AssignmentInput> inputs();
+
+  /**
+   * @param blame the SCM blame of the line of the issue, restricted to the inputs declared by the chain
+   * @return the assignee of the issue, {@link Assignee#NOBODY} to leave it unassigned, or <code>null</code> to let
+   * the next strategies decide
+   */
+  Assignee decide(Issue issue, IssueBlame blame);
+}
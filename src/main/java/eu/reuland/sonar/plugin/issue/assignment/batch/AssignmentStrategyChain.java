@@ -0,0 +1,116 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.issue.Issue;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@link AssignmentStrategy strategies} listed in the {@link IssueAutoAssignPlugin#PROPERTY_STRATEGIES} property,
+ * in order
+ * <p>
+ * The chain is split in two: the strategies without inputs that come before the first strategy with inputs are
+ * evaluated {@link #decideWithoutBlame(Issue) before} the SCM blame of the issue is loaded, the other ones
+ * {@link #decideWithBlame(Issue, IssueBlame) after}. The inputs of the chain are the union of the inputs of its
+ * strategies.
+ * </p>
+ * <p>
+ * The evaluations, decisions and time spent of each strategy are measured by the {@link AssignmentMetrics}.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+class AssignmentStrategyChain {
+
+  private static final Logger logger = LoggerFactory.getLogger(AssignmentStrategyChain.class);
+  private final AssignmentStrategy[] strategies;
+  private final AssignmentMetrics.StrategyTimer[] timers;
+  private final AssignmentMetrics metrics;
+  // Index of the first strategy with inputs, the length of the chain if none
+  private final int firstBlameStrategy;
+  private final Set<AssignmentInput> inputs = EnumSet.noneOf(AssignmentInput.class);
+
+  AssignmentStrategyChain(String[] keys, AssignmentStrategy[] availableStrategies, AssignmentMetrics metrics) {
+    List<AssignmentStrategy> chain = new ArrayList<AssignmentStrategy>();
+    List<String> chainKeys = new ArrayList<String>();
+    for (String key : keys) {
+      AssignmentStrategy strategy = find(key.trim(), availableStrategies);
+      if (strategy == null) {
+        logger.error("The assignment strategy [{}] is unknown, it is ignored. Please correct the configuration", key);
+      } else if (!chain.contains(strategy)) {
+        chain.add(strategy);
+        chainKeys.add(strategy.key());
+      }
+    }
+    this.strategies = chain.toArray(new AssignmentStrategy[chain.size()]);
+    this.timers = new AssignmentMetrics.StrategyTimer[strategies.length];
+    this.metrics = metrics;
+    int firstWithInputs = strategies.length;
+    for (int i = 0; i < strategies.length; i++) {
+      timers[i] = metrics.strategyTimer(strategies[i].key());
+      Set<AssignmentInput> strategyInputs = strategies[i].inputs();
+      if (!strategyInputs.isEmpty() && firstWithInputs == strategies.length) {
+        firstWithInputs = i;
+      }
+      inputs.addAll(strategyInputs);
+    }
+    this.firstBlameStrategy = firstWithInputs;
+    logger.debug("Assignment strategies: [{}], inputs: [{}]", chainKeys, inputs);
+  }
+
+  private static AssignmentStrategy find(String key, AssignmentStrategy[] availableStrategies) {
+    for (AssignmentStrategy strategy : availableStrategies) {
+      if (strategy.key().equals(key)) {
+        return strategy;
+      }
+    }
+    return null;
+  }
+
+  boolean needs(AssignmentInput input) {
+    return inputs.contains(input);
+  }
+
+  /**
+   * Evaluates the strategies that come before the first strategy with inputs
+   *
+   * @return the assignee of the issue, {@link Assignee#NOBODY} if no strategy of the chain decides, or
+   * <code>null</code> if the SCM blame of the issue is needed
+   */
+  Assignee decideWithoutBlame(Issue issue) {
+    Assignee assignee = decide(issue, null, 0, firstBlameStrategy);
+    if (assignee == null && firstBlameStrategy == strategies.length) {
+      return Assignee.NOBODY;
+    }
+    return assignee;
+  }
+
+  /**
+   * Evaluates the strategies from the first strategy with inputs
+   *
+   * @return the assignee of the issue, {@link Assignee#NOBODY} if no strategy of the chain decides
+   */
+  Assignee decideWithBlame(Issue issue, IssueBlame blame) {
+    Assignee assignee = decide(issue, blame, firstBlameStrategy, strategies.length);
+    return assignee == null ? Assignee.NOBODY : assignee;
+  }
+
+  private Assignee decide(Issue issue, IssueBlame blame, int from, int to) {
+    for (int i = from; i < to; i++) {
+      long startTime = metrics.start();
+      Assignee assignee = strategies[i].decide(issue, blame);
+      metrics.record(timers[i], startTime, assignee != null);
+      if (assignee != null) {
+        logger.debug("Assignee of issue [{}] decided by strategy [{}]: [{}]",
+            issue.key(), strategies[i].key(), assignee);
+        return assignee;
+      }
+    }
+    return null;
+  }
+}
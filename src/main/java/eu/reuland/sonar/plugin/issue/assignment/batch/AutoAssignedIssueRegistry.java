@@ -0,0 +1,55 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import org.sonar.api.BatchExtension;
+import org.sonar.api.issue.Issue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registry of the keys of the new issues auto-assigned during the analysis, grouped by component
+ * <p>
+ * Filled by {@link IssueAutoAssignDecorator} so that {@link SendAutoAssignedNewIssueNotificationPostJob}
+ * only has to read the issues of the components having auto-assigned issues, instead of the whole issue cache.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public class AutoAssignedIssueRegistry implements BatchExtension {
+
+  private final Map<String, Set<String>> issueKeysByComponent = new LinkedHashMap<String, Set<String>>();
+  private int size;
+
+  public void register(Issue issue) {
+    Set<String> issueKeys = issueKeysByComponent.get(issue.componentKey());
+    if (issueKeys == null) {
+      issueKeys = new HashSet<String>();
+      issueKeysByComponent.put(issue.componentKey(), issueKeys);
+    }
+    if (issueKeys.add(issue.key())) {
+      size++;
+    }
+  }
+
+  /**
+   * @return the keys of the components having auto-assigned issues, in registration order
+   */
+  public Set<String> componentKeys() {
+    return Collections.unmodifiableSet(issueKeysByComponent.keySet());
+  }
+
+  /**
+   * @return the keys of the issues of the given component that have been auto-assigned
+   */
+  public Set<String> issueKeys(String componentKey) {
+    Set<String> issueKeys = issueKeysByComponent.get(componentKey);
+    return issueKeys == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(issueKeys);
+  }
+
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,101 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.Severity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects the old issues (the backlog) to auto assign during an analysis, up to a maximum number of issues
+ * <p>
+ * The most severe issues are selected first, then the oldest ones. Only the selected issues are kept, in a bounded
+ * heap whose head is the issue to give up first, so that the backlog is worked through in steady chunks over the
+ * next analyses. The other issues are deferred.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+class BacklogSelector {
+
+  private static final Logger logger = LoggerFactory.getLogger(BacklogSelector.class);
+  private static final int INITIAL_CAPACITY = 64;
+
+  // Highest priority first
+  static final Comparator<IssueAssigner.PendingAssignment> PRIORITY = new Comparator<IssueAssigner.PendingAssignment>() {
+    @Override
+    public int compare(IssueAssigner.PendingAssignment a, IssueAssigner.PendingAssignment b) {
+      Issue issueA = a.issue();
+      Issue issueB = b.issue();
+      int result = severityRank(issueB) - severityRank(issueA);
+      if (result == 0) {
+        result = compareCreationDates(issueA.creationDate(), issueB.creationDate());
+      }
+      if (result == 0) {
+        result = issueA.key().compareTo(issueB.key());
+      }
+      return result;
+    }
+  };
+
+  private final int maxIssues;
+  // Lowest priority first
+  private final PriorityQueue<IssueAssigner.PendingAssignment> selected;
+  private int deferredCount;
+
+  BacklogSelector(int maxIssues) {
+    this.maxIssues = maxIssues;
+    // The limit may be much larger than the number of old issues: the queue grows as they are offered
+    this.selected = new PriorityQueue<IssueAssigner.PendingAssignment>(Math.min(maxIssues, INITIAL_CAPACITY),
+        Collections.reverseOrder(PRIORITY));
+  }
+
+  void offer(IssueAssigner.PendingAssignment pendingAssignment) {
+    if (selected.size() < maxIssues) {
+      selected.add(pendingAssignment);
+    } else if (PRIORITY.compare(pendingAssignment, selected.peek()) < 0) {
+      defer(selected.poll());
+      selected.add(pendingAssignment);
+    } else {
+      defer(pendingAssignment);
+    }
+  }
+
+  /**
+   * @return the selected issues, highest priority first. The selector is then reset.
+   */
+  List<IssueAssigner.PendingAssignment> select() {
+    if (deferredCount > 0) {
+      logger.info("Auto assigning [{}] issues of the backlog, [{}] issues are deferred to the next analyses",
+          selected.size(), deferredCount);
+    }
+    List<IssueAssigner.PendingAssignment> result = new ArrayList<IssueAssigner.PendingAssignment>(selected);
+    Collections.sort(result, PRIORITY);
+    selected.clear();
+    deferredCount = 0;
+    return result;
+  }
+
+  private void defer(IssueAssigner.PendingAssignment pendingAssignment) {
+    logger.debug("Deferring the auto assignment of backlog issue [{}]", pendingAssignment.issue().key());
+    deferredCount++;
+  }
+
+  private static int severityRank(Issue issue) {
+    return Severity.ALL.indexOf(issue.severity());
+  }
+
+  // Oldest first, issues without creation date last
+  private static int compareCreationDates(Date a, Date b) {
+    if (a == null || b == null) {
+      return a == null ? (b == null ? 0 : 1) : -1;
+    }
+    return a.compareTo(b);
+  }
+}
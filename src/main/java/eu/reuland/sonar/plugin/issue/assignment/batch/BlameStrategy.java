@@ -0,0 +1,83 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import eu.reuland.sonar.plugin.issue.assignment.scm.ScmBlame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.config.Settings;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.resources.Project;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Assigns the issues to the SCM author of their line
+ * <p>
+ * SCM authors without an active Sonar user are left to the next strategies of the chain, e.g. to the owners of the
+ * component or to the default assignee.
+ * </p>
+ * <p>
+ * When a maximum line age is set, the commit times of the lines are needed as well: issues on older lines are either
+ * left unassigned or, when {@link IssueAutoAssignPlugin#PROPERTY_OLD_CODE_DEFAULT_ASSIGNEE} is set, left to the next
+ * strategies of the chain.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public class BlameStrategy implements AssignmentStrategy {
+
+  static final String KEY = "blame";
+
+  private static final Logger logger = LoggerFactory.getLogger(BlameStrategy.class);
+  private static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
+  // Lines last committed before this time are old code, no limit if NO_COMMIT_TIME
+  private final long minCommitTime;
+  private final boolean oldCodeToNextStrategies;
+  private final Set<AssignmentInput> inputs;
+  private final ActiveUserCache userCache;
+
+  public BlameStrategy(Settings settings, Project project, ActiveUserCache userCache) {
+    int maxLineAgeDays = settings.getInt(IssueAutoAssignPlugin.PROPERTY_MAX_LINE_AGE_DAYS);
+    this.minCommitTime = maxLineAgeDays > 0 ?
+        project.getAnalysisDate().getTime() - maxLineAgeDays * MILLIS_PER_DAY : ScmBlame.NO_COMMIT_TIME;
+    this.oldCodeToNextStrategies = settings.getBoolean(IssueAutoAssignPlugin.PROPERTY_OLD_CODE_DEFAULT_ASSIGNEE);
+    this.inputs = Collections.unmodifiableSet(minCommitTime != ScmBlame.NO_COMMIT_TIME ?
+        EnumSet.of(AssignmentInput.AUTHORS, AssignmentInput.COMMIT_TIMES) : EnumSet.of(AssignmentInput.AUTHORS));
+    this.userCache = userCache;
+  }
+
+  @Override
+  public String key() {
+    return KEY;
+  }
+
+  @Override
+  public Set<AssignmentInput> inputs() {
+    return inputs;
+  }
+
+  @Override
+  public Assignee decide(Issue issue, IssueBlame blame) {
+    if (isOldCode(blame.commitTime())) {
+      logger.debug("Line of issue [{}] is older than the maximum line age", issue.key());
+      return oldCodeToNextStrategies ? null : Assignee.NOBODY;
+    }
+    if (blame.scmAuthorId() == AuthorDictionary.NO_AUTHOR) {
+      logger.debug("Cannot detect automatically the login of the assignee from SCM blame for issue [{}]", issue.key());
+      return null;
+    }
+    if (userCache.getActiveUser(blame.scmAuthorId()) == null) {
+      logger.debug("SCM author [{}] of the line of issue [{}] is not an active user", blame.scmAuthor(), issue.key());
+      return null;
+    }
+    return Assignee.scmAuthor(blame.scmAuthorId());
+  }
+
+  private boolean isOldCode(long commitTime) {
+    return minCommitTime != ScmBlame.NO_COMMIT_TIME && commitTime != ScmBlame.NO_COMMIT_TIME &&
+        commitTime < minCommitTime;
+  }
+}
@@ -0,0 +1,135 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.batch.bootstrap.ProjectReactor;
+import org.sonar.api.config.Settings;
+import org.sonar.api.issue.Issue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assigns the issues to the owner of their component, from the owners file of the
+ * {@link IssueAutoAssignPlugin#PROPERTY_OWNERS_FILE} property
+ * <p>
+ * The owners file has one rule per line: a glob matched against the component key without the module key (as for the
+ * routing rules, see {@link RoutingPolicy}: the qualified class name for Java files) followed by the login of its
+ * owner, <code>-</code> leaving the issues unassigned.
+ * Lines starting with <code>#</code> are comments. When several globs match a component, the first declared one wins.
+ * </p>
+ * <p>
+ * The file is read when the first issue is evaluated, so that it is not read when the strategy is not in the chain.
+ * The owner of the components is remembered.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public class ComponentOwnerStrategy implements AssignmentStrategy {
+
+  static final String KEY = "owners";
+
+  private static final Logger logger = LoggerFactory.getLogger(ComponentOwnerStrategy.class);
+  private final File ownersFile;
+  // Owner login of each rule, null for nobody
+  private List<String> owners;
+  private final PathGlobTrie paths = new PathGlobTrie();
+  private final Map<String, Integer> rulesByComponent = new HashMap<String, Integer>();
+
+  public ComponentOwnerStrategy(Settings settings, ProjectReactor reactor) {
+    this(ownersFile(settings.getString(IssueAutoAssignPlugin.PROPERTY_OWNERS_FILE), reactor));
+  }
+
+  ComponentOwnerStrategy(File ownersFile) {
+    this.ownersFile = ownersFile;
+  }
+
+  private static File ownersFile(String path, ProjectReactor reactor) {
+    if (path == null || path.trim().length() == 0) {
+      return null;
+    }
+    File file = new File(path.trim());
+    return file.isAbsolute() ? file : new File(reactor.getRoot().getBaseDir(), path.trim());
+  }
+
+  @Override
+  public String key() {
+    return KEY;
+  }
+
+  @Override
+  public Set<AssignmentInput> inputs() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public Assignee decide(Issue issue, IssueBlame blame) {
+    if (owners == null) {
+      owners = load();
+    }
+    if (owners.isEmpty() || issue.componentKey() == null) {
+      return null;
+    }
+    int rule = componentRule(issue.componentKey());
+    if (rule == PathGlobTrie.NO_MATCH) {
+      return null;
+    }
+    String login = owners.get(rule);
+    return login == null ? Assignee.NOBODY : Assignee.login(login);
+  }
+
+  private int componentRule(String componentKey) {
+    Integer rule = rulesByComponent.get(componentKey);
+    if (rule == null) {
+      rule = paths.match(componentKey.substring(componentKey.lastIndexOf(':') + 1));
+      rulesByComponent.put(componentKey, rule);
+    }
+    return rule;
+  }
+
+  private List<String> load() {
+    List<String> loaded = new ArrayList<String>();
+    if (ownersFile == null) {
+      return loaded;
+    }
+    if (!ownersFile.isFile()) {
+      logger.warn("The owners file [{}] does not exist, no issue is assigned to the owner of its component",
+          ownersFile);
+      return loaded;
+    }
+    try {
+      for (String line : Files.readLines(ownersFile, Charsets.UTF_8)) {
+        compile(line.trim(), loaded);
+      }
+    } catch (IOException e) {
+      logger.warn("Unable to read the owners file [" + ownersFile + "], it is ignored", e);
+      return new ArrayList<String>();
+    }
+    logger.debug("Compiled [{}] component owner rules", loaded.size());
+    return loaded;
+  }
+
+  private void compile(String line, List<String> loaded) {
+    if (line.length() == 0 || line.startsWith("#")) {
+      return;
+    }
+    String[] tokens = line.split("\\s+");
+    if (tokens.length != 2) {
+      logger.error("The owner rule [{}] is malformed, it is ignored. Please correct the owners file", line);
+      return;
+    }
+    paths.add(tokens[0], loaded.size());
+    loaded.add(RoutingPolicy.NOBODY.equals(tokens[1]) ? null : tokens[1]);
+  }
+}
@@ -0,0 +1,46 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.config.Settings;
+import org.sonar.api.issue.Issue;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Assigns the issues to the {@link IssueAutoAssignPlugin#PROPERTY_DEFAULT_ASSIGNEE default assignee}, if any
+ *
+ * @author Vincent Reuland
+ */
+public class DefaultAssigneeStrategy implements AssignmentStrategy {
+
+  static final String KEY = "default";
+
+  private static final Logger logger = LoggerFactory.getLogger(DefaultAssigneeStrategy.class);
+  private final Assignee defaultAssignee;
+
+  public DefaultAssigneeStrategy(Settings settings) {
+    String login = settings.getString(IssueAutoAssignPlugin.PROPERTY_DEFAULT_ASSIGNEE);
+    this.defaultAssignee = login != null && login.trim().length() > 0 ? Assignee.login(login) : null;
+  }
+
+  @Override
+  public String key() {
+    return KEY;
+  }
+
+  @Override
+  public Set<AssignmentInput> inputs() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public Assignee decide(Issue issue, IssueBlame blame) {
+    if (defaultAssignee != null) {
+      logger.debug("Using default assignee [{}] for issue [{}]", defaultAssignee.login(), issue.key());
+    }
+    return defaultAssignee;
+  }
+}
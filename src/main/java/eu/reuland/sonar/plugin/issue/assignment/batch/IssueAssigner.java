@@ -0,0 +1,373 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorsByLine;
+import eu.reuland.sonar.plugin.issue.assignment.scm.PersistentBlameCache;
+import eu.reuland.sonar.plugin.issue.assignment.scm.ScmAuthorsByLineParser;
+import eu.reuland.sonar.plugin.issue.assignment.scm.ScmBlame;
+import eu.reuland.sonar.plugin.issue.assignment.scm.ScmBlameParser;
+import eu.reuland.sonar.plugin.issue.assignment.scm.ScmColumn;
+import org.picocontainer.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.config.Settings;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.issue.internal.IssueChangeContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.Project;
+import org.sonar.api.user.User;
+import org.sonar.batch.issue.IssueCache;
+import org.sonar.core.issue.IssueUpdater;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Assigns the candidate issues of a module to the assignee decided by the {@link AssignmentStrategyChain}
+ * <p>
+ * Shared by the different assignment modes of {@link IssueAutoAssignDecorator}: per resource, with bulk user lookup
+ * or once per module.
+ * </p>
+ * <p>
+ * Only the SCM blame information needed by the strategies of the chain is parsed: the authors of the lines and, when
+ * needed, their commit times and revisions. Issues decided by the strategies that come before the first one needing
+ * SCM blame information are assigned right away. All the settings are read once, when the assigner is created.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+class IssueAssigner {
+
+  private static final Logger logger = LoggerFactory.getLogger(IssueAssigner.class);
+  // Above this number of candidate lines in a resource, its whole SCM blame measure is parsed
+  private static final int LAZY_LOOKUP_MAX_LINES = 16;
+  private final boolean newIssuesOnly;
+  private final AssignmentStrategyChain strategyChain;
+  private final IssueBlame issueBlame;
+  private final IssueCache issueCache;
+  private final IssueUpdater issueUpdater;
+  private final IssueChangeContext changeContext;
+  private final ActiveUserCache userCache;
+  private final AuthorDictionary authorDictionary;
+  private final AutoAssignedIssueRegistry autoAssignedIssueRegistry;
+  private final PersistentBlameCache blameCache;
+  private final AssignmentMetrics metrics;
+  private final Set<ScmColumn> scmColumns;
+
+  IssueAssigner(Settings settings, Project project, IssueCache issueCache, IssueUpdater issueUpdater,
+                ActiveUserCache userCache, AuthorDictionary authorDictionary, AutoAssignedIssueRegistry autoAssignedIssueRegistry,
+                PersistentBlameCache blameCache, AssignmentStrategy[] strategies, AssignmentMetrics metrics) {
+    this.newIssuesOnly = settings.getBoolean(IssueAutoAssignPlugin.PROPERTY_NEW_ISSUES_ONLY);
+    this.strategyChain = new AssignmentStrategyChain(settings.getStringArray(IssueAutoAssignPlugin.PROPERTY_STRATEGIES),
+        strategies, metrics);
+    this.issueBlame = new IssueBlame(authorDictionary);
+    this.issueCache = issueCache;
+    this.issueUpdater = issueUpdater;
+    this.changeContext = IssueChangeContext.createScan(project.getAnalysisDate());
+    this.userCache = userCache;
+    this.authorDictionary = authorDictionary;
+    this.autoAssignedIssueRegistry = autoAssignedIssueRegistry;
+    this.blameCache = blameCache;
+    this.metrics = metrics;
+    // Only the columns needed by the strategies are loaded
+    this.scmColumns = EnumSet.noneOf(ScmColumn.class);
+    if (strategyChain.needs(AssignmentInput.COMMIT_TIMES)) {
+      scmColumns.add(ScmColumn.COMMIT_TIME);
+    }
+    if (strategyChain.needs(AssignmentInput.REVISIONS)) {
+      scmColumns.add(ScmColumn.REVISION);
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the {@link CoreMetrics#SCM_LAST_COMMIT_DATETIMES_BY_LINE} measures are needed
+   */
+  boolean needsCommitTimes() {
+    return scmColumns.contains(ScmColumn.COMMIT_TIME);
+  }
+
+  /**
+   * @return <code>true</code> if the {@link CoreMetrics#SCM_REVISIONS_BY_LINE} measures are needed
+   */
+  boolean needsRevisions() {
+    return scmColumns.contains(ScmColumn.REVISION);
+  }
+
+  boolean isCandidateIssue(Issue issue) {
+    return issue.assignee() == null && (issue.isNew() || !newIssuesOnly);
+  }
+
+  /**
+   * Assigns the given candidate issue if it is decided by the strategies that come before the first one needing
+   * SCM blame information
+   *
+   * @return <code>true</code> if the issue is decided: its SCM blame is not needed
+   */
+  boolean assignWithoutBlame(Issue issue) {
+    Assignee assignee = strategyChain.decideWithoutBlame(issue);
+    if (assignee == null) {
+      return false;
+    }
+    assignIssueIfPossible(issue, assignee);
+    return true;
+  }
+
+  /**
+   * @return the sorted and distinct lines of the given issues
+   */
+  static int[] candidateLines(List<Issue> candidateIssues) {
+    int[] lines = new int[candidateIssues.size()];
+    int count = 0;
+    for (Issue issue : candidateIssues) {
+      if (issue.line() != null) {
+        lines[count++] = issue.line();
+      }
+    }
+    Arrays.sort(lines, 0, count);
+
+    int distinctCount = 0;
+    for (int i = 0; i < count; i++) {
+      if (distinctCount == 0 || lines[distinctCount - 1] != lines[i]) {
+        lines[distinctCount++] = lines[i];
+      }
+    }
+    return Arrays.copyOf(lines, distinctCount);
+  }
+
+  /**
+   * @param measure            the {@link CoreMetrics#SCM_AUTHORS_BY_LINE} measure of a resource, if any
+   * @param revisionsMeasure   the {@link CoreMetrics#SCM_REVISIONS_BY_LINE} measure of the resource,
+   *                           if any and {@link #needsRevisions() needed}
+   * @param commitTimesMeasure the {@link CoreMetrics#SCM_LAST_COMMIT_DATETIMES_BY_LINE} measure of the resource,
+   *                           if any and {@link #needsCommitTimes() needed}
+   * @param lines              the sorted and distinct lines for which authors are needed
+   */
+  AuthorsByLine getAuthorsByLine(String componentKey, Measure measure, @Nullable Measure revisionsMeasure,
+                                 @Nullable Measure commitTimesMeasure, int[] lines) {
+    String measureData = getMeasureData(measure);
+    return measureData == null ? AuthorsByLine.EMPTY : parseAuthorsByLine(componentKey, measureData,
+        revisionsMeasure == null ? null : revisionsMeasure.getData(),
+        commitTimesMeasure == null ? null : commitTimesMeasure.getData(), lines, authorDictionary);
+  }
+
+  /**
+   * @return the data of the given {@link CoreMetrics#SCM_AUTHORS_BY_LINE} measure, or <code>null</code> if there is none
+   */
+  static String getMeasureData(Measure measure) {
+    if (measure != null && measure.getData() != null && measure.getData().length() > 0) {
+      logger.debug("Measure for metric [{}] data: [{}]", measure.getMetricKey(), measure.getData());
+      return measure.getData();
+    }
+    logger.debug("Cannot find measure for metric [{}]", CoreMetrics.SCM_AUTHORS_BY_LINE.getKey());
+    return null;
+  }
+
+  /**
+   * Thread-safe as long as the given dictionary is not shared
+   *
+   * @param revisionsData   the data of the {@link CoreMetrics#SCM_REVISIONS_BY_LINE} measure, if needed
+   * @param commitTimesData the data of the {@link CoreMetrics#SCM_LAST_COMMIT_DATETIMES_BY_LINE} measure, if needed
+   * @param lines           the sorted and distinct lines for which authors are needed
+   */
+  AuthorsByLine parseAuthorsByLine(String componentKey, String measureData, @Nullable String revisionsData,
+                                   @Nullable String commitTimesData, int[] lines, AuthorDictionary dictionary) {
+    long startTime = metrics.start();
+    AuthorsByLine authorsByLine = doParseAuthorsByLine(componentKey, measureData, revisionsData, commitTimesData, lines,
+        dictionary);
+    metrics.record(AssignmentMetrics.Timer.BLAME_PARSE, startTime);
+    return authorsByLine;
+  }
+
+  private AuthorsByLine doParseAuthorsByLine(String componentKey, String measureData, @Nullable String revisionsData,
+                                             @Nullable String commitTimesData, int[] lines,
+                                             AuthorDictionary dictionary) {
+    if (!scmColumns.isEmpty() && (revisionsData != null || commitTimesData != null)) {
+      // Other columns are needed: they are parsed together with the authors
+      ScmBlame blame = ScmBlameParser.parse(measureData, revisionsData, commitTimesData, scmColumns, dictionary);
+      if (blame != null) {
+        return blame;
+      }
+    }
+    if (lines.length <= LAZY_LOOKUP_MAX_LINES && !blameCache.isEnabled()) {
+      // Only a few lines are needed: stop scanning the measure data as soon as they are all found
+      return ScmAuthorsByLineParser.lookup(measureData, lines, dictionary);
+    }
+    // Restored if parsed by a previous analysis, parsed as a whole and cached for the next one otherwise
+    return blameCache.parse(componentKey, measureData, dictionary);
+  }
+
+  /**
+   * Evaluates the strategies of the chain that need SCM blame information
+   *
+   * @param authorsByLine the SCM blame of the component of the issue, parsed with the shared dictionary
+   * @return the assignee of the issue, {@link Assignee#NOBODY} if no strategy decides
+   */
+  Assignee decide(Issue issue, AuthorsByLine authorsByLine) {
+    return decide(blame(issue, authorsByLine));
+  }
+
+  /**
+   * Evaluates the strategies of the chain that need SCM blame information
+   *
+   * @return the assignee of the issue, {@link Assignee#NOBODY} if no strategy decides
+   */
+  Assignee decide(BlamedIssue blamedIssue) {
+    return decide(blamedIssue.issue, blamedIssue.scmAuthorId, blamedIssue.commitTime, blamedIssue.revision);
+  }
+
+  /**
+   * @param authorsByLine the SCM blame of the component of the issue, parsed with the shared dictionary
+   * @return the SCM blame of the line of the given issue, so that the issue can be decided later on
+   */
+  static BlamedIssue blame(Issue issue, AuthorsByLine authorsByLine) {
+    Integer line = issue.line();
+    if (line == null) {
+      return new BlamedIssue(issue, AuthorDictionary.NO_AUTHOR, ScmBlame.NO_COMMIT_TIME, null);
+    }
+    if (authorsByLine instanceof ScmBlame) {
+      ScmBlame blame = (ScmBlame) authorsByLine;
+      return new BlamedIssue(issue, blame.authorIdAt(line), blame.commitTimeAt(line), blame.revisionAt(line));
+    }
+    return new BlamedIssue(issue, authorsByLine.authorIdAt(line), ScmBlame.NO_COMMIT_TIME, null);
+  }
+
+  /**
+   * Evaluates the strategies of the chain that need SCM blame information
+   *
+   * @param scmAuthorId the id of the SCM author of the line of the issue in the shared dictionary
+   * @return the assignee of the issue, {@link Assignee#NOBODY} if no strategy decides
+   */
+  Assignee decide(Issue issue, int scmAuthorId, long commitTime, @Nullable String revision) {
+    issueBlame.set(scmAuthorId, commitTime, revision);
+    return strategyChain.decideWithBlame(issue, issueBlame);
+  }
+
+  /**
+   * Resolves in bulk the users of the given SCM authors, before the strategies deciding from the SCM blame check them
+   *
+   * @param scmAuthorIds ids of SCM authors in the shared dictionary, possibly {@link AuthorDictionary#NO_AUTHOR}
+   */
+  void preloadScmAuthors(Collection<Integer> scmAuthorIds) {
+    if (!strategyChain.needs(AssignmentInput.AUTHORS)) {
+      return;
+    }
+    Set<String> logins = new HashSet<String>();
+    for (int scmAuthorId : scmAuthorIds) {
+      if (scmAuthorId != AuthorDictionary.NO_AUTHOR) {
+        logins.add(userCache.loginOf(scmAuthorId));
+      }
+    }
+    userCache.preload(logins);
+  }
+
+  /**
+   * Resolves all the users in bulk, then assigns the pending issues
+   */
+  void assignInBulk(List<PendingAssignment> pendingAssignments) {
+    Set<String> logins = new HashSet<String>();
+    for (PendingAssignment pendingAssignment : pendingAssignments) {
+      Assignee assignee = pendingAssignment.assignee;
+      if (assignee.login() != null) {
+        logins.add(assignee.login());
+      } else if (!assignee.isNobody()) {
+        logins.add(userCache.loginOf(assignee.scmAuthorId()));
+      }
+    }
+
+    logger.debug("Resolving [{}] distinct logins for [{}] pending issues", logins.size(), pendingAssignments.size());
+    userCache.preload(logins);
+
+    for (PendingAssignment pendingAssignment : pendingAssignments) {
+      assignIssueIfPossible(pendingAssignment.issue, pendingAssignment.assignee);
+    }
+  }
+
+  void assignIssueIfPossible(Issue issue, Assignee assignee) {
+    User autoAssignee = getActiveUser(assignee);
+    if (autoAssignee != null) {
+      logger.debug("Assigning issue [{}] to user [{}]", issue.key(), autoAssignee.login());
+      assignIssue(issue, autoAssignee);
+    } else {
+      logger.debug("Leaving the issue [{}] unassigned", issue.key());
+    }
+  }
+
+  private User getActiveUser(Assignee assignee) {
+    if (assignee.isNobody()) {
+      return null;
+    }
+    if (assignee.login() == null) {
+      return userCache.getActiveUser(assignee.scmAuthorId());
+    }
+    User user = userCache.getActiveUser(assignee.login());
+    if (user == null) {
+      logger.error("The specified login [{}] doesn't correspond to an active user. Please correct the configuration",
+          assignee.login());
+    }
+    return user;
+  }
+
+  private void assignIssue(Issue issue, User user) {
+    long startTime = metrics.start();
+    issueUpdater.assign((DefaultIssue) issue, user, changeContext);
+    metrics.record(AssignmentMetrics.Timer.ISSUE_ASSIGN, startTime);
+    // To be taken into account by the IssuePersister launched at the end of the scan,
+    // we have to put back then updated issue in the cache
+    startTime = metrics.start();
+    issueCache.put((DefaultIssue) issue);
+    metrics.record(AssignmentMetrics.Timer.ISSUE_CACHE_WRITE, startTime);
+    if (issue.isNew()) {
+      // Notifications for new issues are sent by the SendAutoAssignedNewIssueNotificationPostJob
+      autoAssignedIssueRegistry.register(issue);
+    }
+  }
+
+  /**
+   * A candidate issue with the SCM blame of its line: author, commit time and revision, waiting to be decided
+   */
+  static final class BlamedIssue {
+    private final Issue issue;
+    private final int scmAuthorId;
+    private final long commitTime;
+    private final String revision;
+
+    BlamedIssue(Issue issue, int scmAuthorId, long commitTime, @Nullable String revision) {
+      this.issue = issue;
+      this.scmAuthorId = scmAuthorId;
+      this.commitTime = commitTime;
+      this.revision = revision;
+    }
+
+    Issue issue() {
+      return issue;
+    }
+
+    int scmAuthorId() {
+      return scmAuthorId;
+    }
+  }
+
+  /**
+   * A candidate issue with its decided assignee, waiting for the assignee to be resolved
+   */
+  static final class PendingAssignment {
+    private final Issue issue;
+    private final Assignee assignee;
+
+    PendingAssignment(Issue issue, Assignee assignee) {
+      this.issue = issue;
+      this.assignee = assignee;
+    }
+
+    Issue issue() {
+      return issue;
+    }
+  }
+}
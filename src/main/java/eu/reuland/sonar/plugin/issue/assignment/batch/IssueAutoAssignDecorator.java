@@ -1,36 +1,58 @@
 package eu.reuland.sonar.plugin.issue.assignment.batch;
 
 import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorsByLine;
+import eu.reuland.sonar.plugin.issue.assignment.scm.PersistentBlameCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorBarriers;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.DependsUpon;
+import org.sonar.api.batch.SonarIndex;
 import org.sonar.api.component.ResourcePerspectives;
 import org.sonar.api.config.Settings;
 import org.sonar.api.issue.Issuable;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.issue.internal.DefaultIssue;
-import org.sonar.api.issue.internal.IssueChangeContext;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
-import org.sonar.api.user.User;
 import org.sonar.batch.issue.IssueCache;
 import org.sonar.core.issue.IssueUpdater;
-import org.sonar.core.user.UserDao;
-import org.sonar.core.user.UserDto;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 
 /**
- * A {@link Decorator} that assign issues (related to decorated resource) based on the SCM blame information
+ * A {@link Decorator} that assign issues (related to decorated resource) to the assignee decided by the chain of
+ * {@link AssignmentStrategy assignment strategies}, based on the SCM blame information
+ * <p>
+ * The SCM blame measures of a resource are only fetched when a strategy of the chain needs them.
+ * </p>
+ * <p>
+ * When the module engine is enabled, decorated resources are only registered and all the issues of the module are
+ * assigned in a single pass by a {@link ModuleAssignmentEngine} once the module itself is decorated.
+ * </p>
+ * <p>
+ * When a backlog limit is set, old issues are not assigned right away: the ones selected by a {@link BacklogSelector}
+ * are assigned once the module is decorated.
+ * </p>
+ * <p>
+ * When users are looked up in bulk, the issues needing the SCM blame are only decided once the module is decorated,
+ * as the strategies check that the SCM authors are active users: the users of all the SCM authors of the module are
+ * then resolved at once.
+ * </p>
+ * <p>
+ * Otherwise, the issues of each resource are looked up in the {@link IssueCache}, so that the resources without
+ * candidate issues are skipped without creating their {@link Issuable}. The issues of a resource are only complete
+ * once it has been tracked, right before it is decorated: the lookup cannot be done ahead for the whole module.
+ * </p>
  *
  * @author Vincent Reuland
  */
@@ -38,29 +60,50 @@ import java.util.Map;
 public class IssueAutoAssignDecorator implements Decorator {
 
   private static final Logger logger = LoggerFactory.getLogger(IssueAutoAssignDecorator.class);
-  private static final Map<Integer, String> EMPTY_MAP = Collections.unmodifiableMap(new HashMap<Integer, String>());
-  private final Settings settings;
-  private final IssueCache issueCache;
-  private final IssueUpdater issueUpdater;
-  private final IssueChangeContext changeContext;
   private final ResourcePerspectives perspectives;
-  private final UserDao userDao;
+  private final AssignmentMetrics metrics;
+  private final IssueAssigner assigner;
+  private final ModuleAssignmentEngine moduleEngine;
+  private final IssueCache issueCache;
   private final boolean enabled;
+  private final boolean bulkUserLookup;
+  private final BacklogSelector backlogSelector;
+  private final List<IssueAssigner.PendingAssignment> pendingAssignments = new ArrayList<IssueAssigner.PendingAssignment>();
+  private final List<IssueAssigner.BlamedIssue> blamedIssues = new ArrayList<IssueAssigner.BlamedIssue>();
 
   public IssueAutoAssignDecorator(Settings settings, Project project, IssueCache issueCache, IssueUpdater issueUpdater,
-                                  ResourcePerspectives perspectives, UserDao userDao) {
-    this.settings = settings;
-    this.issueCache = issueCache;
-    this.issueUpdater = issueUpdater;
-    this.changeContext = IssueChangeContext.createScan(project.getAnalysisDate());
+                                  ResourcePerspectives perspectives, SonarIndex index, ActiveUserCache userCache,
+                                  AuthorDictionary authorDictionary, AutoAssignedIssueRegistry autoAssignedIssueRegistry,
+                                  PersistentBlameCache blameCache, AssignmentStrategy[] strategies,
+                                  AssignmentMetrics metrics) {
+    this(settings, project, issueCache, issueUpdater, perspectives, index, userCache, authorDictionary,
+        autoAssignedIssueRegistry, blameCache, strategies, metrics, Runtime.getRuntime().availableProcessors());
+  }
+
+  IssueAutoAssignDecorator(Settings settings, Project project, IssueCache issueCache, IssueUpdater issueUpdater,
+                           ResourcePerspectives perspectives, SonarIndex index, ActiveUserCache userCache,
+                           AuthorDictionary authorDictionary, AutoAssignedIssueRegistry autoAssignedIssueRegistry,
+                           PersistentBlameCache blameCache, AssignmentStrategy[] strategies, AssignmentMetrics metrics,
+                           int availableProcessors) {
     this.perspectives = perspectives;
-    this.userDao = userDao;
+    this.metrics = metrics;
+    this.assigner = new IssueAssigner(settings, project, issueCache, issueUpdater, userCache, authorDictionary,
+        autoAssignedIssueRegistry, blameCache, strategies, metrics);
+    int backlogMaxIssues = settings.getInt(IssueAutoAssignPlugin.PROPERTY_BACKLOG_MAX_ISSUES);
+    this.backlogSelector = backlogMaxIssues > 0 && !settings.getBoolean(IssueAutoAssignPlugin.PROPERTY_NEW_ISSUES_ONLY) ?
+        new BacklogSelector(backlogMaxIssues) : null;
+    this.moduleEngine = settings.getBoolean(IssueAutoAssignPlugin.PROPERTY_MODULE_ENGINE) ?
+        new ModuleAssignmentEngine(issueCache, index, assigner, authorDictionary,
+            settings.getInt(IssueAutoAssignPlugin.PROPERTY_PARALLELISM), backlogSelector, metrics,
+            availableProcessors) : null;
+    this.issueCache = issueCache;
     this.enabled = settings.getBoolean(IssueAutoAssignPlugin.PROPERTY_PLUGIN_ENABLED);
+    this.bulkUserLookup = settings.getBoolean(IssueAutoAssignPlugin.PROPERTY_BULK_USER_LOOKUP);
   }
 
   @Override
   public boolean shouldExecuteOnProject(Project project) {
-    return true;
+    return enabled;
   }
 
   @Override
@@ -70,7 +113,46 @@ public class IssueAutoAssignDecorator implements Decorator {
     }
 
     logger.trace("Decorating resource [{}]", resource.getKey());
+    if (moduleEngine != null) {
+      moduleEngine.register(resource);
+      if (resource instanceof Project) {
+        // The module is the last decorated resource: all its resources are registered
+        moduleEngine.execute();
+      }
+      return;
+    }
+
+    if (hasCandidateIssues(resource.getEffectiveKey())) {
+      treatIssuable(resource, context);
+    } else {
+      logger.trace("No candidate issue for resource [{}]", resource.getKey());
+    }
 
+    if ((bulkUserLookup || backlogSelector != null) && resource instanceof Project) {
+      // The module is the last decorated resource: all its candidate issues are known
+      decideBlamedIssues();
+      if (backlogSelector != null) {
+        pendingAssignments.addAll(backlogSelector.select());
+      }
+      assigner.assignInBulk(pendingAssignments);
+      pendingAssignments.clear();
+    }
+  }
+
+  private boolean hasCandidateIssues(String componentKey) {
+    if (componentKey == null) {
+      // Not a component indexed by the issue cache (e.g. a class or a method)
+      return false;
+    }
+    for (DefaultIssue issue : issueCache.byComponent(componentKey)) {
+      if (issue.resolution() == null && assigner.isCandidateIssue(issue)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void treatIssuable(Resource resource, DecoratorContext context) {
     Issuable issuable = perspectives.as(Issuable.class, resource);
     if (issuable == null) {
       logger.trace("Resource [{}] is not issuable", resource.getKey());
@@ -83,113 +165,77 @@ public class IssueAutoAssignDecorator implements Decorator {
       return;
     }
 
-    treatUnresolvedIssues(context, unresolvedIssues);
+    treatUnresolvedIssues(resource, context, unresolvedIssues);
   }
 
-  private void treatUnresolvedIssues(DecoratorContext context, List<Issue> unresolvedIssues) {
-    Map<Integer, String> authorsByLine = null;
+  private void treatUnresolvedIssues(Resource resource, DecoratorContext context, List<Issue> unresolvedIssues) {
+    List<Issue> candidateIssues = new ArrayList<Issue>();
     for (Issue issue : unresolvedIssues) {
       logger.debug("Treating unresolved issue [{}]: isNew = [{}], line = [{}], assignee = [{}]",
           issue.key(), issue.isNew(), issue.line(), issue.assignee());
 
-      if (!isCandidateIssue(issue)) {
+      if (!assigner.isCandidateIssue(issue)) {
         logger.debug("Issue [{}] is not a candidate for auto assignment", issue.key());
-        continue;
-      }
-
-      if (authorsByLine == null) {
-        // Load authors by line for the current resource. Should be done only once per resource
-        authorsByLine = getAuthorsByLineFromScm(context);
-      }
-
-      User autoAssignee = getAutoAssignee(issue, authorsByLine);
-      if (autoAssignee != null) {
-        logger.debug("Assigning issue [{}] to user [{}]", issue.key(), autoAssignee.login());
-        assignIssue(issue, autoAssignee);
-      } else {
-        logger.debug("Leaving the issue [{}] unassigned", issue.key());
+      } else if (!assigner.assignWithoutBlame(issue)) {
+        candidateIssues.add(issue);
       }
     }
-  }
-
-
-  private boolean isCandidateIssue(Issue issue) {
-    return issue.assignee() == null &&
-        (issue.isNew() || !settings.getBoolean(IssueAutoAssignPlugin.PROPERTY_NEW_ISSUES_ONLY));
-  }
 
-  private User getAutoAssignee(Issue issue, Map<Integer, String> authorsByLine) {
-    String scmLoginName = null;
-    if (issue.line() != null || authorsByLine.get(issue.line()) != null) {
-      scmLoginName = authorsByLine.get(issue.line());
+    if (candidateIssues.isEmpty()) {
+      return;
     }
 
-    User autoAssignee = null;
-    if (scmLoginName == null) {
-      logger.debug("Cannot detect automatically the login of the assignee from SCM blame for issue [{}]", issue.key());
-      autoAssignee = getDefaultAssigneeIfAny();
-      if (autoAssignee != null) {
-        logger.debug("Using default assignee [{}] for issue [{}]", autoAssignee.login(), issue.key());
-      }
-    } else {
-      autoAssignee = getUserFromLoginName(scmLoginName);
-    }
-    return autoAssignee;
-  }
+    // Load authors of the candidate lines for the current resource. Should be done only once per resource
+    AuthorsByLine authorsByLine = getAuthorsByLineFromScm(resource, context,
+        IssueAssigner.candidateLines(candidateIssues));
 
-  private User getDefaultAssigneeIfAny() {
-    User defaultAssignee = null;
-    String defaultAssigneeLogin = settings.getString(IssueAutoAssignPlugin.PROPERTY_DEFAULT_ASSIGNEE);
-    if (defaultAssigneeLogin != null && defaultAssigneeLogin.trim().length() > 0) {
-      defaultAssignee = getUserFromLoginName(defaultAssigneeLogin);
-      if (defaultAssignee == null) {
-        logger.error("The specified login [{}] (for default assignation) doesn't correspond to an active user." +
-            " Please correct the configuration", defaultAssigneeLogin);
+    for (Issue issue : candidateIssues) {
+      if (bulkUserLookup) {
+        // Decided once the whole module has been decorated, the users of the SCM authors being resolved in bulk
+        blamedIssues.add(IssueAssigner.blame(issue, authorsByLine));
+      } else {
+        treatDecision(issue, assigner.decide(issue, authorsByLine));
       }
     }
-    return defaultAssignee;
   }
 
-  private User getUserFromLoginName(String login) {
-    UserDto user = userDao.selectActiveUserByLogin(login);
-    if (user == null) {
-      logger.warn("Cannot find an active user with login name [{}]", login);
-      return null;
+  private void treatDecision(Issue issue, Assignee assignee) {
+    if (assignee.isNobody()) {
+      logger.debug("Leaving the issue [{}] unassigned", issue.key());
+    } else if (backlogSelector != null && !issue.isNew()) {
+      // Old issues are selected across the whole module, up to the backlog limit
+      backlogSelector.offer(new IssueAssigner.PendingAssignment(issue, assignee));
+    } else if (bulkUserLookup) {
+      // Users are resolved in bulk once the whole module has been decorated
+      pendingAssignments.add(new IssueAssigner.PendingAssignment(issue, assignee));
+    } else {
+      assigner.assignIssueIfPossible(issue, assignee);
     }
-    return user.toUser();
-  }
-
-  private void assignIssue(Issue issue, User user) {
-    issueUpdater.assign((DefaultIssue) issue, user, changeContext);
-    // To be taken into account by the IssuePersister launched at the end of the scan,
-    // we have to put back then updated issue in the cache
-    issueCache.put((DefaultIssue) issue);
   }
 
-  private Map<Integer, String> getAuthorsByLineFromScm(DecoratorContext context) {
-    Measure measure = context.getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE);
-
-    if (measure != null && measure.getData() != null && measure.getData().length() > 0) {
-      logger.debug("Measure for metric [{}] data: [{}]", measure.getMetricKey(), measure.getData());
-      return parseAuthorsByLineMeasure(measure.getData());
-    } else {
-      logger.debug("Cannot find measure for metric [{}]", CoreMetrics.SCM_AUTHORS_BY_LINE.getKey());
-      return EMPTY_MAP;
+  private void decideBlamedIssues() {
+    Set<Integer> scmAuthorIds = new HashSet<Integer>();
+    for (IssueAssigner.BlamedIssue blamedIssue : blamedIssues) {
+      scmAuthorIds.add(blamedIssue.scmAuthorId());
+    }
+    assigner.preloadScmAuthors(scmAuthorIds);
+    for (IssueAssigner.BlamedIssue blamedIssue : blamedIssues) {
+      treatDecision(blamedIssue.issue(), assigner.decide(blamedIssue));
     }
+    blamedIssues.clear();
   }
 
-  private Map<Integer, String> parseAuthorsByLineMeasure(String measureEntry) {
-    Map<Integer, String> authorsByLine = new HashMap<Integer, String>();
-
-    String[] lineNumberWithAuthorTable = measureEntry.split(";");
-    for (String lineNumberWithAuthor : lineNumberWithAuthorTable) {
-      int separatorIndex = lineNumberWithAuthor.indexOf('=');
-      String lineNumber = lineNumberWithAuthor.substring(0, separatorIndex);
-      String author = lineNumberWithAuthor.substring(separatorIndex + 1);
-      authorsByLine.put(Integer.valueOf(lineNumber), author);
+  private AuthorsByLine getAuthorsByLineFromScm(Resource resource, DecoratorContext context, int[] lines) {
+    if (lines.length == 0) {
+      return AuthorsByLine.EMPTY;
     }
-
-    return authorsByLine;
+    long startTime = metrics.start();
+    Measure measure = context.getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE);
+    Measure revisionsMeasure = assigner.needsRevisions() ? context.getMeasure(CoreMetrics.SCM_REVISIONS_BY_LINE) : null;
+    Measure commitTimesMeasure = assigner.needsCommitTimes() ?
+        context.getMeasure(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE) : null;
+    metrics.record(AssignmentMetrics.Timer.BLAME_FETCH, startTime);
+    return assigner.getAuthorsByLine(resource.getEffectiveKey(), measure, revisionsMeasure, commitTimesMeasure, lines);
   }
 
 
@@ -0,0 +1,59 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import eu.reuland.sonar.plugin.issue.assignment.scm.ScmBlame;
+
+/**
+ * The SCM blame of the line of the issue given to an {@link AssignmentStrategy}
+ * <p>
+ * Only the {@link AssignmentInput inputs} declared by the strategies of the chain are loaded, the other ones are
+ * unknown. The same instance is reused for all the issues: strategies must not keep it.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public final class IssueBlame {
+
+  private final AuthorDictionary authorDictionary;
+  private int scmAuthorId = AuthorDictionary.NO_AUTHOR;
+  private long commitTime = ScmBlame.NO_COMMIT_TIME;
+  private String revision;
+
+  IssueBlame(AuthorDictionary authorDictionary) {
+    this.authorDictionary = authorDictionary;
+  }
+
+  void set(int scmAuthorId, long commitTime, String revision) {
+    this.scmAuthorId = scmAuthorId;
+    this.commitTime = commitTime;
+    this.revision = revision;
+  }
+
+  /**
+   * @return the id of the SCM author of the line, or {@link AuthorDictionary#NO_AUTHOR} if unknown
+   */
+  public int scmAuthorId() {
+    return scmAuthorId;
+  }
+
+  /**
+   * @return the SCM author of the line, or <code>null</code> if unknown
+   */
+  public String scmAuthor() {
+    return scmAuthorId == AuthorDictionary.NO_AUTHOR ? null : authorDictionary.author(scmAuthorId);
+  }
+
+  /**
+   * @return the time (in milliseconds) of the last commit of the line, or {@link ScmBlame#NO_COMMIT_TIME} if unknown
+   */
+  public long commitTime() {
+    return commitTime;
+  }
+
+  /**
+   * @return the revision of the last commit of the line, or <code>null</code> if unknown
+   */
+  public String revision() {
+    return revision;
+  }
+}
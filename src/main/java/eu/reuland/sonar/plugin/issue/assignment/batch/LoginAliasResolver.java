@@ -0,0 +1,193 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.config.Settings;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Resolves the Sonar login of a SCM author (email, legacy user name, <code>Name &lt;email&gt;</code>...) from the
+ * alias rules of the {@link IssueAutoAssignPlugin#PROPERTY_LOGIN_ALIASES} property, one rule per line:
+ * <ul>
+ * <li><code>scm author=login</code>: exact mapping,</li>
+ * <li><code>regex:pattern=replacement</code>: the whole SCM author matches the pattern, the login is the replacement
+ * (which may refer to the groups of the pattern, e.g. <code>$1</code>),</li>
+ * <li><code>domain:example.com</code>: the login is the local part of an email of the domain, possibly between
+ * angle brackets.</li>
+ * </ul>
+ * <p>
+ * The rules are compiled once: exact mappings into a hash index, then the other rules into a list of matchers tried in
+ * declaration order. SCM authors matching no rule are used as logins.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public class LoginAliasResolver implements BatchExtension {
+
+  private static final Logger logger = LoggerFactory.getLogger(LoginAliasResolver.class);
+  private static final String REGEX_PREFIX = "regex:";
+  private static final String DOMAIN_PREFIX = "domain:";
+  private static final char MAPPING_SEPARATOR = '=';
+
+  private final Map<String, String> exactAliases = new HashMap<String, String>();
+  private final List<AliasMatcher> matchers = new ArrayList<AliasMatcher>();
+
+  public LoginAliasResolver(Settings settings) {
+    String rules = settings.getString(IssueAutoAssignPlugin.PROPERTY_LOGIN_ALIASES);
+    if (rules != null) {
+      for (String rule : rules.split("\r?\n")) {
+        compile(rule.trim());
+      }
+    }
+    logger.debug("Compiled [{}] exact login aliases and [{}] login alias rules", exactAliases.size(), matchers.size());
+  }
+
+  public boolean isEmpty() {
+    return exactAliases.isEmpty() && matchers.isEmpty();
+  }
+
+  /**
+   * @return the login of the given SCM author
+   */
+  public String loginOf(String scmAuthor) {
+    String login = exactAliases.get(scmAuthor);
+    if (login != null) {
+      return login;
+    }
+    for (AliasMatcher matcher : matchers) {
+      login = matcher.loginOf(scmAuthor);
+      if (login != null) {
+        return login;
+      }
+    }
+    return scmAuthor;
+  }
+
+  private void compile(String rule) {
+    if (rule.length() == 0 || rule.startsWith("#")) {
+      return;
+    }
+    if (rule.startsWith(DOMAIN_PREFIX)) {
+      String domain = rule.substring(DOMAIN_PREFIX.length()).trim();
+      if (domain.length() > 0) {
+        matchers.add(new DomainMatcher(domain));
+        return;
+      }
+    } else {
+      int separatorIndex = rule.lastIndexOf(MAPPING_SEPARATOR);
+      if (separatorIndex > 0 && separatorIndex < rule.length() - 1) {
+        String login = rule.substring(separatorIndex + 1).trim();
+        if (rule.startsWith(REGEX_PREFIX)) {
+          compileRegex(rule, rule.substring(REGEX_PREFIX.length(), separatorIndex).trim(), login);
+        } else {
+          exactAliases.put(rule.substring(0, separatorIndex).trim(), login);
+        }
+        return;
+      }
+    }
+    logger.error("The login alias rule [{}] is malformed, it is ignored. Please correct the configuration", rule);
+  }
+
+  private void compileRegex(String rule, String regex, String replacement) {
+    Pattern pattern;
+    try {
+      pattern = Pattern.compile(regex);
+    } catch (PatternSyntaxException e) {
+      logger.error("The login alias rule [{}] is not a valid regular expression, it is ignored." +
+          " Please correct the configuration", rule);
+      return;
+    }
+    try {
+      checkReplacement(replacement, pattern.matcher("").groupCount());
+      matchers.add(new RegexMatcher(pattern, replacement));
+    } catch (IllegalArgumentException e) {
+      logger.error("The login alias rule [{}] has an invalid replacement ({}), it is ignored." +
+          " Please correct the configuration", rule, e.getMessage());
+    }
+  }
+
+  /**
+   * Checks the given replacement the way {@link Matcher#replaceFirst(String)} reads it, so that it cannot fail once
+   * the pattern matches
+   *
+   * @throws IllegalArgumentException if the replacement is malformed or refers to a group the pattern does not have
+   */
+  private static void checkReplacement(String replacement, int groupCount) {
+    for (int i = 0; i < replacement.length(); i++) {
+      char c = replacement.charAt(i);
+      if (c == '\\') {
+        i++;
+        if (i == replacement.length()) {
+          throw new IllegalArgumentException("character to be escaped is missing");
+        }
+      } else if (c == '$') {
+        i++;
+        if (i == replacement.length() || !Character.isDigit(replacement.charAt(i))) {
+          throw new IllegalArgumentException("illegal group reference");
+        }
+        // Following digits are only read as long as they refer to an existing group
+        int group = replacement.charAt(i) - '0';
+        if (group > groupCount) {
+          throw new IllegalArgumentException("no group " + group);
+        }
+      }
+    }
+  }
+
+  private interface AliasMatcher {
+    /**
+     * @return the login of the given SCM author, or <code>null</code> if it does not match
+     */
+    String loginOf(String scmAuthor);
+  }
+
+  private static final class RegexMatcher implements AliasMatcher {
+    private final Pattern pattern;
+    private final String replacement;
+
+    RegexMatcher(Pattern pattern, String replacement) {
+      this.pattern = pattern;
+      this.replacement = replacement;
+    }
+
+    @Override
+    public String loginOf(String scmAuthor) {
+      Matcher matcher = pattern.matcher(scmAuthor);
+      return matcher.matches() ? matcher.replaceFirst(replacement) : null;
+    }
+  }
+
+  private static final class DomainMatcher implements AliasMatcher {
+    private final String suffix;
+
+    DomainMatcher(String domain) {
+      this.suffix = "@" + domain;
+    }
+
+    @Override
+    public String loginOf(String scmAuthor) {
+      int end = scmAuthor.endsWith(">") ? scmAuthor.length() - 1 : scmAuthor.length();
+      int domainStart = end - suffix.length();
+      if (domainStart <= 0 || !scmAuthor.regionMatches(true, domainStart, suffix, 0, suffix.length())) {
+        return null;
+      }
+      int start = end < scmAuthor.length() ? scmAuthor.lastIndexOf('<', domainStart) + 1 : 0;
+      return start > 0 || end == scmAuthor.length() ? emptyToNull(scmAuthor.substring(start, domainStart)) : null;
+    }
+
+    private static String emptyToNull(String login) {
+      return login.length() == 0 ? null : login;
+    }
+  }
+}
@@ -0,0 +1,289 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorsByLine;
+import eu.reuland.sonar.plugin.issue.assignment.scm.ScmBlame;
+import org.picocontainer.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Resource;
+import org.sonar.batch.issue.IssueCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns all the candidate issues of a module in a single pass, once all its resources have been decorated
+ * <p>
+ * Decorated resources are only {@link #register(Resource) registered}. Then the candidate issues are read from the
+ * {@link IssueCache} and grouped by component, the SCM blame measures are fetched and parsed for these components only,
+ * users are resolved in bulk and the assigned issues are written back to the cache.
+ * </p>
+ * <p>
+ * With a parallelism greater than 1, the SCM blame measures of the components are parsed concurrently on a bounded
+ * pool of worker threads, at most one per available processor. Each worker only produces the SCM blame of its
+ * candidate issues: fetching the measures, evaluating the {@link AssignmentStrategy assignment strategies}, resolving
+ * the users and updating the issues stay on the calling thread, in component order, so that the result is the same as
+ * with a sequential execution.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+class ModuleAssignmentEngine {
+
+  private static final Logger logger = LoggerFactory.getLogger(ModuleAssignmentEngine.class);
+  private final IssueCache issueCache;
+  private final SonarIndex index;
+  private final IssueAssigner assigner;
+  private final AuthorDictionary authorDictionary;
+  private final int parallelism;
+  private final BacklogSelector backlogSelector;
+  private final AssignmentMetrics metrics;
+  private final Map<String, Resource> resourcesByKey = new LinkedHashMap<String, Resource>();
+
+  ModuleAssignmentEngine(IssueCache issueCache, SonarIndex index, IssueAssigner assigner,
+                         AuthorDictionary authorDictionary, int parallelism, @Nullable BacklogSelector backlogSelector,
+                         AssignmentMetrics metrics) {
+    this(issueCache, index, assigner, authorDictionary, parallelism, backlogSelector, metrics,
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  ModuleAssignmentEngine(IssueCache issueCache, SonarIndex index, IssueAssigner assigner,
+                         AuthorDictionary authorDictionary, int parallelism, @Nullable BacklogSelector backlogSelector,
+                         AssignmentMetrics metrics, int availableProcessors) {
+    this.issueCache = issueCache;
+    this.index = index;
+    this.assigner = assigner;
+    this.authorDictionary = authorDictionary;
+    if (parallelism > availableProcessors) {
+      logger.warn("Parallelism [{}] is greater than the number of available processors, [{}] threads are used",
+          parallelism, availableProcessors);
+    }
+    this.parallelism = Math.max(1, Math.min(parallelism, availableProcessors));
+    this.backlogSelector = backlogSelector;
+    this.metrics = metrics;
+  }
+
+  void register(Resource resource) {
+    String componentKey = resource.getEffectiveKey();
+    if (componentKey == null) {
+      // Not a component indexed by the issue cache (e.g. a class or a method)
+      return;
+    }
+    resourcesByKey.put(componentKey, resource);
+  }
+
+  void execute() {
+    Map<Resource, List<Issue>> candidateIssuesByResource = findCandidateIssues();
+    logger.debug("Found candidate issues on [{}] of the [{}] resources of the module",
+        candidateIssuesByResource.size(), resourcesByKey.size());
+
+    List<ComponentBlame> blames = new ArrayList<ComponentBlame>(candidateIssuesByResource.size());
+    for (Map.Entry<Resource, List<Issue>> entry : candidateIssuesByResource.entrySet()) {
+      List<Issue> candidateIssues = entry.getValue();
+      int[] lines = IssueAssigner.candidateLines(candidateIssues);
+      Resource resource = entry.getKey();
+      String measureData = getMeasureData(resource, lines);
+      blames.add(new ComponentBlame(assigner, resource.getEffectiveKey(), candidateIssues, lines, measureData,
+          measureData != null && assigner.needsRevisions() ?
+              getData(resource, CoreMetrics.SCM_REVISIONS_BY_LINE) : null,
+          measureData != null && assigner.needsCommitTimes() ?
+              getData(resource, CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE) : null));
+    }
+
+    if (parallelism > 1 && blames.size() > 1) {
+      parseInParallel(blames);
+    } else {
+      parse(blames);
+    }
+
+    Set<Integer> scmAuthorIds = new HashSet<Integer>();
+    for (ComponentBlame blame : blames) {
+      for (int j = 0; j < blame.authorIds.length; j++) {
+        int localAuthorId = blame.authorIds[j];
+        // Remapped to the shared dictionary, no author being the same in all the dictionaries
+        blame.authorIds[j] = localAuthorId == AuthorDictionary.NO_AUTHOR ? localAuthorId :
+            authorDictionary.idOf(blame.localDictionary.author(localAuthorId));
+        scmAuthorIds.add(blame.authorIds[j]);
+      }
+    }
+    // The users of all the SCM authors are resolved at once, before the strategies check them
+    assigner.preloadScmAuthors(scmAuthorIds);
+
+    List<IssueAssigner.PendingAssignment> pendingAssignments = new ArrayList<IssueAssigner.PendingAssignment>();
+    for (ComponentBlame blame : blames) {
+      for (int j = 0; j < blame.candidateIssues.size(); j++) {
+        Issue issue = blame.candidateIssues.get(j);
+        Assignee assignee = assigner.decide(issue, blame.authorIds[j],
+            blame.commitTimes == null ? ScmBlame.NO_COMMIT_TIME : blame.commitTimes[j],
+            blame.revisions == null ? null : blame.revisions[j]);
+        if (assignee.isNobody()) {
+          logger.debug("Leaving the issue [{}] unassigned", issue.key());
+        } else if (backlogSelector != null && !issue.isNew()) {
+          backlogSelector.offer(new IssueAssigner.PendingAssignment(issue, assignee));
+        } else {
+          pendingAssignments.add(new IssueAssigner.PendingAssignment(issue, assignee));
+        }
+      }
+    }
+    if (backlogSelector != null) {
+      pendingAssignments.addAll(backlogSelector.select());
+    }
+
+    assigner.assignInBulk(pendingAssignments);
+    resourcesByKey.clear();
+  }
+
+  private Map<Resource, List<Issue>> findCandidateIssues() {
+    Map<Resource, List<Issue>> candidateIssuesByResource = new LinkedHashMap<Resource, List<Issue>>();
+    for (Resource resource : resourcesByKey.values()) {
+      List<Issue> candidateIssues = null;
+      for (DefaultIssue issue : issueCache.byComponent(resource.getEffectiveKey())) {
+        if (issue.resolution() == null && assigner.isCandidateIssue(issue) && !assigner.assignWithoutBlame(issue)) {
+          if (candidateIssues == null) {
+            candidateIssues = new ArrayList<Issue>();
+            candidateIssuesByResource.put(resource, candidateIssues);
+          }
+          candidateIssues.add(issue);
+        }
+      }
+    }
+    return candidateIssuesByResource;
+  }
+
+  private String getMeasureData(Resource resource, int[] lines) {
+    if (lines.length == 0) {
+      // No candidate issue on a line: no need to fetch the SCM blame measure
+      return null;
+    }
+    long startTime = metrics.start();
+    Measure measure = index.getMeasure(resource, CoreMetrics.SCM_AUTHORS_BY_LINE);
+    metrics.record(AssignmentMetrics.Timer.BLAME_FETCH, startTime);
+    return IssueAssigner.getMeasureData(measure);
+  }
+
+  private String getData(Resource resource, Metric metric) {
+    long startTime = metrics.start();
+    Measure measure = index.getMeasure(resource, metric);
+    metrics.record(AssignmentMetrics.Timer.BLAME_FETCH, startTime);
+    return measure == null ? null : measure.getData();
+  }
+
+  private static void parse(List<ComponentBlame> blames) {
+    for (ComponentBlame blame : blames) {
+      blame.call();
+    }
+  }
+
+  private void parseInParallel(List<ComponentBlame> blames) {
+    int threads = Math.min(parallelism, blames.size());
+    logger.debug("Parsing the SCM blame of [{}] components with [{}] threads", blames.size(), threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+    try {
+      for (Future<ComponentBlame> future : executor.invokeAll(blames)) {
+        // Rethrows the failure of the task, if any
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while parsing the SCM blame information", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to parse the SCM blame information", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Finds the SCM blame of the line of each candidate issue of a component: its author and, when needed, its commit
+   * time and its revision
+   * <p>
+   * Does not touch any shared state but the thread-safe blame cache: authors are registered in a dictionary local to
+   * the task, and are registered in the shared dictionary by the calling thread.
+   * </p>
+   */
+  private static final class ComponentBlame implements Callable<ComponentBlame> {
+    private final IssueAssigner assigner;
+    private final String componentKey;
+    private final List<Issue> candidateIssues;
+    private final int[] lines;
+    private final String measureData;
+    private final String revisionsData;
+    private final String commitTimesData;
+    private final AuthorDictionary localDictionary = new AuthorDictionary();
+    // Indexed as the candidate issues, authors being in the local dictionary, then in the shared one once remapped
+    private final int[] authorIds;
+    private final long[] commitTimes;
+    private final String[] revisions;
+
+    ComponentBlame(IssueAssigner assigner, String componentKey, List<Issue> candidateIssues, int[] lines,
+                   String measureData, String revisionsData, String commitTimesData) {
+      this.assigner = assigner;
+      this.componentKey = componentKey;
+      this.candidateIssues = candidateIssues;
+      this.lines = lines;
+      this.measureData = measureData;
+      this.revisionsData = revisionsData;
+      this.commitTimesData = commitTimesData;
+      this.authorIds = new int[candidateIssues.size()];
+      this.commitTimes = assigner.needsCommitTimes() ? new long[candidateIssues.size()] : null;
+      this.revisions = assigner.needsRevisions() ? new String[candidateIssues.size()] : null;
+    }
+
+    @Override
+    public ComponentBlame call() {
+      Arrays.fill(authorIds, AuthorDictionary.NO_AUTHOR);
+      if (commitTimes != null) {
+        Arrays.fill(commitTimes, ScmBlame.NO_COMMIT_TIME);
+      }
+      if (measureData == null) {
+        return this;
+      }
+      AuthorsByLine authorsByLine = assigner.parseAuthorsByLine(componentKey, measureData, revisionsData,
+          commitTimesData, lines, localDictionary);
+      ScmBlame blame = authorsByLine instanceof ScmBlame ? (ScmBlame) authorsByLine : null;
+      for (int i = 0; i < authorIds.length; i++) {
+        Integer line = candidateIssues.get(i).line();
+        if (line != null) {
+          authorIds[i] = authorsByLine.authorIdAt(line);
+          if (blame != null && commitTimes != null) {
+            commitTimes[i] = blame.commitTimeAt(line);
+          }
+          if (blame != null && revisions != null) {
+            revisions[i] = blame.revisionAt(line);
+          }
+        }
+      }
+      return this;
+    }
+  }
+
+  private static final class WorkerThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "autoassign-worker-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trie of path globs, split into <code>/</code> separated segments, each glob being associated to a value
+ * <p>
+ * A segment is either a literal (children indexed by name), a pattern where <code>*</code> matches any sequence of
+ * characters and <code>?</code> any single character, or <code>**</code> which matches any number of segments.
+ * The globs sharing a prefix share the nodes of this prefix, so that a path is matched against all the globs in a
+ * single walk. When several globs match a path, the lowest value wins.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+class PathGlobTrie {
+
+  static final int NO_MATCH = Integer.MAX_VALUE;
+
+  private static final String ANY_DEPTH = "**";
+  private final Node root = new Node();
+
+  void add(String glob, int value) {
+    Node node = root;
+    for (String segment : segments(glob)) {
+      node = node.child(segment);
+    }
+    node.value = Math.min(node.value, value);
+  }
+
+  /**
+   * @return the lowest value of the globs matching the given path, or {@link #NO_MATCH}
+   */
+  int match(String path) {
+    return match(root, segments(path), 0);
+  }
+
+  private static int match(Node node, String[] segments, int index) {
+    int best = index == segments.length ? node.value : NO_MATCH;
+    if (node.anyDepth != null) {
+      // ** matches any number of segments, including none
+      for (int i = index; i <= segments.length; i++) {
+        best = Math.min(best, match(node.anyDepth, segments, i));
+      }
+    }
+    if (index < segments.length) {
+      String segment = segments[index];
+      Node literal = node.literals == null ? null : node.literals.get(segment);
+      if (literal != null) {
+        best = Math.min(best, match(literal, segments, index + 1));
+      }
+      if (node.patterns != null) {
+        for (int i = 0; i < node.patterns.size(); i++) {
+          if (matchesSegment(node.patterns.get(i), 0, segment, 0)) {
+            best = Math.min(best, match(node.patternNodes.get(i), segments, index + 1));
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  private static boolean matchesSegment(String pattern, int patternIndex, String segment, int segmentIndex) {
+    while (patternIndex < pattern.length()) {
+      char c = pattern.charAt(patternIndex);
+      if (c == '*') {
+        for (int i = segmentIndex; i <= segment.length(); i++) {
+          if (matchesSegment(pattern, patternIndex + 1, segment, i)) {
+            return true;
+          }
+        }
+        return false;
+      }
+      if (segmentIndex == segment.length() || (c != '?' && c != segment.charAt(segmentIndex))) {
+        return false;
+      }
+      patternIndex++;
+      segmentIndex++;
+    }
+    return segmentIndex == segment.length();
+  }
+
+  private static String[] segments(String path) {
+    List<String> segments = new ArrayList<String>();
+    for (String segment : path.split("/")) {
+      if (segment.length() > 0) {
+        segments.add(segment);
+      }
+    }
+    return segments.toArray(new String[segments.size()]);
+  }
+
+  private static final class Node {
+    private int value = NO_MATCH;
+    private Map<String, Node> literals;
+    private List<String> patterns;
+    private List<Node> patternNodes;
+    private Node anyDepth;
+
+    Node child(String segment) {
+      if (ANY_DEPTH.equals(segment)) {
+        if (anyDepth == null) {
+          anyDepth = new Node();
+        }
+        return anyDepth;
+      }
+      if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+        if (patterns == null) {
+          patterns = new ArrayList<String>();
+          patternNodes = new ArrayList<Node>();
+        }
+        int index = patterns.indexOf(segment);
+        if (index < 0) {
+          patterns.add(segment);
+          patternNodes.add(new Node());
+          index = patterns.size() - 1;
+        }
+        return patternNodes.get(index);
+      }
+      if (literals == null) {
+        literals = new HashMap<String, Node>();
+      }
+      Node child = literals.get(segment);
+      if (child == null) {
+        child = new Node();
+        literals.put(segment, child);
+      }
+      return child;
+    }
+  }
+}
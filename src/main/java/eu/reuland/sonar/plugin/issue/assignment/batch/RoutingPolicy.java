@@ -0,0 +1,180 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Routes issues to a given assignee (or to nobody) instead of the SCM author of their line, from the rules of the
+ * {@link IssueAutoAssignPlugin#PROPERTY_ROUTING_RULES} property, one rule per line:
+ * <ul>
+ * <li><code>rule:repository:key=login</code>: issues of a rule,</li>
+ * <li><code>severity:BLOCKER,CRITICAL=login</code>: issues of the given severities,</li>
+ * <li><code>path:generated/**=login</code>: issues of the components matching a glob.</li>
+ * </ul>
+ * <p>
+ * Globs are matched against the component key without the module key, not against the file path: this is the path
+ * relative to the source directory for most languages, but the qualified class name for Java files
+ * (<code>org.foo.Bar</code>), whose packages are therefore matched with globs such as
+ * <code>path:org.foo.generated.*</code>.
+ * </p>
+ * <p>
+ * <code>-</code> as login means that the issues are left unassigned. When several rules match an issue, the first
+ * declared one wins.
+ * </p>
+ * <p>
+ * The rules are compiled once: into a hash table of the rule keys, a table of the first route
+ * of each severity (built from the severity bitmask of each rule) and a {@link PathGlobTrie}. The route of the
+ * components is remembered, so that issues are routed without any string parsing.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+class RoutingPolicy {
+
+  static final int NO_ROUTE = PathGlobTrie.NO_MATCH;
+  static final String NOBODY = "-";
+
+  private static final Logger logger = LoggerFactory.getLogger(RoutingPolicy.class);
+  private static final String RULE_PREFIX = "rule:";
+  private static final String SEVERITY_PREFIX = "severity:";
+  private static final String PATH_PREFIX = "path:";
+  private static final char TARGET_SEPARATOR = '=';
+
+  // Target login of each route, null for nobody
+  private final List<String> targets = new ArrayList<String>();
+  private final Map<RuleKey, Integer> routesByRuleKey = new HashMap<RuleKey, Integer>();
+  // Indexed by the rank of the severity in Severity.ALL
+  private final int[] routesBySeverity = new int[Severity.ALL.size()];
+  private final PathGlobTrie paths = new PathGlobTrie();
+  private boolean hasPathRoutes;
+  private final Map<String, Integer> routesByComponent = new HashMap<String, Integer>();
+
+  RoutingPolicy(String rules) {
+    Arrays.fill(routesBySeverity, NO_ROUTE);
+    if (rules != null) {
+      for (String rule : rules.split("\r?\n")) {
+        compile(rule.trim());
+      }
+    }
+    logger.debug("Compiled [{}] routing rules", targets.size());
+  }
+
+  boolean isEmpty() {
+    return targets.isEmpty();
+  }
+
+  /**
+   * @return the route of the given issue, or {@link #NO_ROUTE} if it is assigned from the SCM blame
+   */
+  int routeOf(Issue issue) {
+    int route = NO_ROUTE;
+    if (issue.ruleKey() != null) {
+      Integer ruleRoute = routesByRuleKey.get(issue.ruleKey());
+      route = ruleRoute == null ? NO_ROUTE : ruleRoute;
+    }
+    int severityRank = issue.severity() == null ? -1 : Severity.ALL.indexOf(issue.severity());
+    if (severityRank >= 0) {
+      route = Math.min(route, routesBySeverity[severityRank]);
+    }
+    if (hasPathRoutes && issue.componentKey() != null) {
+      route = Math.min(route, componentRoute(issue.componentKey()));
+    }
+    return route;
+  }
+
+  /**
+   * @return the login of the assignee of the given route, or <code>null</code> if its issues are left unassigned
+   */
+  String target(int route) {
+    return targets.get(route);
+  }
+
+  private int componentRoute(String componentKey) {
+    Integer route = routesByComponent.get(componentKey);
+    if (route == null) {
+      route = paths.match(componentKey.substring(componentKey.lastIndexOf(':') + 1));
+      routesByComponent.put(componentKey, route);
+    }
+    return route;
+  }
+
+  private void compile(String rule) {
+    if (rule.length() == 0 || rule.startsWith("#")) {
+      return;
+    }
+    int separatorIndex = rule.lastIndexOf(TARGET_SEPARATOR);
+    String condition = separatorIndex < 0 ? rule : rule.substring(0, separatorIndex).trim();
+    String target = separatorIndex < 0 ? "" : rule.substring(separatorIndex + 1).trim();
+    int route = targets.size();
+    if (target.length() == 0 || !compileCondition(condition, route)) {
+      logger.error("The routing rule [{}] is malformed, it is ignored. Please correct the configuration", rule);
+      return;
+    }
+    targets.add(NOBODY.equals(target) ? null : target);
+  }
+
+  private boolean compileCondition(String condition, int route) {
+    if (condition.startsWith(RULE_PREFIX)) {
+      String ruleKey = condition.substring(RULE_PREFIX.length()).trim();
+      int separatorIndex = ruleKey.indexOf(':');
+      if (separatorIndex <= 0 || separatorIndex == ruleKey.length() - 1 ||
+          ruleKey.indexOf(':', separatorIndex + 1) >= 0) {
+        // Not a repository and a rule separated by a single colon: refused by RuleKey.parse
+        return false;
+      }
+      RuleKey key = RuleKey.parse(ruleKey);
+      if (!routesByRuleKey.containsKey(key)) {
+        routesByRuleKey.put(key, route);
+      }
+      return true;
+    }
+    if (condition.startsWith(SEVERITY_PREFIX)) {
+      int severityMask = severityMask(condition.substring(SEVERITY_PREFIX.length()));
+      if (severityMask == 0) {
+        return false;
+      }
+      for (int rank = 0; rank < routesBySeverity.length; rank++) {
+        if ((severityMask & (1 << rank)) != 0 && routesBySeverity[rank] == NO_ROUTE) {
+          routesBySeverity[rank] = route;
+        }
+      }
+      return true;
+    }
+    if (condition.startsWith(PATH_PREFIX)) {
+      String glob = condition.substring(PATH_PREFIX.length()).trim();
+      if (glob.length() == 0) {
+        return false;
+      }
+      paths.add(glob, route);
+      hasPathRoutes = true;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return the bitmask of the ranks of the given comma separated severities, or 0 if one of them is unknown
+   */
+  private static int severityMask(String severities) {
+    int mask = 0;
+    for (String severity : severities.split(",")) {
+      int rank = Severity.ALL.indexOf(severity.trim().toUpperCase(Locale.ENGLISH));
+      if (rank < 0) {
+        return 0;
+      }
+      mask |= 1 << rank;
+    }
+    return mask;
+  }
+}
@@ -0,0 +1,48 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import org.sonar.api.config.Settings;
+import org.sonar.api.issue.Issue;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Assigns the issues matching the {@link RoutingPolicy} of the {@link IssueAutoAssignPlugin#PROPERTY_ROUTING_RULES}
+ * property to the assignee of their route
+ *
+ * @author Vincent Reuland
+ */
+public class RoutingStrategy implements AssignmentStrategy {
+
+  static final String KEY = "routing";
+
+  private final RoutingPolicy routingPolicy;
+
+  public RoutingStrategy(Settings settings) {
+    this.routingPolicy = new RoutingPolicy(settings.getString(IssueAutoAssignPlugin.PROPERTY_ROUTING_RULES));
+  }
+
+  @Override
+  public String key() {
+    return KEY;
+  }
+
+  @Override
+  public Set<AssignmentInput> inputs() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public Assignee decide(Issue issue, IssueBlame blame) {
+    if (routingPolicy.isEmpty()) {
+      return null;
+    }
+    int route = routingPolicy.routeOf(issue);
+    if (route == RoutingPolicy.NO_ROUTE) {
+      return null;
+    }
+    String login = routingPolicy.target(route);
+    return login == null ? Assignee.NOBODY : Assignee.login(login);
+  }
+}
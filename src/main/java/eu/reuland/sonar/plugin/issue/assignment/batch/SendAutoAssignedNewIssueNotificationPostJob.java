@@ -8,11 +8,18 @@ import org.sonar.api.batch.PostJob;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.config.Settings;
 import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationManager;
 import org.sonar.api.resources.Project;
 import org.sonar.batch.issue.IssueCache;
 import org.sonar.core.DryRunIncompatible;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * A {@link org.sonar.api.batch.PostJob} that sends a "issue change" notification
  * for new issues that have been auto-assigned by {@link IssueAutoAssignDecorator}
@@ -20,6 +27,13 @@ import org.sonar.core.DryRunIncompatible;
  * This post job targets only new issues. Indeed, change notification for old issues that are auto assigned are already
  * handled by the standard <code>SendIssueNotificationsPostJob</code>
  * </p>
+ * <p>
+ * Only the issues of the components recorded in the {@link AutoAssignedIssueRegistry} are read from the issue cache.
+ * </p>
+ * <p>
+ * In digest mode, a single notification is sent to each assignee, listing all the new issues assigned to this user.
+ * Otherwise, in compact mode, notifications only hold the keys of the issue and of the project, and the assignee.
+ * </p>
  *
  * @author Vincent Reuland
  */
@@ -28,15 +42,25 @@ public class SendAutoAssignedNewIssueNotificationPostJob implements PostJob {
 
   private static final Logger logger = LoggerFactory.getLogger(SendAutoAssignedNewIssueNotificationPostJob.class);
   private final IssueCache issueCache;
+  private final AutoAssignedIssueRegistry autoAssignedIssueRegistry;
   private final AutoAssignedNewIssueNotificationFactory notificationFactory;
   private final NotificationManager notificationManager;
+  private final AssignmentMetrics metrics;
   private final boolean enabled;
+  private final boolean digest;
+  private final boolean compact;
 
-  public SendAutoAssignedNewIssueNotificationPostJob(Settings settings, IssueCache issueCache, AutoAssignedNewIssueNotificationFactory notificationFactory, NotificationManager notificationManager) {
+  public SendAutoAssignedNewIssueNotificationPostJob(Settings settings, IssueCache issueCache, AutoAssignedIssueRegistry autoAssignedIssueRegistry,
+                                                     AutoAssignedNewIssueNotificationFactory notificationFactory, NotificationManager notificationManager,
+                                                     AssignmentMetrics metrics) {
     this.issueCache = issueCache;
+    this.autoAssignedIssueRegistry = autoAssignedIssueRegistry;
     this.notificationFactory = notificationFactory;
     this.notificationManager = notificationManager;
+    this.metrics = metrics;
     this.enabled = settings.getBoolean(IssueAutoAssignPlugin.PROPERTY_PLUGIN_ENABLED);
+    this.digest = settings.getBoolean(IssueAutoAssignPlugin.PROPERTY_NOTIFICATION_DIGEST);
+    this.compact = settings.getBoolean(IssueAutoAssignPlugin.PROPERTY_COMPACT_NOTIFICATIONS);
   }
 
   @Override
@@ -47,11 +71,61 @@ public class SendAutoAssignedNewIssueNotificationPostJob implements PostJob {
   }
 
   private void sendNotifications(Project project) {
-    for (DefaultIssue issue : issueCache.all()) {
-      if (issue.isNew() && issue.assignee() != null) {
+    logger.debug("Sending notifications for [{}] auto-assigned new issues", autoAssignedIssueRegistry.size());
+    List<DefaultIssue> issues = findIssuesToNotify();
+    if (issues.isEmpty()) {
+      return;
+    }
+
+    if (digest) {
+      sendDigestNotifications(project, issues);
+    } else if (compact) {
+      // Rule names are looked up by the server when the emails are formatted
+      for (DefaultIssue issue : issues) {
+        logger.debug("Sending compact notification for issue [{}] to user [{}]", issue.key(), issue.assignee());
+        scheduleForSending(notificationFactory.createCompact(project, issue));
+      }
+    } else {
+      for (DefaultIssue issue : issues) {
         logger.debug("Sending notification for issue [{}] to user [{}]", issue.key(), issue.assignee());
-        notificationManager.scheduleForSending(notificationFactory.create(project, issue));
+        scheduleForSending(notificationFactory.create(project, issue));
+      }
+    }
+  }
+
+  private void sendDigestNotifications(Project project, List<DefaultIssue> issues) {
+    Map<String, List<DefaultIssue>> issuesByAssignee = new LinkedHashMap<String, List<DefaultIssue>>();
+    for (DefaultIssue issue : issues) {
+      List<DefaultIssue> assigneeIssues = issuesByAssignee.get(issue.assignee());
+      if (assigneeIssues == null) {
+        assigneeIssues = new ArrayList<DefaultIssue>();
+        issuesByAssignee.put(issue.assignee(), assigneeIssues);
+      }
+      assigneeIssues.add(issue);
+    }
+
+    for (Map.Entry<String, List<DefaultIssue>> entry : issuesByAssignee.entrySet()) {
+      logger.debug("Sending digest notification for [{}] issues to user [{}]", entry.getValue().size(), entry.getKey());
+      scheduleForSending(notificationFactory.createDigest(project, entry.getKey(), entry.getValue()));
+    }
+  }
+
+  private void scheduleForSending(Notification notification) {
+    long startTime = metrics.start();
+    notificationManager.scheduleForSending(notification);
+    metrics.record(AssignmentMetrics.Timer.NOTIFICATION_SCHEDULING, startTime);
+  }
+
+  private List<DefaultIssue> findIssuesToNotify() {
+    List<DefaultIssue> issues = new ArrayList<DefaultIssue>();
+    for (String componentKey : autoAssignedIssueRegistry.componentKeys()) {
+      Set<String> issueKeys = autoAssignedIssueRegistry.issueKeys(componentKey);
+      for (DefaultIssue issue : issueCache.byComponent(componentKey)) {
+        if (issueKeys.contains(issue.key()) && issue.isNew() && issue.assignee() != null) {
+          issues.add(issue);
+        }
       }
     }
+    return issues;
   }
 }
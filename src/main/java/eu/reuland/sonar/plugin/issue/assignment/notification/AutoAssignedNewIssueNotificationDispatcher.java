@@ -12,6 +12,9 @@ import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssigned
 /**
  * A {@link org.sonar.api.notifications.NotificationDispatcher} that dispatches
  * <i>auto-assigned-new-issue</i> {@link Notification}s</i>
+ * <p>
+ * Subscribers are kept in a short-lived {@link SubscriberCache}, as notifications come in bursts for the same project.
+ * </p>
  *
  * @author Vincent Reuland
  */
@@ -20,6 +23,7 @@ public class AutoAssignedNewIssueNotificationDispatcher extends NotificationDisp
   public static final String KEY = "AutoAssignedNewIssue";
 
   private final NotificationManager notificationManager;
+  private final SubscriberCache subscriberCache;
 
   public static NotificationDispatcherMetadata newMetadata() {
     return NotificationDispatcherMetadata.create(KEY)
@@ -28,8 +32,13 @@ public class AutoAssignedNewIssueNotificationDispatcher extends NotificationDisp
   }
 
   public AutoAssignedNewIssueNotificationDispatcher(NotificationManager notificationManager) {
+    this(notificationManager, new SubscriberCache());
+  }
+
+  AutoAssignedNewIssueNotificationDispatcher(NotificationManager notificationManager, SubscriberCache subscriberCache) {
     super(AutoAssignedNewIssueNotificationFactory.NOTIFICATION_TYPE_KEY);
     this.notificationManager = notificationManager;
+    this.subscriberCache = subscriberCache;
   }
 
   @Override
@@ -40,8 +49,19 @@ public class AutoAssignedNewIssueNotificationDispatcher extends NotificationDisp
   @Override
   public void dispatch(Notification notification, Context context) {
     String projectKey = notification.getFieldValue(PROJECT_KEY.name());
-    Multimap<String, NotificationChannel> subscribedRecipients = notificationManager.findNotificationSubscribers(this, projectKey);
-    addUserToContextIfSubscribed(context, notification.getFieldValue(ASSIGNEE.name()), subscribedRecipients);
+    addUserToContextIfSubscribed(context, notification.getFieldValue(ASSIGNEE.name()), findSubscribers(projectKey));
+  }
+
+  /**
+   * @return the users subscribed to this dispatcher for the given project, looked up once for a burst of notifications
+   */
+  Multimap<String, NotificationChannel> findSubscribers(String projectKey) {
+    Multimap<String, NotificationChannel> subscribedRecipients = subscriberCache.get(projectKey);
+    if (subscribedRecipients == null) {
+      subscribedRecipients = notificationManager.findNotificationSubscribers(this, projectKey);
+      subscriberCache.put(projectKey, subscribedRecipients);
+    }
+    return subscribedRecipients;
   }
 
   private void addUserToContextIfSubscribed(Context context, @Nullable String user, Multimap<String, NotificationChannel> subscribedRecipients) {
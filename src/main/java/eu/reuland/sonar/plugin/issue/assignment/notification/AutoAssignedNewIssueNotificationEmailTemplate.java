@@ -1,28 +1,63 @@
 package eu.reuland.sonar.plugin.issue.assignment.notification;
 
 import org.antlr.stringtemplate.StringTemplate;
-import org.antlr.stringtemplate.StringTemplateGroup;
+import org.picocontainer.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.component.Component;
 import org.sonar.api.config.EmailSettings;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.IssueFinder;
+import org.sonar.api.issue.IssueQuery;
+import org.sonar.api.issue.IssueQueryResult;
 import org.sonar.api.notifications.Notification;
 import org.sonar.plugins.emailnotifications.api.EmailMessage;
 import org.sonar.plugins.emailnotifications.api.EmailTemplate;
 
+import java.util.Arrays;
+
 import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationFactory.NOTIFICATION_TYPE_KEY;
-import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationField.ISSUE_KEY;
-import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationField.PROJECT_NAME;
+import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationField.*;
 
 
 /**
  * An {@link EmailTemplate} that formats AutoAssignedNewIssue notifications
+ * <p>
+ * Compact notifications (see {@link AutoAssignedNewIssueNotificationFactory#createCompact}) are completed here from
+ * the issue stored by the analysis, rule names being read from the cache of the factory. As the notifications of an
+ * analysis are formatted one after the other, the latest issues of the assignee on the project are loaded at once and
+ * kept in a {@link NotifiedIssueCache}. No email is sent if the issue cannot be found anymore.
+ * </p>
  *
  * @author Vincent Reuland
  */
 public class AutoAssignedNewIssueNotificationEmailTemplate extends EmailTemplate {
 
+  static final String BODY_TEMPLATE_NAME = "templates/notification/email/auto-assigned-new-issue-template";
+
+  // Maximum number of issues loaded at once to complete compact notifications
+  static final int BATCH_SIZE = 100;
+
+  private static final Logger logger = LoggerFactory.getLogger(AutoAssignedNewIssueNotificationEmailTemplate.class);
   private final EmailSettings settings;
+  private final IssueFinder issueFinder;
+  private final AutoAssignedNewIssueNotificationFactory notificationFactory;
+  private final NotifiedIssueCache issueCache;
+  private final EmailBodyTemplate bodyTemplate;
 
-  public AutoAssignedNewIssueNotificationEmailTemplate(EmailSettings settings) {
+  public AutoAssignedNewIssueNotificationEmailTemplate(EmailSettings settings, IssueFinder issueFinder,
+                                                       AutoAssignedNewIssueNotificationFactory notificationFactory) {
+    this(settings, issueFinder, notificationFactory, new NotifiedIssueCache());
+  }
+
+  AutoAssignedNewIssueNotificationEmailTemplate(EmailSettings settings, IssueFinder issueFinder,
+                                                AutoAssignedNewIssueNotificationFactory notificationFactory,
+                                                NotifiedIssueCache issueCache) {
     this.settings = settings;
+    this.issueFinder = issueFinder;
+    this.notificationFactory = notificationFactory;
+    this.issueCache = issueCache;
+    this.bodyTemplate = new EmailBodyTemplate(BODY_TEMPLATE_NAME);
   }
 
   @Override
@@ -30,6 +65,9 @@ public class AutoAssignedNewIssueNotificationEmailTemplate extends EmailTemplate
     if (!NOTIFICATION_TYPE_KEY.equals(notification.getType())) {
       return null;
     }
+    if (notification.getFieldValue(COMPONENT_KEY.name()) == null && !completeCompactNotification(notification)) {
+      return null;
+    }
 
     return new EmailMessage()
         .setMessageId(generateMessageId(notification))
@@ -37,6 +75,66 @@ public class AutoAssignedNewIssueNotificationEmailTemplate extends EmailTemplate
         .setMessage(generateMessageBody(notification));
   }
 
+  /**
+   * @return <code>false</code> if the issue of the notification cannot be found
+   */
+  private boolean completeCompactNotification(Notification notification) {
+    String issueKey = notification.getFieldValue(ISSUE_KEY.name());
+    NotifiedIssueCache.NotifiedIssue notifiedIssue = issueCache.get(issueKey);
+    if (notifiedIssue == null) {
+      loadLatestIssues(notification.getFieldValue(PROJECT_KEY.name()), notification.getFieldValue(ASSIGNEE.name()));
+      notifiedIssue = issueCache.get(issueKey);
+    }
+    if (notifiedIssue == null) {
+      // Not among the latest issues of the assignee: looked up alone
+      // No role required: there is no user session on the notification thread
+      load(IssueQuery.builder()
+          .issueKeys(Arrays.asList(issueKey))
+          .requiredRole(null)
+          .build());
+      notifiedIssue = issueCache.get(issueKey);
+    }
+    if (notifiedIssue == null) {
+      logger.warn("Cannot find issue [{}] to complete its notification, no email is sent", issueKey);
+      return false;
+    }
+
+    Issue issue = notifiedIssue.issue();
+    notification
+        .setFieldValue(PROJECT_NAME.name(), notifiedIssue.projectName())
+        .setFieldValue(COMPONENT_KEY.name(), issue.componentKey())
+        .setFieldValue(SEVERITY.name(), issue.severity())
+        .setFieldValue(RULE_NAME.name(), notificationFactory.ruleName(issue.ruleKey()))
+        .setFieldValue(MESSAGE.name(), issue.message());
+    return true;
+  }
+
+  /**
+   * Loads the latest unresolved issues of the given assignee on the given project, unless they were already loaded
+   */
+  private void loadLatestIssues(@Nullable String projectKey, @Nullable String assignee) {
+    if (projectKey == null || assignee == null || !issueCache.markBatchLoaded(projectKey + "/" + assignee)) {
+      return;
+    }
+    load(IssueQuery.builder()
+        .componentRoots(Arrays.asList(projectKey))
+        .assignees(Arrays.asList(assignee))
+        .resolved(false)
+        .sort(IssueQuery.SORT_BY_CREATION_DATE)
+        .asc(false)
+        .pageSize(BATCH_SIZE)
+        .requiredRole(null)
+        .build());
+  }
+
+  private void load(IssueQuery query) {
+    IssueQueryResult result = issueFinder.find(query);
+    for (Issue issue : result.issues()) {
+      Component project = result.project(issue);
+      issueCache.put(issue, project != null ? project.longName() : null);
+    }
+  }
+
   private String generateMessageId(Notification notification) {
     return NOTIFICATION_TYPE_KEY + "/" + notification.getFieldValue(ISSUE_KEY.name());
   }
@@ -49,15 +147,10 @@ public class AutoAssignedNewIssueNotificationEmailTemplate extends EmailTemplate
   }
 
   private String generateMessageBody(Notification notification) {
-    StringTemplate template = getEmailBodyTemplate();
+    StringTemplate template = bodyTemplate.newInstance();
     template.setAttribute("SETTINGS", settings);
     fillTemplateWithNotificationFields(template, notification);
-    return template.toString();
-  }
-
-  private StringTemplate getEmailBodyTemplate() {
-    StringTemplateGroup templateGroup = new StringTemplateGroup("templates");
-    return templateGroup.getInstanceOf("templates/notification/email/auto-assigned-new-issue-template");
+    return bodyTemplate.render(template);
   }
 
   private void fillTemplateWithNotificationFields(StringTemplate template, Notification notification) {
@@ -10,25 +10,38 @@ import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
 import org.sonar.core.i18n.RuleI18nManager;
 
+import java.util.List;
 import java.util.Locale;
 
 import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationField.*;
 
 /**
- * Creates <i>auto-assigned-new-issue</i> {@link Notification}s
+ * Creates <i>auto-assigned-new-issue</i> and <i>auto-assigned-new-issues-digest</i> {@link Notification}s
+ * <p>
+ * Rule names are kept in a bounded {@link RuleNameCache}, as this factory lives as long as the server.
+ * </p>
  *
  * @author Vincent Reuland
  */
 public class AutoAssignedNewIssueNotificationFactory implements BatchExtension, ServerExtension {
 
   public static final String NOTIFICATION_TYPE_KEY = "auto-assigned-new-issue";
+  public static final String DIGEST_NOTIFICATION_TYPE_KEY = "auto-assigned-new-issues-digest";
+  // Maximum number of issues detailed in a digest notification, the other ones being only counted
+  static final int DIGEST_MAX_LISTED_ISSUES = 20;
 
   private final RuleFinder ruleFinder;
   private final RuleI18nManager ruleI18n;
+  private final RuleNameCache ruleNameCache;
 
   public AutoAssignedNewIssueNotificationFactory(RuleFinder ruleFinder, RuleI18nManager ruleI18n) {
+    this(ruleFinder, ruleI18n, new RuleNameCache());
+  }
+
+  AutoAssignedNewIssueNotificationFactory(RuleFinder ruleFinder, RuleI18nManager ruleI18n, RuleNameCache ruleNameCache) {
     this.ruleFinder = ruleFinder;
     this.ruleI18n = ruleI18n;
+    this.ruleNameCache = ruleNameCache;
   }
 
   public Notification create(Project project, Issue issue) {
@@ -45,7 +58,56 @@ public class AutoAssignedNewIssueNotificationFactory implements BatchExtension,
         .setFieldValue(MESSAGE.name(), issue.message());
   }
 
-  private String ruleName(RuleKey ruleKey) {
+  /**
+   * Creates a notification holding only the issue key, the project key and the assignee. The other fields are
+   * filled in on the server when the email is formatted.
+   */
+  public Notification createCompact(Project project, Issue issue) {
+    return new Notification(NOTIFICATION_TYPE_KEY)
+        .setDefaultMessage(String.format("A new issue has been assigned to you: %s", issue.key()))
+        .setFieldValue(PROJECT_KEY.name(), project.key())
+        .setFieldValue(ISSUE_KEY.name(), issue.key())
+        .setFieldValue(ASSIGNEE.name(), issue.assignee());
+  }
+
+  /**
+   * @param issues the new issues of the project auto-assigned to the given assignee
+   */
+  public Notification createDigest(Project project, String assignee, List<? extends Issue> issues) {
+    int listedIssueCount = Math.min(issues.size(), DIGEST_MAX_LISTED_ISSUES);
+    Notification notification = new Notification(DIGEST_NOTIFICATION_TYPE_KEY)
+        .setDefaultMessage(String.format("%d new issues on %s have been assigned to you",
+            issues.size(), project.getName()))
+        .setFieldValue(AutoAssignedNewIssuesDigestField.PROJECT_NAME.name(), project.getName())
+        .setFieldValue(AutoAssignedNewIssuesDigestField.PROJECT_KEY.name(), project.key())
+        .setFieldValue(AutoAssignedNewIssuesDigestField.ASSIGNEE.name(), assignee)
+        .setFieldValue(AutoAssignedNewIssuesDigestField.ISSUE_COUNT.name(), String.valueOf(issues.size()))
+        .setFieldValue(AutoAssignedNewIssuesDigestField.LISTED_ISSUE_COUNT.name(), String.valueOf(listedIssueCount));
+    for (int i = 0; i < listedIssueCount; i++) {
+      Issue issue = issues.get(i);
+      notification
+          .setFieldValue(AutoAssignedNewIssuesDigestField.listedIssueField(i, COMPONENT_KEY), issue.componentKey())
+          .setFieldValue(AutoAssignedNewIssuesDigestField.listedIssueField(i, ISSUE_KEY), issue.key())
+          .setFieldValue(AutoAssignedNewIssuesDigestField.listedIssueField(i, SEVERITY), issue.severity())
+          .setFieldValue(AutoAssignedNewIssuesDigestField.listedIssueField(i, RULE_NAME), ruleName(issue.ruleKey()))
+          .setFieldValue(AutoAssignedNewIssuesDigestField.listedIssueField(i, MESSAGE), issue.message());
+    }
+    return notification;
+  }
+
+  /**
+   * @return the name of the rule, looked up once as long as it stays in the cache
+   */
+  String ruleName(RuleKey ruleKey) {
+    String name = ruleNameCache.get(ruleKey);
+    if (name == null) {
+      name = loadRuleName(ruleKey);
+      ruleNameCache.put(ruleKey, name);
+    }
+    return name;
+  }
+
+  private String loadRuleName(RuleKey ruleKey) {
     Rule rule = ruleFinder.findByKey(ruleKey);
 
     String name = ruleI18n.getName(rule, Locale.ENGLISH);
@@ -0,0 +1,93 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+import org.antlr.stringtemplate.StringTemplate;
+import org.sonar.api.config.EmailSettings;
+import org.sonar.api.notifications.Notification;
+import org.sonar.plugins.emailnotifications.api.EmailMessage;
+import org.sonar.plugins.emailnotifications.api.EmailTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationFactory.DIGEST_NOTIFICATION_TYPE_KEY;
+import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssuesDigestField.*;
+
+/**
+ * An {@link EmailTemplate} that formats AutoAssignedNewIssuesDigest notifications
+ *
+ * @author Vincent Reuland
+ */
+public class AutoAssignedNewIssuesDigestEmailTemplate extends EmailTemplate {
+
+  static final String BODY_TEMPLATE_NAME = "templates/notification/email/auto-assigned-new-issues-digest-template";
+
+  private static final AutoAssignedNewIssueNotificationField[] LISTED_ISSUE_FIELDS = {
+      AutoAssignedNewIssueNotificationField.COMPONENT_KEY,
+      AutoAssignedNewIssueNotificationField.ISSUE_KEY,
+      AutoAssignedNewIssueNotificationField.SEVERITY,
+      AutoAssignedNewIssueNotificationField.RULE_NAME,
+      AutoAssignedNewIssueNotificationField.MESSAGE
+  };
+
+  private final EmailSettings settings;
+  private final EmailBodyTemplate bodyTemplate;
+
+  public AutoAssignedNewIssuesDigestEmailTemplate(EmailSettings settings) {
+    this.settings = settings;
+    this.bodyTemplate = new EmailBodyTemplate(BODY_TEMPLATE_NAME);
+  }
+
+  @Override
+  public EmailMessage format(Notification notification) {
+    if (!DIGEST_NOTIFICATION_TYPE_KEY.equals(notification.getType())) {
+      return null;
+    }
+
+    return new EmailMessage()
+        .setMessageId(generateMessageId(notification))
+        .setSubject(generateMessageSubject(notification))
+        .setMessage(generateMessageBody(notification));
+  }
+
+  private String generateMessageId(Notification notification) {
+    return DIGEST_NOTIFICATION_TYPE_KEY + "/" + notification.getFieldValue(PROJECT_KEY.name()) + "/" +
+        notification.getFieldValue(ASSIGNEE.name());
+  }
+
+  private String generateMessageSubject(Notification notification) {
+    return String.format("%s, %s new issues have been assigned to you",
+        notification.getFieldValue(PROJECT_NAME.name()),
+        notification.getFieldValue(ISSUE_COUNT.name())
+    );
+  }
+
+  private String generateMessageBody(Notification notification) {
+    StringTemplate template = bodyTemplate.newInstance();
+    template.setAttribute("SETTINGS", settings);
+    template.setAttribute(PROJECT_NAME.name(), notification.getFieldValue(PROJECT_NAME.name()));
+    template.setAttribute(ISSUE_COUNT.name(), notification.getFieldValue(ISSUE_COUNT.name()));
+
+    List<Map<String, String>> issues = listedIssues(notification);
+    template.setAttribute("ISSUES", issues);
+    int unlistedIssueCount = Integer.parseInt(notification.getFieldValue(ISSUE_COUNT.name())) - issues.size();
+    if (unlistedIssueCount > 0) {
+      template.setAttribute("UNLISTED_ISSUE_COUNT", unlistedIssueCount);
+    }
+    return bodyTemplate.render(template);
+  }
+
+  private static List<Map<String, String>> listedIssues(Notification notification) {
+    int listedIssueCount = Integer.parseInt(notification.getFieldValue(LISTED_ISSUE_COUNT.name()));
+    List<Map<String, String>> issues = new ArrayList<Map<String, String>>(listedIssueCount);
+    for (int i = 0; i < listedIssueCount; i++) {
+      Map<String, String> issue = new HashMap<String, String>();
+      for (AutoAssignedNewIssueNotificationField field : LISTED_ISSUE_FIELDS) {
+        issue.put(field.name(), notification.getFieldValue(listedIssueField(i, field)));
+      }
+      issues.add(issue);
+    }
+    return issues;
+  }
+}
@@ -0,0 +1,28 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+/**
+ * Enumeration of available {@link org.sonar.api.notifications.Notification} fields
+ * names in AutoAssignedNewIssuesDigest notifications
+ * <p>
+ * To be used as simple string constants, enum values names corresponding to fields names. The fields of each listed
+ * issue are named by {@link #listedIssueField(int, AutoAssignedNewIssueNotificationField)}.
+ * </p>
+ *
+ * @author Vincent Reuland
+ * @see org.sonar.api.notifications.Notification#getFieldValue(String)
+ */
+public enum AutoAssignedNewIssuesDigestField {
+  PROJECT_KEY,
+  PROJECT_NAME,
+  ASSIGNEE,
+  ISSUE_COUNT,
+  LISTED_ISSUE_COUNT;
+
+  /**
+   * @param index the index of the listed issue, from 0 (inclusive) to {@link #LISTED_ISSUE_COUNT} (exclusive)
+   * @return the name of the given field for a listed issue
+   */
+  public static String listedIssueField(int index, AutoAssignedNewIssueNotificationField field) {
+    return "ISSUE_" + index + "_" + field.name();
+  }
+}
@@ -0,0 +1,48 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+import com.google.common.collect.Multimap;
+import org.sonar.api.notifications.Notification;
+import org.sonar.api.notifications.NotificationChannel;
+import org.sonar.api.notifications.NotificationDispatcher;
+
+import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssuesDigestField.ASSIGNEE;
+import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssuesDigestField.PROJECT_KEY;
+
+/**
+ * A {@link NotificationDispatcher} that dispatches <i>auto-assigned-new-issues-digest</i> {@link Notification}s
+ * <p>
+ * Digests replace the notifications sent for each issue: they are sent to the users subscribed to the
+ * {@link AutoAssignedNewIssueNotificationDispatcher}, so that no additional subscription is needed.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public class AutoAssignedNewIssuesDigestNotificationDispatcher extends NotificationDispatcher {
+
+  public static final String KEY = "AutoAssignedNewIssuesDigest";
+
+  private final AutoAssignedNewIssueNotificationDispatcher subscriptionDispatcher;
+
+  public AutoAssignedNewIssuesDigestNotificationDispatcher(AutoAssignedNewIssueNotificationDispatcher subscriptionDispatcher) {
+    super(AutoAssignedNewIssueNotificationFactory.DIGEST_NOTIFICATION_TYPE_KEY);
+    this.subscriptionDispatcher = subscriptionDispatcher;
+  }
+
+  @Override
+  public String getKey() {
+    return KEY;
+  }
+
+  @Override
+  public void dispatch(Notification notification, Context context) {
+    String assignee = notification.getFieldValue(ASSIGNEE.name());
+    if (assignee == null) {
+      return;
+    }
+    String projectKey = notification.getFieldValue(PROJECT_KEY.name());
+    Multimap<String, NotificationChannel> subscribedRecipients = subscriptionDispatcher.findSubscribers(projectKey);
+    for (NotificationChannel channel : subscribedRecipients.get(assignee)) {
+      context.addUser(assignee, channel);
+    }
+  }
+}
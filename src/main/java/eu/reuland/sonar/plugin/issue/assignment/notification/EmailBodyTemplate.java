@@ -0,0 +1,48 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+import org.antlr.stringtemplate.StringTemplate;
+import org.antlr.stringtemplate.StringTemplateGroup;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * An email body template, loaded and compiled once from the classpath
+ * <p>
+ * Each email is rendered from a {@link #newInstance() fresh instance} of the compiled template, so that emails can be
+ * formatted concurrently. The render buffer is sized to the last rendered body, emails of a template having about the
+ * same length.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+class EmailBodyTemplate {
+
+  private static final int INITIAL_BUFFER_SIZE = 512;
+
+  private final StringTemplate compiledTemplate;
+  private volatile int lastLength = INITIAL_BUFFER_SIZE;
+
+  EmailBodyTemplate(String templateName) {
+    this.compiledTemplate = new StringTemplateGroup("templates").getInstanceOf(templateName);
+  }
+
+  /**
+   * @return a new instance of the template, on which attributes can be set
+   */
+  StringTemplate newInstance() {
+    return compiledTemplate.getInstanceOf();
+  }
+
+  String render(StringTemplate template) {
+    StringWriter buffer = new StringWriter(lastLength);
+    try {
+      template.write(template.getGroup().getStringTemplateWriter(buffer));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to render the email body", e);
+    }
+    String body = buffer.toString();
+    lastLength = body.length();
+    return body;
+  }
+}
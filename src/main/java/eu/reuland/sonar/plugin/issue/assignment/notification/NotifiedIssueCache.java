@@ -0,0 +1,86 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+import org.sonar.api.issue.Issue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the issues completing compact notifications, evicting the least recently used issue once full
+ * <p>
+ * The batches of issues already loaded (the latest issues of an assignee on a project) are remembered the same way, so
+ * that a batch is not loaded again for each of its notifications whose issue it does not hold.
+ * </p>
+ * <p>
+ * Thread-safe, as it is used on the server side by the notification thread.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+class NotifiedIssueCache {
+
+  static final int DEFAULT_MAX_SIZE = 1000;
+
+  private final Map<String, NotifiedIssue> issuesByKey;
+  private final Map<String, Boolean> loadedBatches;
+
+  NotifiedIssueCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  NotifiedIssueCache(int maxSize) {
+    this.issuesByKey = lruMap(maxSize);
+    this.loadedBatches = lruMap(maxSize);
+  }
+
+  private static <V> Map<String, V> lruMap(final int maxSize) {
+    return new LinkedHashMap<String, V>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * @return the cached issue, or <code>null</code> if it is not cached
+   */
+  synchronized NotifiedIssue get(String issueKey) {
+    return issuesByKey.get(issueKey);
+  }
+
+  synchronized void put(Issue issue, String projectName) {
+    issuesByKey.put(issue.key(), new NotifiedIssue(issue, projectName));
+  }
+
+  synchronized int size() {
+    return issuesByKey.size();
+  }
+
+  /**
+   * Marks the given batch as loaded
+   *
+   * @return <code>false</code> if it was already loaded
+   */
+  synchronized boolean markBatchLoaded(String batchKey) {
+    return loadedBatches.put(batchKey, Boolean.TRUE) == null;
+  }
+
+  static final class NotifiedIssue {
+    private final Issue issue;
+    private final String projectName;
+
+    NotifiedIssue(Issue issue, String projectName) {
+      this.issue = issue;
+      this.projectName = projectName;
+    }
+
+    Issue issue() {
+      return issue;
+    }
+
+    String projectName() {
+      return projectName;
+    }
+  }
+}
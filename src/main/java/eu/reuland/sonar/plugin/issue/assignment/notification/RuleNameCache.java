@@ -0,0 +1,49 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+import org.sonar.api.rule.RuleKey;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of rule names, evicting the least recently used rule once full
+ * <p>
+ * Thread-safe, as it is also used on the server side by the notification thread.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+class RuleNameCache {
+
+  static final int DEFAULT_MAX_SIZE = 1000;
+
+  private final Map<RuleKey, String> namesByKey;
+
+  RuleNameCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  RuleNameCache(final int maxSize) {
+    this.namesByKey = new LinkedHashMap<RuleKey, String>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<RuleKey, String> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * @return the cached name of the rule, or <code>null</code> if it is not cached
+   */
+  synchronized String get(RuleKey ruleKey) {
+    return namesByKey.get(ruleKey);
+  }
+
+  synchronized void put(RuleKey ruleKey, String name) {
+    namesByKey.put(ruleKey, name);
+  }
+
+  synchronized int size() {
+    return namesByKey.size();
+  }
+}
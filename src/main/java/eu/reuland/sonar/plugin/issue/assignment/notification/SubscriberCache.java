@@ -0,0 +1,79 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+import com.google.common.collect.Multimap;
+import org.sonar.api.notifications.NotificationChannel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Short-lived cache of the notification subscribers of a dispatcher, by project key
+ * <p>
+ * Entries expire after a fixed time to live, so that subscription changes are taken into account quickly, and the
+ * least recently used project is evicted once the cache is full. Thread-safe.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+class SubscriberCache {
+
+  static final int DEFAULT_MAX_SIZE = 100;
+  static final long DEFAULT_TIME_TO_LIVE_MS = 60000L;
+
+  private final long timeToLiveMs;
+  private final Map<String, Entry> entriesByProjectKey;
+
+  SubscriberCache() {
+    this(DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE_MS);
+  }
+
+  SubscriberCache(final int maxSize, long timeToLiveMs) {
+    this.timeToLiveMs = timeToLiveMs;
+    this.entriesByProjectKey = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * @return the cached subscribers of the project, or <code>null</code> if they are not cached or have expired
+   */
+  synchronized Multimap<String, NotificationChannel> get(String projectKey) {
+    Entry entry = entriesByProjectKey.get(projectKey);
+    if (entry == null) {
+      return null;
+    }
+    if (currentTimeMillis() - entry.loadedAt >= timeToLiveMs) {
+      entriesByProjectKey.remove(projectKey);
+      return null;
+    }
+    return entry.subscribers;
+  }
+
+  synchronized void put(String projectKey, Multimap<String, NotificationChannel> subscribers) {
+    entriesByProjectKey.put(projectKey, new Entry(subscribers, currentTimeMillis()));
+  }
+
+  synchronized int size() {
+    return entriesByProjectKey.size();
+  }
+
+  /**
+   * Overridden by tests
+   */
+  long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private static final class Entry {
+    private final Multimap<String, NotificationChannel> subscribers;
+    private final long loadedAt;
+
+    Entry(Multimap<String, NotificationChannel> subscribers, long loadedAt) {
+      this.subscribers = subscribers;
+      this.loadedAt = loadedAt;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.InstantiationStrategy;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary assigning a small integer id (starting from 0) to each distinct SCM author
+ * <p>
+ * Authors are looked up directly from a region of the raw measure data, so that an author string
+ * is only allocated the first time it is seen.
+ * </p>
+ * <p>
+ * A single dictionary is shared by all the decorated resources of the analysis: each author is kept once
+ * in memory and per file blame information only holds compact author ids.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public class AuthorDictionary implements BatchExtension {
+
+  public static final int NO_AUTHOR = -1;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private String[] authors = new String[INITIAL_CAPACITY];
+  private int[] hashes = new int[INITIAL_CAPACITY];
+  // Open addressing table: each slot contains (id + 1), 0 meaning an empty slot
+  private int[] slots = new int[INITIAL_CAPACITY * 2];
+  private int size;
+
+  /**
+   * @return the id of the author found in <code>data</code> between <code>start</code> (inclusive)
+   * and <code>end</code> (exclusive), registering it if needed
+   */
+  public int idOf(String data, int start, int end) {
+    int length = end - start;
+    int hash = hash(data, start, end);
+    int mask = slots.length - 1;
+    int slot = hash & mask;
+    while (slots[slot] != 0) {
+      int id = slots[slot] - 1;
+      if (hashes[id] == hash && authors[id].length() == length && authors[id].regionMatches(0, data, start, length)) {
+        return id;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return register(data.substring(start, end), hash, slot);
+  }
+
+  /**
+   * @return the id of the given author, registering it if needed
+   */
+  public int idOf(String author) {
+    return idOf(author, 0, author.length());
+  }
+
+  /**
+   * @return the author having the given id, or <code>null</code> for {@link #NO_AUTHOR}
+   */
+  public String author(int id) {
+    return id == NO_AUTHOR ? null : authors[id];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private int register(String author, int hash, int slot) {
+    int id = size;
+    if (id == authors.length) {
+      authors = Arrays.copyOf(authors, id * 2);
+      hashes = Arrays.copyOf(hashes, id * 2);
+    }
+    authors[id] = author;
+    hashes[id] = hash;
+    slots[slot] = id + 1;
+    size++;
+    if (size * 2 > slots.length) {
+      rehash();
+    }
+    return id;
+  }
+
+  private void rehash() {
+    int[] newSlots = new int[slots.length * 2];
+    int mask = newSlots.length - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = hashes[id] & mask;
+      while (newSlots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      newSlots[slot] = id + 1;
+    }
+    slots = newSlots;
+  }
+
+  private static int hash(String data, int start, int end) {
+    // Same as String.hashCode(), spread to make good use of the lowest bits
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + data.charAt(i);
+    }
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,21 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+/**
+ * SCM blame information of a resource: the id (in an {@link AuthorDictionary}) of the author of each line
+ *
+ * @author Vincent Reuland
+ */
+public interface AuthorsByLine {
+
+  AuthorsByLine EMPTY = new AuthorsByLine() {
+    @Override
+    public int authorIdAt(int line) {
+      return AuthorDictionary.NO_AUTHOR;
+    }
+  };
+
+  /**
+   * @return the id of the author of the given line, or {@link AuthorDictionary#NO_AUTHOR} if unknown
+   */
+  int authorIdAt(int line);
+}
@@ -0,0 +1,45 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import java.util.Arrays;
+
+/**
+ * {@link AuthorsByLine} backed by a primitive array indexed by line number
+ *
+ * @author Vincent Reuland
+ */
+public class DenseAuthorsByLine implements AuthorsByLine {
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private int[] authorIds = newAuthorIds(INITIAL_CAPACITY);
+
+  @Override
+  public int authorIdAt(int line) {
+    if (line < 0 || line >= authorIds.length) {
+      return AuthorDictionary.NO_AUTHOR;
+    }
+    return authorIds[line];
+  }
+
+  /**
+   * @return an estimation of the number of bytes retained by the array
+   */
+  public long sizeInBytes() {
+    return authorIds.length * 4L + 16L;
+  }
+
+  void put(int line, int authorId) {
+    if (line >= authorIds.length) {
+      int[] newAuthorIds = newAuthorIds(Math.max(line + 1, authorIds.length * 2));
+      System.arraycopy(authorIds, 0, newAuthorIds, 0, authorIds.length);
+      authorIds = newAuthorIds;
+    }
+    authorIds[line] = authorId;
+  }
+
+  private static int[] newAuthorIds(int capacity) {
+    int[] authorIds = new int[capacity];
+    Arrays.fill(authorIds, AuthorDictionary.NO_AUTHOR);
+    return authorIds;
+  }
+}
@@ -0,0 +1,429 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.batch.bootstrap.ProjectReactor;
+import org.sonar.api.config.Settings;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-disk cache of the parsed {@link org.sonar.api.measures.CoreMetrics#SCM_AUTHORS_BY_LINE} measures, kept from one
+ * analysis to the next in the working directory
+ * <p>
+ * Entries are keyed by component key and by a 64-bit hash of the measure data: the blame of an unchanged file is
+ * restored from the memory-mapped cache file instead of being parsed again. Only the entry index (component key,
+ * hash and offset) is kept on the heap, the runs of authors stay in the mapped file until they are needed.
+ * </p>
+ * <p>
+ * The cache file is rewritten once the analysis is over: the entries used or added by the analysis are written first,
+ * followed by the other ones, as long as the file stays under the configured maximum size. Entries not used for a
+ * while are therefore the first ones to be evicted.
+ * </p>
+ * <p>
+ * A mapped file cannot be replaced on every platform until the mapping is garbage collected: the cache is therefore
+ * written alternately to two files, the most recent one being read by the next analysis.
+ * </p>
+ * <p>
+ * The cache is thread-safe, so that it can be shared by the workers of the module engine.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public class PersistentBlameCache implements BatchExtension {
+
+  static final String FILE_NAME = "autoassign-blame.cache";
+
+  private static final Logger logger = LoggerFactory.getLogger(PersistentBlameCache.class);
+  private static final int MAGIC = 0x41415343;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final long BYTES_PER_MB = 1024L * 1024L;
+  private static final long MODIFICATION_TIME_PRECISION = 2000L;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  // The two files the cache is alternately written to
+  private final File[] files;
+  private final long maxSizeInBytes;
+  private boolean loaded;
+  private File loadedFile;
+  private ByteBuffer mappedEntries;
+  // Entries of the cache file, in file order
+  private final Map<String, StoredEntry> storedEntries = new LinkedHashMap<String, StoredEntry>();
+  private final Set<String> usedKeys = new HashSet<String>();
+  // Entries parsed during the analysis, encoded as they will be written
+  private final Map<String, byte[]> addedEntries = new LinkedHashMap<String, byte[]>();
+  private long addedBytes;
+  private int hits;
+  private int misses;
+
+  public PersistentBlameCache(Settings settings, ProjectReactor reactor) {
+    this(new File(reactor.getRoot().getWorkDir(), FILE_NAME),
+        settings.getInt(IssueAutoAssignPlugin.PROPERTY_BLAME_CACHE_MAX_SIZE) * BYTES_PER_MB);
+  }
+
+  PersistentBlameCache(File file, long maxSizeInBytes) {
+    this.files = new File[]{file, new File(file.getPath() + ".1")};
+    this.maxSizeInBytes = maxSizeInBytes;
+  }
+
+  public boolean isEnabled() {
+    return maxSizeInBytes > 0;
+  }
+
+  /**
+   * @return the authors by line of the given measure data, restored from the cache if the data of the component has
+   * not changed since it was cached, parsed otherwise
+   */
+  public AuthorsByLine parse(String componentKey, String measureData, AuthorDictionary dictionary) {
+    if (!isEnabled()) {
+      return ScmAuthorsByLineParser.parse(measureData, dictionary);
+    }
+
+    long dataHash = hash(measureData);
+    AuthorsByLine cached = restore(componentKey, dataHash, measureData.length(), dictionary);
+    if (cached != null) {
+      return cached;
+    }
+
+    AuthorsByLine authorsByLine = ScmAuthorsByLineParser.parse(measureData, dictionary);
+    if (authorsByLine instanceof RunLengthAuthorsByLine) {
+      add(componentKey, encode(componentKey, dataHash, measureData.length(),
+          (RunLengthAuthorsByLine) authorsByLine, dictionary));
+    }
+    return authorsByLine;
+  }
+
+  /**
+   * Writes the cache file, once the analysis is over
+   */
+  public synchronized void stop() {
+    if (!isEnabled() || !loaded) {
+      return;
+    }
+    logger.info("SCM blame cache: [{}] hits, [{}] misses", hits, misses);
+    File target = files[0].equals(loadedFile) ? files[1] : files[0];
+    try {
+      write(target);
+    } catch (IOException e) {
+      logger.warn("Unable to write the SCM blame cache [" + target + "]", e);
+    } finally {
+      mappedEntries = null;
+      storedEntries.clear();
+      usedKeys.clear();
+      addedEntries.clear();
+    }
+  }
+
+  synchronized int size() {
+    load();
+    int size = addedEntries.size();
+    for (String componentKey : storedEntries.keySet()) {
+      if (!addedEntries.containsKey(componentKey)) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @return the most recently written cache file, <code>null</code> if there is none
+   */
+  File currentFile() {
+    File current = null;
+    for (File candidate : files) {
+      if (candidate.isFile() && (current == null || candidate.lastModified() > current.lastModified())) {
+        current = candidate;
+      }
+    }
+    return current;
+  }
+
+  private synchronized AuthorsByLine restore(String componentKey, long dataHash, int dataLength,
+                                             AuthorDictionary dictionary) {
+    load();
+    StoredEntry entry = storedEntries.get(componentKey);
+    if (entry == null || entry.dataHash != dataHash || entry.dataLength != dataLength) {
+      misses++;
+      return null;
+    }
+    ByteBuffer buffer = mappedEntries.duplicate();
+    buffer.limit(entry.offset + entry.length);
+    buffer.position(entry.payloadOffset);
+    AuthorsByLine authorsByLine;
+    try {
+      authorsByLine = decode(buffer, dictionary);
+    } catch (BufferUnderflowException e) {
+      authorsByLine = null;
+    }
+    if (authorsByLine == null) {
+      logger.warn("The SCM blame cache entry of [{}] is corrupted, it is ignored", componentKey);
+      storedEntries.remove(componentKey);
+      misses++;
+      return null;
+    }
+    hits++;
+    usedKeys.add(componentKey);
+    return authorsByLine;
+  }
+
+  private synchronized void add(String componentKey, byte[] entry) {
+    if (addedBytes + entry.length > maxSizeInBytes - HEADER_SIZE) {
+      logger.debug("SCM blame cache is full: [{}] is not cached", componentKey);
+      return;
+    }
+    addedEntries.put(componentKey, entry);
+    addedBytes += entry.length;
+  }
+
+  private void load() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    File file = currentFile();
+    if (file == null) {
+      logger.debug("No SCM blame cache found in [{}]", files[0]);
+      return;
+    }
+    // Even a discarded file may stay mapped: the next one is written to the other file
+    loadedFile = file;
+    try {
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+      try {
+        FileChannel channel = randomAccessFile.getChannel();
+        // The mapping stays valid once the channel is closed
+        mappedEntries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      } finally {
+        randomAccessFile.close();
+      }
+      readIndex(file);
+      logger.debug("Loaded [{}] entries from the SCM blame cache [{}]", storedEntries.size(), file);
+    } catch (IOException e) {
+      logger.warn("Unable to read the SCM blame cache [" + file + "], it is ignored", e);
+      discardStoredEntries();
+    } catch (BufferUnderflowException e) {
+      logger.warn("The SCM blame cache [{}] is corrupted, it is ignored", file);
+      discardStoredEntries();
+    }
+  }
+
+  private void readIndex(File file) {
+    ByteBuffer buffer = mappedEntries.duplicate();
+    if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      logger.debug("Ignoring the SCM blame cache [{}] written by another version", file);
+      discardStoredEntries();
+      return;
+    }
+    while (buffer.hasRemaining()) {
+      int entryOffset = buffer.position();
+      String componentKey = readString(buffer);
+      long dataHash = buffer.getLong();
+      int dataLength = buffer.getInt();
+      int payloadLength = buffer.getInt();
+      int payloadOffset = buffer.position();
+      if (payloadLength < 0 || payloadLength > buffer.remaining()) {
+        throw new BufferUnderflowException();
+      }
+      buffer.position(payloadOffset + payloadLength);
+      storedEntries.put(componentKey,
+          new StoredEntry(entryOffset, buffer.position() - entryOffset, payloadOffset, dataHash, dataLength));
+    }
+  }
+
+  private void discardStoredEntries() {
+    mappedEntries = null;
+    storedEntries.clear();
+  }
+
+  private void write(File file) throws IOException {
+    File parent = file.getParentFile();
+    if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Unable to create the directory " + parent);
+    }
+    File tempFile = new File(file.getPath() + ".tmp");
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+    int written = 0;
+    int evicted = 0;
+    try {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      long size = HEADER_SIZE;
+      for (byte[] entry : addedEntries.values()) {
+        output.write(entry);
+        size += entry.length;
+        written++;
+      }
+      // Used entries first, so that the ones unused for the longest time are evicted first
+      for (boolean used : new boolean[]{true, false}) {
+        for (Map.Entry<String, StoredEntry> stored : storedEntries.entrySet()) {
+          String componentKey = stored.getKey();
+          StoredEntry entry = stored.getValue();
+          if (usedKeys.contains(componentKey) != used || addedEntries.containsKey(componentKey)) {
+            continue;
+          }
+          if (size + entry.length > maxSizeInBytes) {
+            evicted++;
+            continue;
+          }
+          byte[] bytes = new byte[entry.length];
+          ByteBuffer buffer = mappedEntries.duplicate();
+          buffer.position(entry.offset);
+          buffer.get(bytes);
+          output.write(bytes);
+          size += entry.length;
+          written++;
+        }
+      }
+    } finally {
+      output.close();
+    }
+
+    if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+      tempFile.delete();
+      throw new IOException("Unable to replace " + file);
+    }
+    logger.debug("Wrote [{}] entries to the SCM blame cache, [{}] evicted", written, evicted);
+    mappedEntries = null;
+    if (loadedFile != null && !loadedFile.delete()) {
+      // Still mapped: the file just written must look more recent, even with a coarse modification time
+      file.setLastModified(Math.max(file.lastModified(), loadedFile.lastModified() + MODIFICATION_TIME_PRECISION));
+      logger.debug("Unable to delete the former SCM blame cache [{}]", loadedFile);
+    }
+  }
+
+  /**
+   * Encodes an entry: component key, data hash and length, then the payload (its length, the distinct authors and
+   * the runs of the given authors by line, author ids being indexes in the distinct authors of the entry)
+   */
+  private static byte[] encode(String componentKey, long dataHash, int dataLength, RunLengthAuthorsByLine authorsByLine,
+                               AuthorDictionary dictionary) {
+    int runCount = authorsByLine.runCount();
+    Map<Integer, Integer> localIds = new LinkedHashMap<Integer, Integer>();
+    int[] localAuthorIds = new int[runCount];
+    for (int i = 0; i < runCount; i++) {
+      int authorId = authorsByLine.runAuthorId(i);
+      if (authorId == AuthorDictionary.NO_AUTHOR) {
+        localAuthorIds[i] = AuthorDictionary.NO_AUTHOR;
+      } else {
+        Integer localId = localIds.get(authorId);
+        if (localId == null) {
+          localId = localIds.size();
+          localIds.put(authorId, localId);
+        }
+        localAuthorIds[i] = localId;
+      }
+    }
+
+    byte[][] authors = new byte[localIds.size()][];
+    int payloadLength = 4 + 4 + 4 + runCount * 8;
+    int index = 0;
+    for (Integer authorId : localIds.keySet()) {
+      authors[index] = dictionary.author(authorId).getBytes(UTF_8);
+      payloadLength += 2 + authors[index].length;
+      index++;
+    }
+    byte[] key = componentKey.getBytes(UTF_8);
+    ByteBuffer entry = ByteBuffer.allocate(2 + key.length + 8 + 4 + 4 + payloadLength);
+    entry.putShort((short) key.length).put(key);
+    entry.putLong(dataHash).putInt(dataLength).putInt(payloadLength);
+    entry.putInt(authors.length);
+    for (byte[] author : authors) {
+      entry.putShort((short) author.length).put(author);
+    }
+    entry.putInt(runCount).putInt(authorsByLine.endLine());
+    for (int i = 0; i < runCount; i++) {
+      entry.putInt(authorsByLine.runStart(i)).putInt(localAuthorIds[i]);
+    }
+    return entry.array();
+  }
+
+  /**
+   * Decodes the payload of an entry, the given buffer being limited to the payload
+   *
+   * @return <code>null</code> if the payload is corrupted
+   */
+  private static AuthorsByLine decode(ByteBuffer buffer, AuthorDictionary dictionary) {
+    // Counts are checked against the remaining bytes, each author taking at least 2 bytes and each run 8 bytes
+    int authorCount = buffer.getInt();
+    if (authorCount < 0 || authorCount > buffer.remaining() / 2) {
+      return null;
+    }
+    int[] authorIds = new int[authorCount];
+    for (int i = 0; i < authorCount; i++) {
+      authorIds[i] = dictionary.idOf(readString(buffer));
+    }
+    int runCount = buffer.getInt();
+    int endLine = buffer.getInt();
+    if (runCount < 0 || runCount > buffer.remaining() / 8) {
+      return null;
+    }
+    int[] runStarts = new int[runCount];
+    int[] runAuthorIds = new int[runCount];
+    for (int i = 0; i < runCount; i++) {
+      runStarts[i] = buffer.getInt();
+      int localId = buffer.getInt();
+      if (localId == AuthorDictionary.NO_AUTHOR) {
+        runAuthorIds[i] = AuthorDictionary.NO_AUTHOR;
+      } else if (localId >= 0 && localId < authorCount) {
+        runAuthorIds[i] = authorIds[localId];
+      } else {
+        return null;
+      }
+    }
+    return new RunLengthAuthorsByLine(runStarts, runAuthorIds, endLine);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getShort() & 0xffff];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  /**
+   * 64-bit FNV-1a hash of the measure data
+   */
+  static long hash(String data) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < data.length(); i++) {
+      hash ^= data.charAt(i);
+      hash *= FNV_PRIME;
+    }
+    return hash;
+  }
+
+  private static final class StoredEntry {
+    private final int offset;
+    private final int length;
+    private final int payloadOffset;
+    private final long dataHash;
+    private final int dataLength;
+
+    StoredEntry(int offset, int length, int payloadOffset, long dataHash, int dataLength) {
+      this.offset = offset;
+      this.length = length;
+      this.payloadOffset = payloadOffset;
+      this.dataHash = dataHash;
+      this.dataLength = dataLength;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import java.util.Arrays;
+
+/**
+ * Compressed {@link AuthorsByLine} storing runs of consecutive lines having the same author
+ * <p>
+ * Blame information is highly clustered: each run is stored as its first line and its author id in two
+ * primitive arrays, and the author of a line is found by binary search among the runs.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public class RunLengthAuthorsByLine implements AuthorsByLine {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] runStarts = new int[INITIAL_CAPACITY];
+  private int[] runAuthorIds = new int[INITIAL_CAPACITY];
+  private int runCount;
+  // First line after the last run
+  private int endLine;
+
+  public RunLengthAuthorsByLine() {
+    // runs are appended while parsing
+  }
+
+  /**
+   * Restores runs previously read through {@link #runStart(int)}, {@link #runAuthorId(int)} and {@link #endLine()}
+   */
+  RunLengthAuthorsByLine(int[] runStarts, int[] runAuthorIds, int endLine) {
+    this.runStarts = runStarts;
+    this.runAuthorIds = runAuthorIds;
+    this.runCount = runStarts.length;
+    this.endLine = endLine;
+  }
+
+  @Override
+  public int authorIdAt(int line) {
+    if (runCount == 0 || line < runStarts[0] || line >= endLine) {
+      return AuthorDictionary.NO_AUTHOR;
+    }
+    int index = Arrays.binarySearch(runStarts, 0, runCount, line);
+    if (index < 0) {
+      // Not the first line of a run: take the run starting before it
+      index = -index - 2;
+    }
+    return runAuthorIds[index];
+  }
+
+  public int runCount() {
+    return runCount;
+  }
+
+  int runStart(int index) {
+    return runStarts[index];
+  }
+
+  int runAuthorId(int index) {
+    return runAuthorIds[index];
+  }
+
+  int endLine() {
+    return endLine;
+  }
+
+  /**
+   * @return an estimation of the number of bytes retained by the runs
+   */
+  public long sizeInBytes() {
+    return 2L * (runStarts.length * 4L + 16L);
+  }
+
+  /**
+   * Appends the author of a line located after all the lines already appended
+   *
+   * @return <code>false</code> if the line is not after the already appended ones (nothing is appended then)
+   */
+  boolean append(int line, int authorId) {
+    if (runCount > 0 && line < endLine) {
+      return false;
+    }
+    if (runCount > 0 && line == endLine && runAuthorIds[runCount - 1] == authorId) {
+      endLine++;
+      return true;
+    }
+    if (runCount > 0 && line > endLine && runAuthorIds[runCount - 1] != AuthorDictionary.NO_AUTHOR) {
+      // Lines without author in between
+      addRun(endLine, AuthorDictionary.NO_AUTHOR);
+    }
+    addRun(line, authorId);
+    endLine = line + 1;
+    return true;
+  }
+
+  /**
+   * Releases the unused capacity once all the lines have been appended
+   */
+  void trimToSize() {
+    runStarts = Arrays.copyOf(runStarts, runCount);
+    runAuthorIds = Arrays.copyOf(runAuthorIds, runCount);
+  }
+
+  private void addRun(int start, int authorId) {
+    if (runCount == runStarts.length) {
+      runStarts = Arrays.copyOf(runStarts, runCount * 2);
+      runAuthorIds = Arrays.copyOf(runAuthorIds, runCount * 2);
+    }
+    runStarts[runCount] = start;
+    runAuthorIds[runCount] = authorId;
+    runCount++;
+  }
+}
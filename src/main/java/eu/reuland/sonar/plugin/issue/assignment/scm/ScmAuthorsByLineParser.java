@@ -0,0 +1,167 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parser of the {@link org.sonar.api.measures.CoreMetrics#SCM_AUTHORS_BY_LINE} measure data
+ * (i.e. <code>1=loginA;2=loginB;3=loginC</code>)
+ * <p>
+ * The data is scanned once, by index, without any per line allocation: line numbers are decoded in place and
+ * authors are interned through an {@link AuthorDictionary}. Malformed entries (no <code>=</code> separator,
+ * invalid line number) and entries with an empty author are skipped.
+ * </p>
+ * <p>
+ * As each entry takes at least 3 characters, a line number greater than the length of the data cannot be the line of
+ * a well formed measure: such entries are skipped as malformed when the data is parsed into a
+ * {@link DenseAuthorsByLine}, so that a single corrupted entry cannot allocate an array of a billion lines.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public final class ScmAuthorsByLineParser {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScmAuthorsByLineParser.class);
+  private static final char ENTRY_SEPARATOR = ';';
+  private static final char VALUE_SEPARATOR = '=';
+  // Avoids any int overflow while decoding line numbers
+  private static final int MAX_LINE_DIGITS = 9;
+
+  private ScmAuthorsByLineParser() {
+    // only static methods
+  }
+
+  /**
+   * Parses all the lines of the measure data
+   * <p>
+   * Lines are usually listed in ascending order: the result is then built directly as a
+   * {@link RunLengthAuthorsByLine}. Otherwise, the data is parsed again into a {@link DenseAuthorsByLine}.
+   * </p>
+   */
+  public static AuthorsByLine parse(String data, AuthorDictionary dictionary) {
+    RunLengthAuthorsByLine authorsByLine = new RunLengthAuthorsByLine();
+    int malformedEntries = 0;
+
+    int length = data.length();
+    int entryStart = 0;
+    while (entryStart < length) {
+      int entryEnd = entryEnd(data, entryStart);
+      int separatorIndex = separatorIndex(data, entryStart, entryEnd);
+      if (separatorIndex < 0) {
+        malformedEntries++;
+      } else if (separatorIndex + 1 < entryEnd) {
+        int line = parseLine(data, entryStart, separatorIndex);
+        if (!authorsByLine.append(line, dictionary.idOf(data, separatorIndex + 1, entryEnd))) {
+          logger.debug("Lines of SCM authors by line measure are not sorted");
+          return parseDense(data, dictionary);
+        }
+      }
+      entryStart = entryEnd + 1;
+    }
+
+    logMalformedEntries(malformedEntries);
+    authorsByLine.trimToSize();
+    return authorsByLine;
+  }
+
+  static AuthorsByLine parseDense(String data, AuthorDictionary dictionary) {
+    DenseAuthorsByLine authorsByLine = new DenseAuthorsByLine();
+    int malformedEntries = 0;
+
+    int length = data.length();
+    int entryStart = 0;
+    while (entryStart < length) {
+      int entryEnd = entryEnd(data, entryStart);
+      int separatorIndex = separatorIndex(data, entryStart, entryEnd);
+      if (separatorIndex < 0) {
+        malformedEntries++;
+      } else if (separatorIndex + 1 < entryEnd) {
+        int line = parseLine(data, entryStart, separatorIndex);
+        if (line > length) {
+          // Far beyond the number of entries: the array would be sized by this line alone
+          malformedEntries++;
+        } else {
+          authorsByLine.put(line, dictionary.idOf(data, separatorIndex + 1, entryEnd));
+        }
+      }
+      entryStart = entryEnd + 1;
+    }
+
+    logMalformedEntries(malformedEntries);
+    return authorsByLine;
+  }
+
+  /**
+   * Looks up the authors of the given lines only
+   * <p>
+   * The scan stops as soon as all the lines are resolved. Entries of other lines are skipped without
+   * decoding their author.
+   * </p>
+   *
+   * @param lines sorted and distinct line numbers
+   */
+  public static AuthorsByLine lookup(String data, int[] lines, AuthorDictionary dictionary) {
+    SparseAuthorsByLine authorsByLine = new SparseAuthorsByLine(lines);
+    int unresolvedLines = lines.length;
+
+    int length = data.length();
+    int entryStart = 0;
+    while (unresolvedLines > 0 && entryStart < length) {
+      int entryEnd = entryEnd(data, entryStart);
+      int separatorIndex = separatorIndex(data, entryStart, entryEnd);
+      if (separatorIndex >= 0 && separatorIndex + 1 < entryEnd) {
+        int index = authorsByLine.indexOf(parseLine(data, entryStart, separatorIndex));
+        if (index >= 0 && !authorsByLine.isResolved(index)) {
+          authorsByLine.resolve(index, dictionary.idOf(data, separatorIndex + 1, entryEnd));
+          unresolvedLines--;
+        }
+      }
+      entryStart = entryEnd + 1;
+    }
+
+    return authorsByLine;
+  }
+
+  /**
+   * @return the index of the separator ending the entry starting at <code>entryStart</code>
+   */
+  static int entryEnd(String data, int entryStart) {
+    int entryEnd = data.indexOf(ENTRY_SEPARATOR, entryStart);
+    return entryEnd < 0 ? data.length() : entryEnd;
+  }
+
+  /**
+   * @return the index of the separator between the line number and the author of the given entry,
+   * or -1 if the entry doesn't start with a valid line number followed by the separator
+   */
+  static int separatorIndex(String data, int entryStart, int entryEnd) {
+    int index = entryStart;
+    while (index < entryEnd && isDigit(data.charAt(index))) {
+      index++;
+    }
+    boolean validLine = index > entryStart && index - entryStart <= MAX_LINE_DIGITS;
+    return validLine && index < entryEnd && data.charAt(index) == VALUE_SEPARATOR ? index : -1;
+  }
+
+  /**
+   * @return the line number made of the digits found between <code>start</code> (inclusive)
+   * and <code>end</code> (exclusive)
+   */
+  static int parseLine(String data, int start, int end) {
+    int line = 0;
+    for (int i = start; i < end; i++) {
+      line = line * 10 + (data.charAt(i) - '0');
+    }
+    return line;
+  }
+
+  private static void logMalformedEntries(int malformedEntries) {
+    if (malformedEntries > 0) {
+      logger.debug("[{}] malformed entries have been ignored in SCM authors by line measure", malformedEntries);
+    }
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+}
@@ -0,0 +1,69 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import java.util.Arrays;
+
+/**
+ * SCM blame information of a resource stored by column: the lines, then for each line the id of its author and,
+ * when loaded, the id of its revision and the time of its last commit
+ * <p>
+ * Columns are primitive arrays sharing the same index: the information of a line is found by a single binary search
+ * among the lines. Columns that have not been loaded are <code>null</code>.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public class ScmBlame implements AuthorsByLine {
+
+  public static final long NO_COMMIT_TIME = Long.MIN_VALUE;
+
+  private final int[] lines;
+  private final int[] authorIds;
+  private final int[] revisionIds;
+  private final long[] commitTimes;
+  // Revisions are interned like the authors, in a dictionary local to the resource
+  private final AuthorDictionary revisions;
+
+  ScmBlame(int[] lines, int[] authorIds, int[] revisionIds, long[] commitTimes, AuthorDictionary revisions) {
+    this.lines = lines;
+    this.authorIds = authorIds;
+    this.revisionIds = revisionIds;
+    this.commitTimes = commitTimes;
+    this.revisions = revisions;
+  }
+
+  public boolean hasColumn(ScmColumn column) {
+    switch (column) {
+      case REVISION:
+        return revisionIds != null;
+      default:
+        return commitTimes != null;
+    }
+  }
+
+  public int lineCount() {
+    return lines.length;
+  }
+
+  @Override
+  public int authorIdAt(int line) {
+    int index = Arrays.binarySearch(lines, line);
+    return index < 0 ? AuthorDictionary.NO_AUTHOR : authorIds[index];
+  }
+
+  /**
+   * @return the revision of the given line, or <code>null</code> if unknown or not loaded
+   */
+  public String revisionAt(int line) {
+    int index = Arrays.binarySearch(lines, line);
+    return index < 0 || revisionIds == null ? null : revisions.author(revisionIds[index]);
+  }
+
+  /**
+   * @return the time (in milliseconds) of the last commit of the given line, or {@link #NO_COMMIT_TIME}
+   * if unknown or not loaded
+   */
+  public long commitTimeAt(int line) {
+    int index = Arrays.binarySearch(lines, line);
+    return index < 0 || commitTimes == null ? NO_COMMIT_TIME : commitTimes[index];
+  }
+}
@@ -0,0 +1,211 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Parser of the SCM measures of a resource into a {@link ScmBlame}
+ * <p>
+ * The {@link org.sonar.api.measures.CoreMetrics#SCM_AUTHORS_BY_LINE} data drives a single pass: the revisions and
+ * commit times data (same <code>line=value</code> format, lines in ascending order) are scanned along with it, each
+ * with its own cursor, and values are decoded in place into primitive columns. Only the requested columns are scanned.
+ * </p>
+ * <p>
+ * Commit times are expected in the format written by Sonar (<code>yyyy-MM-dd'T'HH:mm:ssZ</code>) and are decoded
+ * without any date formatter.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public final class ScmBlameParser {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScmBlameParser.class);
+  private static final int INITIAL_CAPACITY = 64;
+  private static final long MILLIS_PER_SECOND = 1000L;
+  private static final long SECONDS_PER_DAY = 86400L;
+
+  private ScmBlameParser() {
+    // only static methods
+  }
+
+  /**
+   * @param revisionsData   the data of the revisions by line measure, if any
+   * @param commitTimesData the data of the last commit date times by line measure, if any
+   * @param columns         the columns to load
+   * @return the SCM blame of the resource, or <code>null</code> if the lines of the authors data are not sorted
+   */
+  public static ScmBlame parse(String authorsData, String revisionsData, String commitTimesData, Set<ScmColumn> columns,
+                               AuthorDictionary dictionary) {
+    ColumnCursor revisionCursor = columns.contains(ScmColumn.REVISION) && revisionsData != null ?
+        new ColumnCursor(revisionsData) : null;
+    ColumnCursor commitTimeCursor = columns.contains(ScmColumn.COMMIT_TIME) && commitTimesData != null ?
+        new ColumnCursor(commitTimesData) : null;
+
+    int[] lines = new int[INITIAL_CAPACITY];
+    int[] authorIds = new int[INITIAL_CAPACITY];
+    int[] revisionIds = revisionCursor == null ? null : new int[INITIAL_CAPACITY];
+    long[] commitTimes = commitTimeCursor == null ? null : new long[INITIAL_CAPACITY];
+    AuthorDictionary revisions = revisionCursor == null ? null : new AuthorDictionary();
+    int count = 0;
+
+    ColumnCursor authorCursor = new ColumnCursor(authorsData);
+    while (authorCursor.next()) {
+      int line = authorCursor.line;
+      if (count > 0 && line <= lines[count - 1]) {
+        logger.debug("Lines of SCM authors by line measure are not sorted");
+        return null;
+      }
+      if (count == lines.length) {
+        int capacity = count * 2;
+        lines = Arrays.copyOf(lines, capacity);
+        authorIds = Arrays.copyOf(authorIds, capacity);
+        revisionIds = revisionIds == null ? null : Arrays.copyOf(revisionIds, capacity);
+        commitTimes = commitTimes == null ? null : Arrays.copyOf(commitTimes, capacity);
+      }
+
+      lines[count] = line;
+      authorIds[count] = authorCursor.hasValue() ?
+          dictionary.idOf(authorsData, authorCursor.valueStart, authorCursor.valueEnd) : AuthorDictionary.NO_AUTHOR;
+      if (revisionCursor != null) {
+        revisionIds[count] = revisionCursor.seek(line) && revisionCursor.hasValue() ?
+            revisions.idOf(revisionsData, revisionCursor.valueStart, revisionCursor.valueEnd) : AuthorDictionary.NO_AUTHOR;
+      }
+      if (commitTimeCursor != null) {
+        commitTimes[count] = commitTimeCursor.seek(line) ?
+            parseCommitTime(commitTimesData, commitTimeCursor.valueStart, commitTimeCursor.valueEnd) :
+            ScmBlame.NO_COMMIT_TIME;
+      }
+      count++;
+    }
+
+    return new ScmBlame(Arrays.copyOf(lines, count), Arrays.copyOf(authorIds, count),
+        revisionIds == null ? null : Arrays.copyOf(revisionIds, count),
+        commitTimes == null ? null : Arrays.copyOf(commitTimes, count), revisions);
+  }
+
+  /**
+   * Decodes a date time formatted as <code>yyyy-MM-dd'T'HH:mm:ss</code> followed by an optional
+   * <code>Z</code>, <code>+hhmm</code> or <code>+hh:mm</code> offset (UTC if none)
+   *
+   * @return the time in milliseconds, or {@link ScmBlame#NO_COMMIT_TIME} if the value is malformed
+   */
+  static long parseCommitTime(String data, int start, int end) {
+    if (end - start < 19 || data.charAt(start + 4) != '-' || data.charAt(start + 7) != '-' ||
+        data.charAt(start + 10) != 'T' || data.charAt(start + 13) != ':' || data.charAt(start + 16) != ':') {
+      return ScmBlame.NO_COMMIT_TIME;
+    }
+    int year = digits(data, start, 4);
+    int month = digits(data, start + 5, 2);
+    int day = digits(data, start + 8, 2);
+    int hour = digits(data, start + 11, 2);
+    int minute = digits(data, start + 14, 2);
+    int second = digits(data, start + 17, 2);
+    int offsetInSeconds = offsetInSeconds(data, start + 19, end);
+    if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23 ||
+        minute < 0 || minute > 59 || second < 0 || second > 60 || offsetInSeconds == Integer.MIN_VALUE) {
+      return ScmBlame.NO_COMMIT_TIME;
+    }
+    long seconds = daysFromCivil(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+    return (seconds - offsetInSeconds) * MILLIS_PER_SECOND;
+  }
+
+  /**
+   * @return the offset in seconds, or {@link Integer#MIN_VALUE} if malformed
+   */
+  private static int offsetInSeconds(String data, int start, int end) {
+    int length = end - start;
+    if (length == 0 || (length == 1 && data.charAt(start) == 'Z')) {
+      return 0;
+    }
+    char sign = data.charAt(start);
+    if ((sign != '+' && sign != '-') || (length != 5 && length != 6)) {
+      return Integer.MIN_VALUE;
+    }
+    int hours = digits(data, start + 1, 2);
+    int minutes = digits(data, end - 2, 2);
+    if (hours < 0 || minutes < 0 || (length == 6 && data.charAt(start + 3) != ':')) {
+      return Integer.MIN_VALUE;
+    }
+    int offset = hours * 3600 + minutes * 60;
+    return sign == '+' ? offset : -offset;
+  }
+
+  /**
+   * @return the number made of the given count of digits, or -1 if one of them is not a digit
+   */
+  private static int digits(String data, int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      char c = data.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  /**
+   * @return the number of days since 1970-01-01 of the given date of the proleptic Gregorian calendar
+   */
+  private static long daysFromCivil(int year, int month, int day) {
+    int y = month <= 2 ? year - 1 : year;
+    int era = (y >= 0 ? y : y - 399) / 400;
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097L + dayOfEra - 719468L;
+  }
+
+  /**
+   * Moves forward through the <code>line=value</code> entries of a measure data, skipping the malformed ones
+   */
+  private static final class ColumnCursor {
+    private final String data;
+    private int nextEntryStart;
+    private int line = -1;
+    private int valueStart;
+    private int valueEnd;
+
+    ColumnCursor(String data) {
+      this.data = data;
+    }
+
+    boolean next() {
+      int length = data.length();
+      while (nextEntryStart < length) {
+        int entryStart = nextEntryStart;
+        int entryEnd = ScmAuthorsByLineParser.entryEnd(data, entryStart);
+        nextEntryStart = entryEnd + 1;
+        int separatorIndex = ScmAuthorsByLineParser.separatorIndex(data, entryStart, entryEnd);
+        if (separatorIndex >= 0) {
+          line = ScmAuthorsByLineParser.parseLine(data, entryStart, separatorIndex);
+          valueStart = separatorIndex + 1;
+          valueEnd = entryEnd;
+          return true;
+        }
+      }
+      line = Integer.MAX_VALUE;
+      return false;
+    }
+
+    /**
+     * Moves to the entry of the given line, if any
+     *
+     * @return <code>true</code> if the cursor is on the entry of the given line
+     */
+    boolean seek(int targetLine) {
+      while (line < targetLine && next()) {
+        // skip the entries of the lines before
+      }
+      return line == targetLine;
+    }
+
+    boolean hasValue() {
+      return valueEnd > valueStart;
+    }
+  }
+}
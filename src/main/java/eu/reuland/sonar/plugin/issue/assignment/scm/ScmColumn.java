@@ -0,0 +1,19 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+/**
+ * Per line SCM information that can be loaded into a {@link ScmBlame}, in addition to the authors
+ *
+ * @author Vincent Reuland
+ */
+public enum ScmColumn {
+
+  /**
+   * From the {@link org.sonar.api.measures.CoreMetrics#SCM_REVISIONS_BY_LINE} measure
+   */
+  REVISION,
+
+  /**
+   * From the {@link org.sonar.api.measures.CoreMetrics#SCM_LAST_COMMIT_DATETIMES_BY_LINE} measure
+   */
+  COMMIT_TIME
+}
@@ -0,0 +1,44 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import java.util.Arrays;
+
+/**
+ * {@link AuthorsByLine} restricted to a known, sorted, set of lines
+ *
+ * @author Vincent Reuland
+ */
+public class SparseAuthorsByLine implements AuthorsByLine {
+
+  private final int[] lines;
+  private final int[] authorIds;
+
+  /**
+   * @param lines sorted and distinct line numbers
+   */
+  SparseAuthorsByLine(int[] lines) {
+    this.lines = lines;
+    this.authorIds = new int[lines.length];
+    Arrays.fill(authorIds, AuthorDictionary.NO_AUTHOR);
+  }
+
+  @Override
+  public int authorIdAt(int line) {
+    int index = indexOf(line);
+    return index < 0 ? AuthorDictionary.NO_AUTHOR : authorIds[index];
+  }
+
+  /**
+   * @return the index of the given line, or a negative value if the line is not part of this set
+   */
+  int indexOf(int line) {
+    return Arrays.binarySearch(lines, line);
+  }
+
+  boolean isResolved(int index) {
+    return authorIds[index] != AuthorDictionary.NO_AUTHOR;
+  }
+
+  void resolve(int index, int authorId) {
+    authorIds[index] = authorId;
+  }
+}
@@ -9,6 +9,6 @@ import org.junit.Test;
 public class IssueAutoAssignPluginTest {
   @Test
   public void getExtensions() throws Exception {
-    Assertions.assertThat(new IssueAutoAssignPlugin().getExtensions()).hasSize(9);
+    Assertions.assertThat(new IssueAutoAssignPlugin().getExtensions()).hasSize(35);
   }
 }
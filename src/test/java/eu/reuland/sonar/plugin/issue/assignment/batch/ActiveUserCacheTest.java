@@ -0,0 +1,147 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.api.user.User;
+import org.sonar.api.user.UserQuery;
+import org.sonar.core.user.UserDao;
+import org.sonar.core.user.UserDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Vincent Reuland
+ */
+public class ActiveUserCacheTest {
+
+  private UserDao userDao = mock(UserDao.class);
+  private AuthorDictionary authorDictionary = new AuthorDictionary();
+  private Settings settings = new Settings();
+  private ActiveUserCache cache = new ActiveUserCache(userDao, authorDictionary, new LoginAliasResolver(settings),
+      AssignmentMetrics.DISABLED);
+
+  @Test
+  public void shouldQueryKnownUserOnlyOnce() {
+    when(userDao.selectActiveUserByLogin("loginA")).thenReturn(new UserDto().setLogin("loginA").setName("userA"));
+
+    User first = cache.getActiveUser("loginA");
+    User second = cache.getActiveUser("loginA");
+
+    assertThat(first.name()).isEqualTo("userA");
+    assertThat(second).isSameAs(first);
+    verify(userDao, times(1)).selectActiveUserByLogin("loginA");
+  }
+
+  @Test
+  public void shouldMeasureHitsMissesAndDatabaseCalls() {
+    AssignmentMetrics metrics = new AssignmentMetrics(null, true);
+    cache = new ActiveUserCache(userDao, authorDictionary, new LoginAliasResolver(settings), metrics);
+    int authorId = authorDictionary.idOf("loginA");
+
+    cache.getActiveUser(authorId);
+    cache.getActiveUser(authorId);
+    cache.getActiveUser("loginA");
+
+    assertThat(metrics.count(AssignmentMetrics.Counter.USER_CACHE_MISS)).isEqualTo(1L);
+    assertThat(metrics.count(AssignmentMetrics.Counter.USER_CACHE_HIT)).isEqualTo(2L);
+    assertThat(metrics.count(AssignmentMetrics.Timer.USER_DB_CALL)).isEqualTo(1L);
+  }
+
+  @Test
+  public void shouldRememberUnknownUser() {
+    assertThat(cache.getActiveUser("unknown")).isNull();
+    assertThat(cache.getActiveUser("unknown")).isNull();
+
+    verify(userDao, times(1)).selectActiveUserByLogin("unknown");
+  }
+
+  @Test
+  public void shouldCacheEachLoginSeparately() {
+    when(userDao.selectActiveUserByLogin("loginA")).thenReturn(new UserDto().setLogin("loginA").setName("userA"));
+    when(userDao.selectActiveUserByLogin("loginB")).thenReturn(new UserDto().setLogin("loginB").setName("userB"));
+
+    assertThat(cache.getActiveUser("loginA").name()).isEqualTo("userA");
+    assertThat(cache.getActiveUser("loginB").name()).isEqualTo("userB");
+    assertThat(cache.getActiveUser("loginA").name()).isEqualTo("userA");
+
+    verify(userDao, times(1)).selectActiveUserByLogin("loginA");
+    verify(userDao, times(1)).selectActiveUserByLogin("loginB");
+  }
+
+  @Test
+  public void shouldPreloadLoginsWithBatchedQueries() {
+    List<String> logins = new ArrayList<String>();
+    for (int i = 0; i < 2 * ActiveUserCache.PRELOAD_BATCH_SIZE + 1; i++) {
+      logins.add("login" + i);
+    }
+    when(userDao.selectUsers(any(UserQuery.class))).thenReturn(
+        Arrays.asList(new UserDto().setLogin("login0").setName("user0")),
+        Collections.<UserDto>emptyList());
+
+    cache.preload(logins);
+
+    verify(userDao, times(3)).selectUsers(any(UserQuery.class));
+    assertThat(cache.getActiveUser("login0").name()).isEqualTo("user0");
+    assertThat(cache.getActiveUser("login1")).isNull();
+    verify(userDao, never()).selectActiveUserByLogin(anyString());
+  }
+
+  @Test
+  public void shouldNotPreloadCachedLogins() {
+    when(userDao.selectActiveUserByLogin("loginA")).thenReturn(new UserDto().setLogin("loginA").setName("userA"));
+    cache.getActiveUser("loginA");
+
+    cache.preload(Arrays.asList("loginA"));
+
+    verify(userDao, never()).selectUsers(any(UserQuery.class));
+  }
+
+  @Test
+  public void shouldResolveAuthorsById() {
+    when(userDao.selectActiveUserByLogin("loginA")).thenReturn(new UserDto().setLogin("loginA").setName("userA"));
+    int loginAId = authorDictionary.idOf("loginA");
+    int unknownId = authorDictionary.idOf("unknown");
+
+    assertThat(cache.getActiveUser(loginAId).name()).isEqualTo("userA");
+    assertThat(cache.getActiveUser(loginAId).name()).isEqualTo("userA");
+    assertThat(cache.getActiveUser("loginA").name()).isEqualTo("userA");
+    assertThat(cache.getActiveUser(unknownId)).isNull();
+    assertThat(cache.getActiveUser(unknownId)).isNull();
+
+    verify(userDao, times(1)).selectActiveUserByLogin("loginA");
+    verify(userDao, times(1)).selectActiveUserByLogin("unknown");
+  }
+
+  @Test
+  public void shouldResolveManyAuthorsById() {
+    for (int i = 0; i < 200; i++) {
+      assertThat(cache.getActiveUser(authorDictionary.idOf("login" + i))).isNull();
+    }
+    verify(userDao, times(200)).selectActiveUserByLogin(anyString());
+  }
+
+  @Test
+  public void shouldResolveAliasesOncePerAuthor() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_LOGIN_ALIASES, "domain:example.com");
+    cache = new ActiveUserCache(userDao, authorDictionary, new LoginAliasResolver(settings),
+        AssignmentMetrics.DISABLED);
+    when(userDao.selectActiveUserByLogin("jdoe")).thenReturn(new UserDto().setLogin("jdoe").setName("John Doe"));
+    int emailId = authorDictionary.idOf("jdoe@example.com");
+    int nameAndEmailId = authorDictionary.idOf("John Doe <jdoe@example.com>");
+
+    assertThat(cache.loginOf(emailId)).isEqualTo("jdoe");
+    assertThat(cache.getActiveUser(emailId).name()).isEqualTo("John Doe");
+    assertThat(cache.getActiveUser(nameAndEmailId).name()).isEqualTo("John Doe");
+
+    verify(userDao, times(1)).selectActiveUserByLogin("jdoe");
+    verify(userDao, never()).selectActiveUserByLogin("jdoe@example.com");
+  }
+}
@@ -0,0 +1,89 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static eu.reuland.sonar.plugin.issue.assignment.batch.AssignmentMetrics.Counter.USER_CACHE_HIT;
+import static eu.reuland.sonar.plugin.issue.assignment.batch.AssignmentMetrics.Counter.USER_CACHE_MISS;
+import static eu.reuland.sonar.plugin.issue.assignment.batch.AssignmentMetrics.Timer.BLAME_PARSE;
+import static eu.reuland.sonar.plugin.issue.assignment.batch.AssignmentMetrics.Timer.USER_DB_CALL;
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class AssignmentMetricsTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File metricsFile() {
+    return new File(temp.getRoot(), AssignmentMetrics.FILE_NAME);
+  }
+
+  @Test
+  public void shouldMeasureNothingWhenDisabled() {
+    AssignmentMetrics metrics = new AssignmentMetrics(metricsFile(), false);
+
+    metrics.record(BLAME_PARSE, metrics.start());
+    metrics.increment(USER_CACHE_HIT);
+    metrics.stop();
+
+    assertThat(metrics.start()).isEqualTo(0L);
+    assertThat(metrics.count(BLAME_PARSE)).isEqualTo(0L);
+    assertThat(metrics.count(USER_CACHE_HIT)).isEqualTo(0L);
+    assertThat(metricsFile()).doesNotExist();
+  }
+
+  @Test
+  public void shouldCountAndTimeOperations() {
+    AssignmentMetrics metrics = new AssignmentMetrics(metricsFile(), true);
+
+    metrics.record(BLAME_PARSE, metrics.start());
+    metrics.record(BLAME_PARSE, metrics.start() - 1000L);
+    metrics.increment(USER_CACHE_MISS);
+    metrics.increment(USER_CACHE_HIT);
+    metrics.increment(USER_CACHE_HIT);
+
+    assertThat(metrics.count(BLAME_PARSE)).isEqualTo(2L);
+    assertThat(metrics.nanos(BLAME_PARSE)).isGreaterThanOrEqualTo(1000L);
+    assertThat(metrics.count(USER_DB_CALL)).isEqualTo(0L);
+    assertThat(metrics.count(USER_CACHE_HIT)).isEqualTo(2L);
+    assertThat(metrics.count(USER_CACHE_MISS)).isEqualTo(1L);
+    assertThat(metrics.summary()).contains("blame_parse=2/").contains("user_cache_hits=2")
+        .contains("user_cache_misses=1");
+  }
+
+  @Test
+  public void shouldWriteJsonFileOnStop() throws IOException {
+    AssignmentMetrics metrics = new AssignmentMetrics(metricsFile(), true);
+    metrics.record(USER_DB_CALL, metrics.start());
+    metrics.increment(USER_CACHE_MISS);
+
+    metrics.stop();
+
+    String json = Files.toString(metricsFile(), Charsets.UTF_8);
+    assertThat(json).startsWith("{").contains("\"user_db_call\": {\"count\": 1, \"nanos\": ")
+        .contains("\"blame_fetch\": {\"count\": 0, \"nanos\": 0}").contains("\"user_cache_misses\": 1");
+  }
+
+  @Test
+  public void shouldWriteStrategyTimersInJsonFile() throws IOException {
+    AssignmentMetrics metrics = new AssignmentMetrics(metricsFile(), true);
+    metrics.record(metrics.strategyTimer("routing"), metrics.start(), false);
+    metrics.record(metrics.strategyTimer("blame"), metrics.start(), true);
+
+    metrics.stop();
+
+    String json = Files.toString(metricsFile(), Charsets.UTF_8);
+    assertThat(json).contains("\"routing\": {\"evaluations\": 1, \"decisions\": 0, \"nanos\": ")
+        .contains("\"blame\": {\"evaluations\": 1, \"decisions\": 1, \"nanos\": ");
+    assertThat(metrics.strategyTimer("blame")).isSameAs(metrics.strategyTimer("blame"));
+  }
+}
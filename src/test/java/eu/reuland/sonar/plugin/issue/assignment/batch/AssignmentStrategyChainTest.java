@@ -0,0 +1,112 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import org.junit.Test;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Vincent Reuland
+ */
+public class AssignmentStrategyChainTest {
+
+  private final Issue issue = new DefaultIssue().setKey("issueKey");
+  private final IssueBlame blame = new IssueBlame(new AuthorDictionary());
+
+  private static AssignmentStrategy strategy(String key, Assignee decision, AssignmentInput... inputs) {
+    AssignmentStrategy strategy = mock(AssignmentStrategy.class);
+    Set<AssignmentInput> strategyInputs = inputs.length == 0 ?
+        Collections.<AssignmentInput>emptySet() : EnumSet.of(inputs[0], inputs);
+    when(strategy.key()).thenReturn(key);
+    when(strategy.inputs()).thenReturn(strategyInputs);
+    when(strategy.decide(any(Issue.class), any(IssueBlame.class))).thenReturn(decision);
+    return strategy;
+  }
+
+  @Test
+  public void shouldOrderStrategiesByKeysAndIgnoreUnknownOnes() {
+    AssignmentStrategy first = strategy("first", null);
+    AssignmentStrategy second = strategy("second", Assignee.login("second"));
+    AssignmentStrategy unused = strategy("unused", Assignee.login("unused"));
+
+    AssignmentStrategyChain chain = new AssignmentStrategyChain(new String[] {"first", "unknown", " second"},
+        new AssignmentStrategy[] {unused, second, first}, AssignmentMetrics.DISABLED);
+
+    assertThat(chain.decideWithoutBlame(issue).login()).isEqualTo("second");
+    verify(first).decide(issue, null);
+    verify(unused, never()).decide(any(Issue.class), any(IssueBlame.class));
+  }
+
+  @Test
+  public void shouldStopAtFirstDecision() {
+    AssignmentStrategy routing = strategy("routing", Assignee.NOBODY);
+    AssignmentStrategy fallback = strategy("default", Assignee.login("default"));
+
+    AssignmentStrategyChain chain = new AssignmentStrategyChain(new String[] {"routing", "default"},
+        new AssignmentStrategy[] {routing, fallback}, AssignmentMetrics.DISABLED);
+
+    assertThat(chain.decideWithoutBlame(issue).isNobody()).isTrue();
+    verify(fallback, never()).decide(any(Issue.class), any(IssueBlame.class));
+  }
+
+  @Test
+  public void shouldEvaluateStrategiesFromFirstOneWithInputsOnceBlameIsLoaded() {
+    AssignmentStrategy routing = strategy("routing", null);
+    AssignmentStrategy blameStrategy = strategy("blame", null, AssignmentInput.AUTHORS);
+    AssignmentStrategy revisions = strategy("revisions", null, AssignmentInput.REVISIONS);
+    AssignmentStrategy fallback = strategy("default", Assignee.login("default"));
+
+    AssignmentStrategyChain chain = new AssignmentStrategyChain(new String[] {"routing", "blame", "default", "revisions"},
+        new AssignmentStrategy[] {routing, blameStrategy, revisions, fallback}, AssignmentMetrics.DISABLED);
+
+    assertThat(chain.needs(AssignmentInput.AUTHORS)).isTrue();
+    assertThat(chain.needs(AssignmentInput.REVISIONS)).isTrue();
+    assertThat(chain.needs(AssignmentInput.COMMIT_TIMES)).isFalse();
+    assertThat(chain.decideWithoutBlame(issue)).isNull();
+    verify(fallback, never()).decide(any(Issue.class), any(IssueBlame.class));
+
+    assertThat(chain.decideWithBlame(issue, blame).login()).isEqualTo("default");
+    verify(routing, times(1)).decide(any(Issue.class), any(IssueBlame.class));
+    verify(blameStrategy).decide(issue, blame);
+    verify(revisions, never()).decide(any(Issue.class), any(IssueBlame.class));
+  }
+
+  @Test
+  public void shouldLeaveIssueUnassignedWhenNoStrategyDecides() {
+    AssignmentStrategy routing = strategy("routing", null);
+    AssignmentStrategy blameStrategy = strategy("blame", null, AssignmentInput.AUTHORS);
+
+    assertThat(new AssignmentStrategyChain(new String[] {"routing"}, new AssignmentStrategy[] {routing, blameStrategy},
+        AssignmentMetrics.DISABLED).decideWithoutBlame(issue).isNobody()).isTrue();
+    assertThat(new AssignmentStrategyChain(new String[] {"routing", "blame"},
+        new AssignmentStrategy[] {routing, blameStrategy}, AssignmentMetrics.DISABLED)
+        .decideWithBlame(issue, blame).isNobody()).isTrue();
+    assertThat(new AssignmentStrategyChain(new String[0], new AssignmentStrategy[] {routing, blameStrategy},
+        AssignmentMetrics.DISABLED).decideWithoutBlame(issue).isNobody()).isTrue();
+  }
+
+  @Test
+  public void shouldMeasureEvaluationsAndDecisionsOfEachStrategy() {
+    AssignmentMetrics metrics = new AssignmentMetrics(null, true);
+    AssignmentStrategy routing = strategy("routing", null);
+    AssignmentStrategy fallback = strategy("default", Assignee.login("default"));
+    AssignmentStrategyChain chain = new AssignmentStrategyChain(new String[] {"routing", "default"},
+        new AssignmentStrategy[] {routing, fallback}, metrics);
+
+    chain.decideWithoutBlame(issue);
+    chain.decideWithoutBlame(issue);
+
+    assertThat(metrics.strategyTimer("routing").evaluations()).isEqualTo(2L);
+    assertThat(metrics.strategyTimer("routing").decisions()).isEqualTo(0L);
+    assertThat(metrics.strategyTimer("default").evaluations()).isEqualTo(2L);
+    assertThat(metrics.strategyTimer("default").decisions()).isEqualTo(2L);
+    assertThat(metrics.summary()).contains("strategy.routing=0/2/").contains("strategy.default=2/2/");
+  }
+}
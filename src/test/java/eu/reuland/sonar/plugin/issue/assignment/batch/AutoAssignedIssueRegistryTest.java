@@ -0,0 +1,36 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import org.junit.Test;
+import org.sonar.api.issue.internal.DefaultIssue;
+
+import java.util.ArrayList;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class AutoAssignedIssueRegistryTest {
+
+  private AutoAssignedIssueRegistry registry = new AutoAssignedIssueRegistry();
+
+  @Test
+  public void shouldGroupIssueKeysByComponent() {
+    registry.register(new DefaultIssue().setKey("A").setComponentKey("componentB"));
+    registry.register(new DefaultIssue().setKey("B").setComponentKey("componentA"));
+    registry.register(new DefaultIssue().setKey("C").setComponentKey("componentB"));
+    registry.register(new DefaultIssue().setKey("A").setComponentKey("componentB"));
+
+    assertThat(registry.size()).isEqualTo(3);
+    assertThat(new ArrayList<String>(registry.componentKeys())).containsExactly("componentB", "componentA");
+    assertThat(registry.issueKeys("componentB")).containsOnly("A", "C");
+    assertThat(registry.issueKeys("componentA")).containsOnly("B");
+  }
+
+  @Test
+  public void shouldReturnNoIssueKeyForUnknownComponent() {
+    assertThat(registry.issueKeys("unknown")).isEmpty();
+    assertThat(registry.componentKeys()).isEmpty();
+    assertThat(registry.size()).isEqualTo(0);
+  }
+}
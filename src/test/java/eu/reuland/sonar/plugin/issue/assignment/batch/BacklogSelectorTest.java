@@ -0,0 +1,63 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import org.junit.Test;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.utils.DateUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class BacklogSelectorTest {
+
+  private static IssueAssigner.PendingAssignment pending(String key, String severity, String creationDate) {
+    DefaultIssue issue = new DefaultIssue().setKey(key).setSeverity(severity)
+        .setCreationDate(creationDate == null ? null : DateUtils.parseDate(creationDate));
+    return new IssueAssigner.PendingAssignment(issue, Assignee.login("login"));
+  }
+
+  private static List<String> keys(List<IssueAssigner.PendingAssignment> pendingAssignments) {
+    List<String> keys = new ArrayList<String>();
+    for (IssueAssigner.PendingAssignment pendingAssignment : pendingAssignments) {
+      keys.add(pendingAssignment.issue().key());
+    }
+    return keys;
+  }
+
+  @Test
+  public void shouldSelectMostSevereThenOldestIssues() {
+    BacklogSelector selector = new BacklogSelector(3);
+    selector.offer(pending("minor", Severity.MINOR, "2012-01-01"));
+    selector.offer(pending("major-recent", Severity.MAJOR, "2013-06-01"));
+    selector.offer(pending("info", Severity.INFO, "2010-01-01"));
+    selector.offer(pending("blocker", Severity.BLOCKER, "2013-12-01"));
+    selector.offer(pending("major-old", Severity.MAJOR, "2011-06-01"));
+    selector.offer(pending("major-undated", Severity.MAJOR, null));
+
+    assertThat(keys(selector.select())).containsExactly("blocker", "major-old", "major-recent");
+  }
+
+  @Test
+  public void shouldSelectAllIssuesBelowLimit() {
+    BacklogSelector selector = new BacklogSelector(10);
+    selector.offer(pending("minor", Severity.MINOR, "2012-01-01"));
+    selector.offer(pending("critical", Severity.CRITICAL, "2012-01-01"));
+
+    assertThat(keys(selector.select())).containsExactly("critical", "minor");
+  }
+
+  @Test
+  public void shouldBeResetOnceSelected() {
+    BacklogSelector selector = new BacklogSelector(1);
+    selector.offer(pending("minor", Severity.MINOR, "2012-01-01"));
+    selector.offer(pending("major", Severity.MAJOR, "2012-01-01"));
+
+    assertThat(keys(selector.select())).containsExactly("major");
+    assertThat(selector.select()).isEmpty();
+  }
+}
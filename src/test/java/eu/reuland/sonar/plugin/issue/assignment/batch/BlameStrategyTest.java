@@ -0,0 +1,74 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import eu.reuland.sonar.plugin.issue.assignment.scm.ScmBlame;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.resources.Project;
+import org.sonar.api.user.User;
+import org.sonar.api.utils.DateUtils;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Vincent Reuland
+ */
+public class BlameStrategyTest {
+
+  private final Settings settings = new Settings(new PropertyDefinitions(IssueAutoAssignPlugin.propertyDefinitions()));
+  private final Project project = mock(Project.class);
+  private final Issue issue = new DefaultIssue().setKey("issueKey").setLine(1);
+  private final AuthorDictionary dictionary = new AuthorDictionary();
+  private final IssueBlame blame = new IssueBlame(dictionary);
+  private final ActiveUserCache userCache = mock(ActiveUserCache.class);
+
+  @Before
+  public void givenActiveUsers() {
+    when(userCache.getActiveUser(anyInt())).thenReturn(mock(User.class));
+  }
+
+  @Test
+  public void shouldOnlyNeedAuthorsWithoutMaximumLineAge() {
+    BlameStrategy strategy = new BlameStrategy(settings, project, userCache);
+    int authorId = dictionary.idOf("loginA");
+
+    blame.set(authorId, ScmBlame.NO_COMMIT_TIME, null);
+    assertThat(strategy.inputs()).containsOnly(AssignmentInput.AUTHORS);
+    assertThat(strategy.decide(issue, blame).scmAuthorId()).isEqualTo(authorId);
+
+    blame.set(AuthorDictionary.NO_AUTHOR, ScmBlame.NO_COMMIT_TIME, null);
+    assertThat(strategy.decide(issue, blame)).isNull();
+  }
+
+  @Test
+  public void shouldLeaveAuthorsWithoutActiveUserToNextStrategies() {
+    int authorId = dictionary.idOf("formerEmployee");
+    when(userCache.getActiveUser(authorId)).thenReturn(null);
+
+    blame.set(authorId, ScmBlame.NO_COMMIT_TIME, null);
+    assertThat(new BlameStrategy(settings, project, userCache).decide(issue, blame)).isNull();
+  }
+
+  @Test
+  public void shouldDecideIssuesOnOldCode() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_MAX_LINE_AGE_DAYS, 30);
+    when(project.getAnalysisDate()).thenReturn(DateUtils.parseDateTime("2013-12-01T00:00:00+0000"));
+    int authorId = dictionary.idOf("loginA");
+    BlameStrategy strategy = new BlameStrategy(settings, project, userCache);
+
+    assertThat(strategy.inputs()).containsOnly(AssignmentInput.AUTHORS, AssignmentInput.COMMIT_TIMES);
+    blame.set(authorId, DateUtils.parseDateTime("2013-11-20T10:00:00+0000").getTime(), null);
+    assertThat(strategy.decide(issue, blame).scmAuthorId()).isEqualTo(authorId);
+    blame.set(authorId, DateUtils.parseDateTime("2013-10-01T10:00:00+0000").getTime(), null);
+    assertThat(strategy.decide(issue, blame).isNobody()).isTrue();
+
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_OLD_CODE_DEFAULT_ASSIGNEE, true);
+    assertThat(new BlameStrategy(settings, project, userCache).decide(issue, blame)).isNull();
+  }
+}
@@ -0,0 +1,69 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.resources.JavaFile;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class ComponentOwnerStrategyTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private final IssueBlame blame = new IssueBlame(new AuthorDictionary());
+
+  private static DefaultIssue issue(String componentKey) {
+    return new DefaultIssue().setKey("issueKey").setComponentKey(componentKey);
+  }
+
+  private File ownersFile(String content) throws IOException {
+    File file = temp.newFile("OWNERS");
+    Files.write(content, file, Charsets.UTF_8);
+    return file;
+  }
+
+  @Test
+  public void shouldAssignIssuesToOwnerOfFirstMatchingRule() throws IOException {
+    ComponentOwnerStrategy strategy = new ComponentOwnerStrategy(ownersFile("# Owners\n" +
+        "src/main/java/billing/**   jdoe\n" +
+        "\n" +
+        "src/main/java/**/*.java lead\n" +
+        "generated/** -\n" +
+        "malformed\n"));
+
+    assertThat(strategy.inputs()).isEmpty();
+    assertThat(strategy.decide(issue("project:src/main/java/billing/Invoice.java"), blame).login()).isEqualTo("jdoe");
+    assertThat(strategy.decide(issue("project:src/main/java/shop/Cart.java"), blame).login()).isEqualTo("lead");
+    assertThat(strategy.decide(issue("project:generated/Stub.java"), blame).isNobody()).isTrue();
+    assertThat(strategy.decide(issue("project:README.md"), blame)).isNull();
+  }
+
+  @Test
+  public void shouldMatchGlobsAgainstQualifiedClassNameOfJavaFiles() throws IOException {
+    ComponentOwnerStrategy strategy = new ComponentOwnerStrategy(ownersFile("com/example/billing/** wrong\n" +
+        "com.example.billing.* jdoe\n"));
+
+    String invoiceKey = "project:" + new JavaFile("com.example.billing.Invoice").getKey();
+    assertThat(strategy.decide(issue(invoiceKey), blame).login()).isEqualTo("jdoe");
+    assertThat(strategy.decide(issue("project:" + new JavaFile("com.example.shop.Cart").getKey()), blame)).isNull();
+  }
+
+  @Test
+  public void shouldNotDecideWithoutOwnersFile() {
+    assertThat(new ComponentOwnerStrategy(null).decide(issue("project:Foo.java"), blame)).isNull();
+    assertThat(new ComponentOwnerStrategy(new File(temp.getRoot(), "missing")).decide(issue("project:Foo.java"), blame))
+        .isNull();
+  }
+}
@@ -1,11 +1,19 @@
 package eu.reuland.sonar.plugin.issue.assignment.batch;
 
 import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import eu.reuland.sonar.plugin.issue.assignment.scm.PersistentBlameCache;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.bootstrap.ProjectReactor;
 import org.sonar.api.component.ResourcePerspectives;
 import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.Settings;
@@ -18,7 +26,10 @@ import org.sonar.api.measures.Measure;
 import org.sonar.api.resources.File;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.rule.RuleKey;
 import org.sonar.api.user.User;
+import org.sonar.api.user.UserQuery;
+import org.sonar.api.utils.DateUtils;
 import org.sonar.batch.issue.IssueCache;
 import org.sonar.core.issue.IssueUpdater;
 import org.sonar.core.user.UserDao;
@@ -26,7 +37,14 @@ import org.sonar.core.user.UserDto;
 import org.sonar.java.api.JavaClass;
 import org.sonar.java.api.JavaMethod;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -36,14 +54,22 @@ import static org.mockito.Mockito.*;
  */
 public class IssueAutoAssignDecoratorTest {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private IssueAutoAssignDecorator decorator;
   private IssueCache issueCache = mock(IssueCache.class, RETURNS_MOCKS);
   private Project project = mock(Project.class);
   private IssueUpdater updater = mock(IssueUpdater.class);
   private ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
+  private SonarIndex index = mock(SonarIndex.class);
   private org.sonar.core.user.UserDao userDao = mock(UserDao.class);
+  private AutoAssignedIssueRegistry autoAssignedIssueRegistry = new AutoAssignedIssueRegistry();
   private Settings settings = new Settings(
       new PropertyDefinitions(IssueAutoAssignPlugin.propertyDefinitions()));
+  private ProjectReactor reactor = new ProjectReactor(ProjectDefinition.create());
+  private PersistentBlameCache blameCache;
+  private int availableProcessors = Runtime.getRuntime().availableProcessors();
 
   @Before
   public void enablePlugin() {
@@ -51,8 +77,31 @@ public class IssueAutoAssignDecoratorTest {
     settings.setProperty(IssueAutoAssignPlugin.PROPERTY_PLUGIN_ENABLED, true);
   }
 
-  private Decorator decorator() {
-    return new IssueAutoAssignDecorator(settings, project, issueCache, updater, perspectives, userDao);
+  private Decorator decorator(AssignmentStrategy... otherStrategies) {
+    AuthorDictionary authorDictionary = new AuthorDictionary();
+    blameCache = new PersistentBlameCache(settings, reactor);
+    ActiveUserCache userCache = new ActiveUserCache(userDao, authorDictionary, new LoginAliasResolver(settings),
+        AssignmentMetrics.DISABLED);
+    List<AssignmentStrategy> strategies = new ArrayList<AssignmentStrategy>(Arrays.asList(new RoutingStrategy(settings),
+        new BlameStrategy(settings, project, userCache), new ComponentOwnerStrategy(settings, reactor),
+        new DefaultAssigneeStrategy(settings)));
+    strategies.addAll(Arrays.asList(otherStrategies));
+    return new IssueAutoAssignDecorator(settings, project, issueCache, updater, perspectives, index, userCache,
+        authorDictionary, autoAssignedIssueRegistry, blameCache,
+        strategies.toArray(new AssignmentStrategy[strategies.size()]), AssignmentMetrics.DISABLED, availableProcessors);
+  }
+
+  private void givenIssuesInCache(DefaultIssue... issues) {
+    Map<String, List<DefaultIssue>> issuesByComponent = new HashMap<String, List<DefaultIssue>>();
+    for (DefaultIssue issue : issues) {
+      if (!issuesByComponent.containsKey(issue.componentKey())) {
+        issuesByComponent.put(issue.componentKey(), new ArrayList<DefaultIssue>());
+      }
+      issuesByComponent.get(issue.componentKey()).add(issue);
+    }
+    for (Map.Entry<String, List<DefaultIssue>> entry : issuesByComponent.entrySet()) {
+      when(issueCache.byComponent(entry.getKey())).thenReturn(entry.getValue());
+    }
   }
 
   @Test
@@ -61,6 +110,12 @@ public class IssueAutoAssignDecoratorTest {
     assertThat(decorator().shouldExecuteOnProject(project)).isTrue();
   }
 
+  @Test
+  public void shouldNotBeExecutedOnProjectWhenNotEnabled() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_PLUGIN_ENABLED, false);
+    assertThat(decorator().shouldExecuteOnProject(mock(Project.class))).isFalse();
+  }
+
   @Test
   public void doNothingWhenNotEnabled() {
     settings.setProperty(IssueAutoAssignPlugin.PROPERTY_PLUGIN_ENABLED, false);
@@ -89,11 +144,12 @@ public class IssueAutoAssignDecoratorTest {
   public void shouldExecuteOnFileWithNewIssues() {
     final DecoratorContext context = mock(DecoratorContext.class);
     Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
-    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setNew(true).setLine(2);
+    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setComponentKey("effectivekey").setNew(true).setLine(2);
     Issuable issuable = mock(Issuable.class);
     Measure measure = mock(Measure.class);
     UserDto userDto = new UserDto().setLogin("loginB").setName("userB");
 
+    givenIssuesInCache(issue);
     when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
     when(issuable.issues()).thenReturn(Arrays.<Issue>asList(issue));
     when(context.getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(measure);
@@ -107,6 +163,31 @@ public class IssueAutoAssignDecoratorTest {
     assertThat(argument.getValue().name()).isEqualTo("userB");
 
     verify(issueCache).put(issue);
+    assertThat(autoAssignedIssueRegistry.issueKeys("effectivekey")).containsOnly("issueKey");
+  }
+
+  @Test
+  public void shouldCacheScmBlameOfFileWithFewNewIssuesWhenBlameCacheIsEnabled() throws IOException {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_BLAME_CACHE_MAX_SIZE, 1);
+    reactor.getRoot().setWorkDir(temp.newFolder());
+    DecoratorContext context = mock(DecoratorContext.class);
+    Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
+    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setComponentKey("effectivekey").setNew(true).setLine(2);
+    Issuable issuable = mock(Issuable.class);
+    Measure measure = mock(Measure.class);
+
+    givenIssuesInCache(issue);
+    when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
+    when(issuable.issues()).thenReturn(Arrays.<Issue>asList(issue));
+    when(context.getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(measure);
+    when(measure.getData()).thenReturn("1=loginA;2=loginB;3=loginC");
+    when(userDao.selectActiveUserByLogin("loginB")).thenReturn(new UserDto().setLogin("loginB").setName("userB"));
+
+    decorator().decorate(file, context);
+    blameCache.stop();
+
+    verify(updater).assign(eq(issue), any(User.class), any(IssueChangeContext.class));
+    assertThat(new java.io.File(reactor.getRoot().getWorkDir(), "autoassign-blame.cache").isFile()).isTrue();
   }
 
   @Test
@@ -119,7 +200,8 @@ public class IssueAutoAssignDecoratorTest {
 
     decorator().decorate(file, context);
 
-    verifyZeroInteractions(issueCache, updater);
+    verify(issueCache, never()).put(any(DefaultIssue.class));
+    verifyZeroInteractions(updater);
   }
 
   @Test
@@ -127,14 +209,17 @@ public class IssueAutoAssignDecoratorTest {
     final DecoratorContext context = mock(DecoratorContext.class);
     Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
     Issuable issuable = mock(Issuable.class);
-    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setNew(true).setAssignee("assignee").setLine(2);
+    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setComponentKey("effectivekey").setNew(true)
+        .setAssignee("assignee").setLine(2);
 
+    givenIssuesInCache(issue);
     when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
-    when(issuable.issues()).thenReturn(Arrays.<Issue>asList(issue)); // No unresolved issues returned
+    when(issuable.issues()).thenReturn(Arrays.<Issue>asList(issue));
 
     decorator().decorate(file, context);
 
-    verifyZeroInteractions(context, issueCache, updater);
+    verify(issueCache, never()).put(any(DefaultIssue.class));
+    verifyZeroInteractions(context, perspectives, updater);
   }
 
   @Test
@@ -142,11 +227,12 @@ public class IssueAutoAssignDecoratorTest {
     settings.setProperty(IssueAutoAssignPlugin.PROPERTY_DEFAULT_ASSIGNEE, "defaultAssignee");
     final DecoratorContext context = mock(DecoratorContext.class);
     Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
-    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setNew(true).setLine(2);
+    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setComponentKey("effectivekey").setNew(true).setLine(2);
     Issuable issuable = mock(Issuable.class);
     Measure measure = mock(Measure.class);
     UserDto userDto = new UserDto().setLogin("defaultAssignee").setName("username");
 
+    givenIssuesInCache(issue);
     when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
     when(issuable.issues()).thenReturn(Arrays.<Issue>asList(issue));
     when(context.getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(null);
@@ -161,20 +247,45 @@ public class IssueAutoAssignDecoratorTest {
     verify(issueCache).put(issue);
   }
 
+  @Test
+  public void useDefaultAssigneeIfSCMAuthorIsNotAnActiveUser() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_DEFAULT_ASSIGNEE, "defaultAssignee");
+    DecoratorContext context = mock(DecoratorContext.class);
+    Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
+    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setComponentKey("effectivekey").setNew(true).setLine(2);
+    Issuable issuable = mock(Issuable.class);
+    Measure measure = mock(Measure.class);
+
+    givenIssuesInCache(issue);
+    when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
+    when(issuable.issues()).thenReturn(Arrays.<Issue>asList(issue));
+    when(context.getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(measure);
+    when(measure.getData()).thenReturn("1=loginA;2=formerEmployee;3=loginC");
+    when(userDao.selectActiveUserByLogin("defaultAssignee"))
+        .thenReturn(new UserDto().setLogin("defaultAssignee").setName("username"));
+
+    decorator().decorate(file, context);
+
+    ArgumentCaptor<User> argument = ArgumentCaptor.forClass(User.class);
+    verify(updater).assign(eq(issue), argument.capture(), any(IssueChangeContext.class));
+    assertThat(argument.getValue().login()).isEqualTo("defaultAssignee");
+  }
+
   @Test
   public void shouldNotExecuteOnOldIssueByDefault() {
     final DecoratorContext context = mock(DecoratorContext.class);
     Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
-    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setNew(false).setLine(2);
+    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setComponentKey("effectivekey").setNew(false).setLine(2);
     Issuable issuable = mock(Issuable.class);
 
-
+    givenIssuesInCache(issue);
     when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
     when(issuable.issues()).thenReturn(Arrays.<Issue>asList(issue));
 
     decorator().decorate(file, context);
 
-    verifyZeroInteractions(context, issueCache, updater);
+    verify(issueCache, never()).put(any(DefaultIssue.class));
+    verifyZeroInteractions(context, perspectives, updater);
   }
 
   @Test
@@ -182,9 +293,10 @@ public class IssueAutoAssignDecoratorTest {
     settings.setProperty(IssueAutoAssignPlugin.PROPERTY_NEW_ISSUES_ONLY, false);
     final DecoratorContext context = mock(DecoratorContext.class);
     Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
-    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setNew(false).setLine(2);
+    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setComponentKey("effectivekey").setNew(false).setLine(2);
     Issuable issuable = mock(Issuable.class);
 
+    givenIssuesInCache(issue);
     when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
     when(issuable.issues()).thenReturn(Arrays.<Issue>asList(issue));
 
@@ -193,4 +305,376 @@ public class IssueAutoAssignDecoratorTest {
     verify(context).getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE);
   }
 
+  @Test
+  public void shouldNotRegisterOldAssignedIssueForNotification() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_NEW_ISSUES_ONLY, false);
+    final DecoratorContext context = mock(DecoratorContext.class);
+    Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
+    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setComponentKey("effectivekey").setNew(false).setLine(2);
+    Issuable issuable = mock(Issuable.class);
+    Measure measure = mock(Measure.class);
+
+    givenIssuesInCache(issue);
+    when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
+    when(issuable.issues()).thenReturn(Arrays.<Issue>asList(issue));
+    when(context.getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(measure);
+    when(measure.getData()).thenReturn("1=loginA;2=loginB");
+    when(userDao.selectActiveUserByLogin("loginB")).thenReturn(new UserDto().setLogin("loginB").setName("userB"));
+
+    decorator().decorate(file, context);
+
+    verify(issueCache).put(issue);
+    assertThat(autoAssignedIssueRegistry.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldAssignIssuesOnceModuleIsDecoratedWhenBulkUserLookupIsEnabled() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_BULK_USER_LOOKUP, true);
+    final DecoratorContext context = mock(DecoratorContext.class);
+    Resource fileA = new File("ResourceA.java").setEffectiveKey("effectivekeyA").setId(1);
+    Resource fileB = new File("ResourceB.java").setEffectiveKey("effectivekeyB").setId(2);
+    DefaultIssue issueA = new DefaultIssue().setKey("issueKeyA").setComponentKey("effectivekeyA").setNew(true).setLine(1);
+    DefaultIssue issueB = new DefaultIssue().setKey("issueKeyB").setComponentKey("effectivekeyB").setNew(true).setLine(2);
+    Issuable issuableA = mock(Issuable.class);
+    Issuable issuableB = mock(Issuable.class);
+    Measure measure = mock(Measure.class);
+
+    givenIssuesInCache(issueA, issueB);
+    when(perspectives.as(Issuable.class, fileA)).thenReturn(issuableA);
+    when(perspectives.as(Issuable.class, fileB)).thenReturn(issuableB);
+    when(issuableA.issues()).thenReturn(Arrays.<Issue>asList(issueA));
+    when(issuableB.issues()).thenReturn(Arrays.<Issue>asList(issueB));
+    when(context.getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(measure);
+    when(measure.getData()).thenReturn("1=loginA;2=loginB");
+    when(userDao.selectUsers(any(UserQuery.class))).thenReturn(Arrays.asList(
+        new UserDto().setLogin("loginA").setName("userA"),
+        new UserDto().setLogin("loginB").setName("userB")));
+
+    Decorator decorator = decorator();
+    decorator.decorate(fileA, context);
+    decorator.decorate(fileB, context);
+    verify(issueCache, never()).put(any(DefaultIssue.class));
+    verifyZeroInteractions(updater, userDao);
+
+    decorator.decorate(project, context);
+
+    verify(userDao, times(1)).selectUsers(any(UserQuery.class));
+    verify(userDao, never()).selectActiveUserByLogin(anyString());
+    verify(updater).assign(eq(issueA), any(User.class), any(IssueChangeContext.class));
+    verify(updater).assign(eq(issueB), any(User.class), any(IssueChangeContext.class));
+    verify(issueCache).put(issueA);
+    verify(issueCache).put(issueB);
+  }
+
+  @Test
+  public void shouldWriteEachAssignedIssueBackToTheCache() {
+    final DecoratorContext context = mock(DecoratorContext.class);
+    Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
+    DefaultIssue issueA = new DefaultIssue().setKey("issueKeyA").setComponentKey("effectivekey").setNew(true).setLine(1);
+    DefaultIssue issueB = new DefaultIssue().setKey("issueKeyB").setComponentKey("effectivekey").setNew(true).setLine(2);
+    Issuable issuable = mock(Issuable.class);
+    Measure measure = mock(Measure.class);
+
+    givenIssuesInCache(issueA, issueB);
+    when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
+    when(issuable.issues()).thenReturn(Arrays.<Issue>asList(issueA, issueB));
+    when(context.getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(measure);
+    when(measure.getData()).thenReturn("1=loginA;2=loginB");
+    when(userDao.selectActiveUserByLogin("loginA")).thenReturn(new UserDto().setLogin("loginA").setName("userA"));
+    when(userDao.selectActiveUserByLogin("loginB")).thenReturn(new UserDto().setLogin("loginB").setName("userB"));
+
+    decorator().decorate(file, context);
+
+    InOrder inOrder = inOrder(updater, issueCache);
+    inOrder.verify(updater).assign(eq(issueA), any(User.class), any(IssueChangeContext.class));
+    inOrder.verify(issueCache).put(issueA);
+    inOrder.verify(updater).assign(eq(issueB), any(User.class), any(IssueChangeContext.class));
+    inOrder.verify(issueCache).put(issueB);
+  }
+
+  @Test
+  public void shouldAssignAllIssuesOfModuleInSinglePassWhenModuleEngineIsEnabled() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_MODULE_ENGINE, true);
+    final DecoratorContext context = mock(DecoratorContext.class);
+    Resource fileA = new File("ResourceA.java").setEffectiveKey("effectivekeyA").setId(1);
+    Resource fileB = new File("ResourceB.java").setEffectiveKey("effectivekeyB").setId(2);
+    DefaultIssue issueA = new DefaultIssue().setKey("issueKeyA").setComponentKey("effectivekeyA").setNew(true).setLine(1);
+    DefaultIssue assignedIssue = new DefaultIssue().setKey("issueKeyB").setComponentKey("effectivekeyA").setNew(true).setLine(2)
+        .setAssignee("someone");
+    Measure measure = mock(Measure.class);
+
+    when(issueCache.byComponent("effectivekeyA")).thenReturn(Arrays.asList(issueA, assignedIssue));
+    when(issueCache.byComponent("effectivekeyB")).thenReturn(Arrays.<DefaultIssue>asList());
+    when(index.getMeasure(fileA, CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(measure);
+    when(measure.getData()).thenReturn("1=loginA;2=loginB");
+    when(userDao.selectUsers(any(UserQuery.class))).thenReturn(Arrays.asList(
+        new UserDto().setLogin("loginA").setName("userA")));
+
+    Decorator decorator = decorator();
+    decorator.decorate(fileA, context);
+    decorator.decorate(fileB, context);
+    verifyZeroInteractions(updater, issueCache, index, userDao);
+
+    decorator.decorate(project, context);
+
+    verify(index, never()).getMeasure(fileB, CoreMetrics.SCM_AUTHORS_BY_LINE);
+    verify(userDao, times(1)).selectUsers(any(UserQuery.class));
+    ArgumentCaptor<User> argument = ArgumentCaptor.forClass(User.class);
+    verify(updater).assign(eq(issueA), argument.capture(), any(IssueChangeContext.class));
+    assertThat(argument.getValue().name()).isEqualTo("userA");
+    verify(issueCache).put(issueA);
+    verifyNoMoreInteractions(updater);
+    verifyZeroInteractions(perspectives, context);
+  }
+
+  @Test
+  public void shouldNotRegisterClassesAndMethodsWhenModuleEngineIsEnabled() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_MODULE_ENGINE, true);
+    DecoratorContext context = mock(DecoratorContext.class);
+    JavaClass javaClass = JavaClass.create("org.foo.bar");
+
+    Decorator decorator = decorator();
+    decorator.decorate(javaClass, context);
+    decorator.decorate(JavaMethod.createRef(javaClass, "init"), context);
+    decorator.decorate(project, context);
+
+    verify(issueCache, never()).byComponent(null);
+    verifyZeroInteractions(updater, userDao, context);
+  }
+
+  @Test
+  public void shouldAssignIssuesInComponentOrderWhenParsingInParallel() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_MODULE_ENGINE, true);
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_PARALLELISM, 4);
+    // Parsed by 4 workers, even on a single processor machine
+    availableProcessors = 4;
+    DecoratorContext context = mock(DecoratorContext.class);
+    List<DefaultIssue> issues = new ArrayList<DefaultIssue>();
+    Decorator decorator = decorator();
+    for (int i = 0; i < 10; i++) {
+      Resource file = new File("Resource" + i + ".java").setEffectiveKey("effectivekey" + i).setId(i);
+      DefaultIssue issue = new DefaultIssue().setKey("issueKey" + i).setComponentKey("effectivekey" + i).setNew(true)
+          .setLine(i + 1);
+      Measure measure = mock(Measure.class);
+      when(issueCache.byComponent("effectivekey" + i)).thenReturn(Arrays.asList(issue));
+      when(index.getMeasure(file, CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(measure);
+      when(measure.getData()).thenReturn((i + 1) + "=login" + (i % 3));
+      issues.add(issue);
+      decorator.decorate(file, context);
+    }
+    when(userDao.selectUsers(any(UserQuery.class))).thenReturn(Arrays.asList(
+        new UserDto().setLogin("login0").setName("user0"),
+        new UserDto().setLogin("login1").setName("user1"),
+        new UserDto().setLogin("login2").setName("user2")));
+
+    decorator.decorate(project, context);
+
+    verify(userDao, times(1)).selectUsers(any(UserQuery.class));
+    InOrder inOrder = inOrder(updater);
+    for (int i = 0; i < 10; i++) {
+      ArgumentCaptor<User> argument = ArgumentCaptor.forClass(User.class);
+      inOrder.verify(updater).assign(eq(issues.get(i)), argument.capture(), any(IssueChangeContext.class));
+      assertThat(argument.getValue().name()).isEqualTo("user" + (i % 3));
+    }
+  }
+
+  @Test
+  public void shouldAssignOnlyMostSevereOldIssuesOnceModuleIsDecoratedWhenBacklogIsLimited() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_NEW_ISSUES_ONLY, false);
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_BACKLOG_MAX_ISSUES, 1);
+    DecoratorContext context = mock(DecoratorContext.class);
+    Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
+    DefaultIssue newIssue = new DefaultIssue().setKey("new").setComponentKey("effectivekey").setNew(true)
+        .setSeverity("INFO").setLine(1);
+    DefaultIssue minorIssue = new DefaultIssue().setKey("minor").setComponentKey("effectivekey").setNew(false)
+        .setSeverity("MINOR").setLine(1);
+    DefaultIssue criticalIssue = new DefaultIssue().setKey("critical").setComponentKey("effectivekey").setNew(false)
+        .setSeverity("CRITICAL").setLine(1);
+    Issuable issuable = mock(Issuable.class);
+    Measure measure = mock(Measure.class);
+
+    givenIssuesInCache(newIssue, minorIssue, criticalIssue);
+    when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
+    when(issuable.issues()).thenReturn(Arrays.<Issue>asList(newIssue, minorIssue, criticalIssue));
+    when(context.getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(measure);
+    when(measure.getData()).thenReturn("1=loginA");
+    when(userDao.selectActiveUserByLogin("loginA")).thenReturn(new UserDto().setLogin("loginA").setName("userA"));
+
+    Decorator decorator = decorator();
+    decorator.decorate(file, context);
+    verify(updater).assign(eq(newIssue), any(User.class), any(IssueChangeContext.class));
+    verifyNoMoreInteractions(updater);
+
+    decorator.decorate(project, context);
+
+    verify(updater).assign(eq(criticalIssue), any(User.class), any(IssueChangeContext.class));
+    verify(updater, never()).assign(eq(minorIssue), any(User.class), any(IssueChangeContext.class));
+  }
+
+  @Test
+  public void shouldLeaveIssuesOnOldCodeUnassignedWhenMaxLineAgeIsSet() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_MAX_LINE_AGE_DAYS, 30);
+    when(project.getAnalysisDate()).thenReturn(DateUtils.parseDateTime("2013-12-01T00:00:00+0000"));
+    DecoratorContext context = mock(DecoratorContext.class);
+    Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
+    DefaultIssue oldCodeIssue = new DefaultIssue().setKey("issueKeyA").setComponentKey("effectivekey").setNew(true).setLine(1);
+    DefaultIssue recentCodeIssue = new DefaultIssue().setKey("issueKeyB").setComponentKey("effectivekey").setNew(true).setLine(2);
+    Issuable issuable = mock(Issuable.class);
+    Measure authors = mock(Measure.class);
+    Measure commitTimes = mock(Measure.class);
+
+    givenIssuesInCache(oldCodeIssue, recentCodeIssue);
+    when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
+    when(issuable.issues()).thenReturn(Arrays.<Issue>asList(oldCodeIssue, recentCodeIssue));
+    when(context.getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(authors);
+    when(authors.getData()).thenReturn("1=loginA;2=loginA");
+    when(context.getMeasure(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE)).thenReturn(commitTimes);
+    when(commitTimes.getData()).thenReturn("1=2013-10-01T10:00:00+0000;2=2013-11-20T10:00:00+0000");
+    when(userDao.selectActiveUserByLogin("loginA")).thenReturn(new UserDto().setLogin("loginA").setName("userA"));
+
+    decorator().decorate(file, context);
+
+    verify(updater).assign(eq(recentCodeIssue), any(User.class), any(IssueChangeContext.class));
+    verify(updater, never()).assign(eq(oldCodeIssue), any(User.class), any(IssueChangeContext.class));
+    verify(context, never()).getMeasure(CoreMetrics.SCM_REVISIONS_BY_LINE);
+  }
+
+  @Test
+  public void shouldAssignIssuesOnOldCodeToDefaultAssigneeWhenConfigured() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_MAX_LINE_AGE_DAYS, 30);
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_OLD_CODE_DEFAULT_ASSIGNEE, true);
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_DEFAULT_ASSIGNEE, "defaultAssignee");
+    when(project.getAnalysisDate()).thenReturn(DateUtils.parseDateTime("2013-12-01T00:00:00+0000"));
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_MODULE_ENGINE, true);
+    DecoratorContext context = mock(DecoratorContext.class);
+    Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
+    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setComponentKey("effectivekey").setNew(true).setLine(1);
+    Measure authors = mock(Measure.class);
+    Measure commitTimes = mock(Measure.class);
+
+    givenIssuesInCache(issue);
+    when(index.getMeasure(file, CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(authors);
+    when(authors.getData()).thenReturn("1=loginA");
+    when(index.getMeasure(file, CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE)).thenReturn(commitTimes);
+    when(commitTimes.getData()).thenReturn("1=2012-01-01T10:00:00+0000");
+    when(userDao.selectUsers(any(UserQuery.class))).thenReturn(Arrays.asList(
+        new UserDto().setLogin("defaultAssignee").setName("Default")));
+
+    Decorator decorator = decorator();
+    decorator.decorate(file, context);
+    decorator.decorate(project, context);
+
+    ArgumentCaptor<User> argument = ArgumentCaptor.forClass(User.class);
+    verify(updater).assign(eq(issue), argument.capture(), any(IssueChangeContext.class));
+    assertThat(argument.getValue().login()).isEqualTo("defaultAssignee");
+  }
+
+  @Test
+  public void shouldAssignRoutedIssuesWithoutScmBlame() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_ROUTING_RULES, "rule:squid:S2068=appsec\npath:generated/**=-");
+    DecoratorContext context = mock(DecoratorContext.class);
+    Resource file = new File("Resource.java").setEffectiveKey("project:generated/Resource.java").setId(1);
+    DefaultIssue securityIssue = new DefaultIssue().setKey("issueKeyA").setComponentKey("project:generated/Resource.java")
+        .setRuleKey(RuleKey.parse("squid:S2068")).setNew(true).setLine(1);
+    DefaultIssue generatedCodeIssue = new DefaultIssue().setKey("issueKeyB").setComponentKey("project:generated/Resource.java")
+        .setRuleKey(RuleKey.parse("squid:S1")).setNew(true).setLine(2);
+    Issuable issuable = mock(Issuable.class);
+
+    givenIssuesInCache(securityIssue, generatedCodeIssue);
+    when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
+    when(issuable.issues()).thenReturn(Arrays.<Issue>asList(securityIssue, generatedCodeIssue));
+    when(userDao.selectActiveUserByLogin("appsec")).thenReturn(new UserDto().setLogin("appsec").setName("AppSec"));
+
+    decorator().decorate(file, context);
+
+    ArgumentCaptor<User> argument = ArgumentCaptor.forClass(User.class);
+    verify(updater).assign(eq(securityIssue), argument.capture(), any(IssueChangeContext.class));
+    assertThat(argument.getValue().login()).isEqualTo("appsec");
+    verify(updater, never()).assign(eq(generatedCodeIssue), any(User.class), any(IssueChangeContext.class));
+    verify(issueCache).put(securityIssue);
+    verify(context, never()).getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE);
+  }
+
+  @Test
+  public void shouldNotFetchScmBlameWhenNoStrategyNeedsIt() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_STRATEGIES, "routing,default");
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_DEFAULT_ASSIGNEE, "defaultAssignee");
+    DecoratorContext context = mock(DecoratorContext.class);
+    Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
+    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setComponentKey("effectivekey").setNew(true).setLine(2);
+    Issuable issuable = mock(Issuable.class);
+
+    givenIssuesInCache(issue);
+    when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
+    when(issuable.issues()).thenReturn(Arrays.<Issue>asList(issue));
+    when(userDao.selectActiveUserByLogin("defaultAssignee")).thenReturn(
+        new UserDto().setLogin("defaultAssignee").setName("Default"));
+
+    decorator().decorate(file, context);
+
+    ArgumentCaptor<User> argument = ArgumentCaptor.forClass(User.class);
+    verify(updater).assign(eq(issue), argument.capture(), any(IssueChangeContext.class));
+    assertThat(argument.getValue().login()).isEqualTo("defaultAssignee");
+    verifyZeroInteractions(context);
+  }
+
+  @Test
+  public void shouldOnlyFetchScmBlameMeasuresNeededByStrategies() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_STRATEGIES, "release");
+    AssignmentStrategy releaseStrategy = new AssignmentStrategy() {
+      @Override
+      public String key() {
+        return "release";
+      }
+
+      @Override
+      public Set<AssignmentInput> inputs() {
+        return EnumSet.of(AssignmentInput.REVISIONS);
+      }
+
+      @Override
+      public Assignee decide(Issue issue, IssueBlame blame) {
+        return blame.revision() == null ? null : Assignee.login("release-" + blame.revision());
+      }
+    };
+    DecoratorContext context = mock(DecoratorContext.class);
+    Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
+    DefaultIssue issue = new DefaultIssue().setKey("issueKey").setComponentKey("effectivekey").setNew(true).setLine(1);
+    Issuable issuable = mock(Issuable.class);
+    Measure authors = mock(Measure.class);
+    Measure revisions = mock(Measure.class);
+
+    givenIssuesInCache(issue);
+    when(perspectives.as(Issuable.class, file)).thenReturn(issuable);
+    when(issuable.issues()).thenReturn(Arrays.<Issue>asList(issue));
+    when(context.getMeasure(CoreMetrics.SCM_AUTHORS_BY_LINE)).thenReturn(authors);
+    when(authors.getData()).thenReturn("1=loginA");
+    when(context.getMeasure(CoreMetrics.SCM_REVISIONS_BY_LINE)).thenReturn(revisions);
+    when(revisions.getData()).thenReturn("1=abc123");
+    when(userDao.selectActiveUserByLogin("release-abc123")).thenReturn(
+        new UserDto().setLogin("release-abc123").setName("Release"));
+
+    decorator(releaseStrategy).decorate(file, context);
+
+    ArgumentCaptor<User> argument = ArgumentCaptor.forClass(User.class);
+    verify(updater).assign(eq(issue), argument.capture(), any(IssueChangeContext.class));
+    assertThat(argument.getValue().login()).isEqualTo("release-abc123");
+    verify(context, never()).getMeasure(CoreMetrics.SCM_LAST_COMMIT_DATETIMES_BY_LINE);
+    verify(userDao, never()).selectActiveUserByLogin("loginA");
+  }
+
+  @Test
+  public void shouldSkipResourceWithoutCandidateIssues() {
+    DecoratorContext context = mock(DecoratorContext.class);
+    Resource file = new File("Resource.java").setEffectiveKey("effectivekey").setId(1);
+    givenIssuesInCache(
+        new DefaultIssue().setKey("A").setComponentKey("effectivekey").setNew(true).setResolution(Issue.RESOLUTION_FIXED),
+        new DefaultIssue().setKey("B").setComponentKey("effectivekey").setNew(true).setAssignee("someone"),
+        new DefaultIssue().setKey("C").setComponentKey("effectivekey").setNew(false));
+
+    decorator().decorate(file, context);
+
+    verify(issueCache).byComponent("effectivekey");
+    verifyZeroInteractions(perspectives, context, updater);
+  }
 }
@@ -0,0 +1,402 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationFactory;
+import eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary;
+import eu.reuland.sonar.plugin.issue.assignment.scm.PersistentBlameCache;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.Decorator;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.bootstrap.ProjectReactor;
+import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.api.issue.Issuable;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.issue.internal.IssueChangeContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.notifications.Notification;
+import org.sonar.api.notifications.NotificationManager;
+import org.sonar.api.resources.File;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RuleFinder;
+import org.sonar.api.user.User;
+import org.sonar.api.user.UserQuery;
+import org.sonar.api.utils.DateUtils;
+import org.sonar.batch.issue.IssueCache;
+import org.sonar.core.i18n.RuleI18nManager;
+import org.sonar.core.issue.IssueUpdater;
+import org.sonar.core.user.UserDao;
+import org.sonar.core.user.UserDto;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Scale test of a full simulated analysis of a synthetic project: the decorator assigns the issues of all its files,
+ * then the post job sends the notifications of the new ones.
+ * <p>
+ * The issue cache, the users, the resources and the SCM measures are held in memory. The shape of the project and the
+ * budgets of the analysis are read from system properties (see {@link ScaleProfile}), e.g.
+ * <code>mvn test -Dtest=IssueAutoAssignScaleTest -Dautoassign.scale.files=20000
+ * -Dautoassign.scale.maxWallTimeMs=60000</code>. The defaults keep the test fast enough to run with the other unit
+ * tests.
+ * </p>
+ * <p>
+ * The wall time, the peak heap (the sum of the peak usages of the heap memory pools during the analysis), the number
+ * of database calls and the number of writes to the issue cache are logged. The test fails if the database calls or
+ * the cache writes exceed their budget. The wall time and the peak heap depend on the machine and on the garbage
+ * collector: their budgets are only checked when they are set.
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public class IssueAutoAssignScaleTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(IssueAutoAssignScaleTest.class);
+  private static final int RULES = 20;
+  private static final int MEAN_BLOCK_LINES = 8;
+  // One SCM author out of this number has no Sonar account
+  private static final int AUTHORS_WITHOUT_ACCOUNT_RATIO = 10;
+
+  private final ScaleProfile profile = ScaleProfile.fromSystemProperties();
+  private final Settings settings = new Settings(
+      new PropertyDefinitions(IssueAutoAssignPlugin.propertyDefinitions()));
+  private final Project project = mock(Project.class);
+
+  // In-memory stand-ins
+  private final Map<String, List<DefaultIssue>> issuesByComponent = new LinkedHashMap<String, List<DefaultIssue>>();
+  private final Map<String, Measure> authorsMeasuresByComponent = new HashMap<String, Measure>();
+  private final Map<String, UserDto> activeUsersByLogin = new HashMap<String, UserDto>();
+  private final List<Resource> files = new ArrayList<Resource>();
+  private Resource currentFile;
+  private int expectedAssignedIssues;
+  private int expectedAssignedNewIssues;
+
+  // Counters
+  private final AtomicInteger dbCalls = new AtomicInteger();
+  private final AtomicInteger cacheWrites = new AtomicInteger();
+  private final AtomicInteger notifications = new AtomicInteger();
+
+  @Before
+  public void generateProject() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_PLUGIN_ENABLED, true);
+    // Old issues are assigned as well, so that all the generated issues are candidates
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_NEW_ISSUES_ONLY, false);
+    when(project.getAnalysisDate()).thenReturn(DateUtils.parseDate("2013-12-31"));
+    when(project.getName()).thenReturn("Synthetic");
+    when(project.key()).thenReturn("synthetic");
+
+    for (int i = 0; i < profile.authors; i++) {
+      if (i % AUTHORS_WITHOUT_ACCOUNT_RATIO != 0) {
+        String login = "developer" + i;
+        activeUsersByLogin.put(login, new UserDto().setLogin(login).setName("Developer " + i));
+      }
+    }
+
+    Random random = new Random(42);
+    int issuesPerFile = (int) Math.round(profile.linesPerFile * profile.issueDensity);
+    for (int f = 0; f < profile.files; f++) {
+      String componentKey = "synthetic:org/synthetic/Class" + f + ".java";
+      files.add(new File("org/synthetic/Class" + f + ".java").setEffectiveKey(componentKey).setId(f + 1));
+
+      int[] authorByLine = new int[profile.linesPerFile + 1];
+      StringBuilder data = new StringBuilder();
+      int author = random.nextInt(profile.authors);
+      for (int line = 1; line <= profile.linesPerFile; line++) {
+        if (random.nextInt(MEAN_BLOCK_LINES) == 0) {
+          author = random.nextInt(profile.authors);
+        }
+        authorByLine[line] = author;
+        data.append(line).append("=developer").append(author).append(';');
+      }
+      authorsMeasuresByComponent.put(componentKey, new Measure(CoreMetrics.SCM_AUTHORS_BY_LINE, data.toString()));
+
+      List<DefaultIssue> issues = new ArrayList<DefaultIssue>(issuesPerFile);
+      for (int i = 0; i < issuesPerFile; i++) {
+        int line = 1 + random.nextInt(profile.linesPerFile);
+        boolean isNew = random.nextDouble() < profile.newIssueRatio;
+        issues.add(new DefaultIssue().setKey("ISSUE-" + f + "-" + i).setComponentKey(componentKey).setLine(line)
+            .setNew(isNew).setSeverity("MAJOR").setRuleKey(RuleKey.of("squid", "Rule" + random.nextInt(RULES)))
+            .setMessage("Synthetic issue " + i));
+        if (authorByLine[line] % AUTHORS_WITHOUT_ACCOUNT_RATIO != 0) {
+          expectedAssignedIssues++;
+          expectedAssignedNewIssues += isNew ? 1 : 0;
+        }
+      }
+      issuesByComponent.put(componentKey, issues);
+    }
+  }
+
+  @Test
+  public void shouldAssignLargeProjectWithinBudget() {
+    runAnalysis("per resource");
+  }
+
+  @Test
+  public void shouldAssignLargeProjectWithinBudgetWithBulkUserLookup() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_BULK_USER_LOOKUP, true);
+    runAnalysis("bulk user lookup");
+  }
+
+  @Test
+  public void shouldAssignLargeProjectWithinBudgetWithModuleEngine() {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_MODULE_ENGINE, true);
+    runAnalysis("module engine");
+  }
+
+  private void runAnalysis(String mode) {
+    IssueCache issueCache = issueCache();
+    AutoAssignedIssueRegistry registry = new AutoAssignedIssueRegistry();
+    AuthorDictionary authorDictionary = new AuthorDictionary();
+    AssignmentMetrics metrics = new AssignmentMetrics(null, true);
+    ProjectReactor reactor = new ProjectReactor(ProjectDefinition.create());
+    ActiveUserCache userCache = new ActiveUserCache(userDao(), authorDictionary, new LoginAliasResolver(settings),
+        metrics);
+    AssignmentStrategy[] strategies = {new RoutingStrategy(settings), new BlameStrategy(settings, project, userCache),
+        new ComponentOwnerStrategy(settings, reactor), new DefaultAssigneeStrategy(settings)};
+    Decorator decorator = new IssueAutoAssignDecorator(settings, project, issueCache, issueUpdater(), perspectives(),
+        index(), userCache, authorDictionary, registry, new PersistentBlameCache(settings, reactor), strategies,
+        metrics);
+    SendAutoAssignedNewIssueNotificationPostJob postJob = new SendAutoAssignedNewIssueNotificationPostJob(settings,
+        issueCache, registry, notificationFactory(), notificationManager(), metrics);
+    DecoratorContext context = decoratorContext();
+
+    List<MemoryPoolMXBean> heapPools = heapPools();
+    for (MemoryPoolMXBean pool : heapPools) {
+      pool.resetPeakUsage();
+    }
+    long start = System.nanoTime();
+    for (Resource file : files) {
+      currentFile = file;
+      decorator.decorate(file, context);
+    }
+    currentFile = project;
+    decorator.decorate(project, context);
+    postJob.executeOn(project, mock(SensorContext.class));
+    long wallTimeMs = (System.nanoTime() - start) / 1000000L;
+    long peakHeap = 0L;
+    for (MemoryPoolMXBean pool : heapPools) {
+      peakHeap += pool.getPeakUsage().getUsed();
+    }
+    long peakHeapMb = peakHeap / (1024L * 1024L);
+
+    logger.info("Scale test ({}): {} files x {} lines, {} authors, {} issues", new Object[] {mode, profile.files,
+        profile.linesPerFile, profile.authors, profile.issueCount()});
+    logger.info("Wall time [{}] ms, peak heap [{}] MB, [{}] DB calls, [{}] cache writes, [{}] notifications",
+        new Object[] {wallTimeMs, peakHeapMb, dbCalls.get(), cacheWrites.get(), notifications.get()});
+    logger.info(metrics.summary());
+
+    assertThat(cacheWrites.get()).isEqualTo(expectedAssignedIssues);
+    assertThat(notifications.get()).isEqualTo(expectedAssignedNewIssues);
+    if (profile.maxWallTimeMs != null) {
+      assertThat(wallTimeMs).as("wall time (ms)").isLessThanOrEqualTo(profile.maxWallTimeMs);
+    }
+    if (profile.maxPeakHeapMb != null) {
+      assertThat(peakHeapMb).as("peak heap (MB)").isLessThanOrEqualTo(profile.maxPeakHeapMb);
+    }
+    assertThat(dbCalls.get()).as("DB calls").isLessThanOrEqualTo(profile.maxDbCalls());
+    assertThat(cacheWrites.get()).as("cache writes").isLessThanOrEqualTo(profile.maxCacheWrites());
+  }
+
+  private static List<MemoryPoolMXBean> heapPools() {
+    List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+        heapPools.add(pool);
+      }
+    }
+    return heapPools;
+  }
+
+  private IssueCache issueCache() {
+    IssueCache issueCache = mock(IssueCache.class);
+    when(issueCache.byComponent(anyString())).thenAnswer(new Answer<List<DefaultIssue>>() {
+      @Override
+      public List<DefaultIssue> answer(InvocationOnMock invocation) {
+        List<DefaultIssue> issues = issuesByComponent.get((String) invocation.getArguments()[0]);
+        return issues == null ? Collections.<DefaultIssue>emptyList() : issues;
+      }
+    });
+    when(issueCache.put(any(DefaultIssue.class))).thenAnswer(new Answer<IssueCache>() {
+      @Override
+      public IssueCache answer(InvocationOnMock invocation) {
+        cacheWrites.incrementAndGet();
+        return (IssueCache) invocation.getMock();
+      }
+    });
+    return issueCache;
+  }
+
+  private IssueUpdater issueUpdater() {
+    IssueUpdater updater = mock(IssueUpdater.class);
+    when(updater.assign(any(DefaultIssue.class), any(User.class), any(IssueChangeContext.class)))
+        .thenAnswer(new Answer<Boolean>() {
+          @Override
+          public Boolean answer(InvocationOnMock invocation) {
+            ((DefaultIssue) invocation.getArguments()[0]).setAssignee(((User) invocation.getArguments()[1]).login());
+            return true;
+          }
+        });
+    return updater;
+  }
+
+  private UserDao userDao() {
+    UserDao userDao = mock(UserDao.class);
+    when(userDao.selectActiveUserByLogin(anyString())).thenAnswer(new Answer<UserDto>() {
+      @Override
+      public UserDto answer(InvocationOnMock invocation) {
+        dbCalls.incrementAndGet();
+        return activeUsersByLogin.get((String) invocation.getArguments()[0]);
+      }
+    });
+    when(userDao.selectUsers(any(UserQuery.class))).thenAnswer(new Answer<List<UserDto>>() {
+      @Override
+      public List<UserDto> answer(InvocationOnMock invocation) {
+        dbCalls.incrementAndGet();
+        List<UserDto> users = new ArrayList<UserDto>();
+        for (String login : ((UserQuery) invocation.getArguments()[0]).logins()) {
+          if (activeUsersByLogin.containsKey(login)) {
+            users.add(activeUsersByLogin.get(login));
+          }
+        }
+        return users;
+      }
+    });
+    return userDao;
+  }
+
+  private ResourcePerspectives perspectives() {
+    Issuable issuable = mock(Issuable.class);
+    when(issuable.issues()).thenAnswer(new Answer<List<Issue>>() {
+      @Override
+      public List<Issue> answer(InvocationOnMock invocation) {
+        return new ArrayList<Issue>(issuesByComponent.get(currentFile.getEffectiveKey()));
+      }
+    });
+    ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
+    when(perspectives.as(eq(Issuable.class), any(Resource.class))).thenReturn(issuable);
+    return perspectives;
+  }
+
+  private DecoratorContext decoratorContext() {
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getMeasure(any(Metric.class))).thenAnswer(new Answer<Measure>() {
+      @Override
+      public Measure answer(InvocationOnMock invocation) {
+        return measure(currentFile, (Metric) invocation.getArguments()[0]);
+      }
+    });
+    return context;
+  }
+
+  private SonarIndex index() {
+    SonarIndex index = mock(SonarIndex.class);
+    when(index.getMeasure(any(Resource.class), any(Metric.class))).thenAnswer(new Answer<Measure>() {
+      @Override
+      public Measure answer(InvocationOnMock invocation) {
+        return measure((Resource) invocation.getArguments()[0], (Metric) invocation.getArguments()[1]);
+      }
+    });
+    return index;
+  }
+
+  private Measure measure(Resource resource, Metric metric) {
+    return CoreMetrics.SCM_AUTHORS_BY_LINE.equals(metric) && resource.getEffectiveKey() != null ?
+        authorsMeasuresByComponent.get(resource.getEffectiveKey()) : null;
+  }
+
+  private AutoAssignedNewIssueNotificationFactory notificationFactory() {
+    RuleFinder ruleFinder = mock(RuleFinder.class);
+    when(ruleFinder.findByKey(any(RuleKey.class))).thenReturn(Rule.create("squid", "Rule", "Synthetic rule"));
+    // No translated rule names: the names of the rules are used
+    return new AutoAssignedNewIssueNotificationFactory(ruleFinder, mock(RuleI18nManager.class));
+  }
+
+  private NotificationManager notificationManager() {
+    NotificationManager notificationManager = mock(NotificationManager.class);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        notifications.incrementAndGet();
+        return null;
+      }
+    }).when(notificationManager).scheduleForSending(any(Notification.class));
+    return notificationManager;
+  }
+
+  /**
+   * Shape of the synthetic project and budgets of its analysis, from the <code>autoassign.scale.*</code> system
+   * properties
+   * <p>
+   * By default, each SCM author is looked up at most once in the database, and each assigned issue is written back
+   * once to the issue cache. The wall time and the peak heap have no budget unless it is set.
+   * </p>
+   */
+  static final class ScaleProfile {
+    private static final String PREFIX = "autoassign.scale.";
+
+    int files;
+    int linesPerFile;
+    int authors;
+    // Issues per line
+    double issueDensity;
+    double newIssueRatio;
+    Long maxWallTimeMs;
+    Long maxPeakHeapMb;
+    private Integer maxDbCalls;
+    private Integer maxCacheWrites;
+
+    static ScaleProfile fromSystemProperties() {
+      ScaleProfile profile = new ScaleProfile();
+      profile.files = Integer.getInteger(PREFIX + "files", 300);
+      profile.linesPerFile = Integer.getInteger(PREFIX + "linesPerFile", 400);
+      profile.authors = Integer.getInteger(PREFIX + "authors", 40);
+      profile.issueDensity = Double.parseDouble(System.getProperty(PREFIX + "issueDensity", "0.02"));
+      profile.newIssueRatio = Double.parseDouble(System.getProperty(PREFIX + "newIssueRatio", "0.1"));
+      profile.maxWallTimeMs = Long.getLong(PREFIX + "maxWallTimeMs");
+      profile.maxPeakHeapMb = Long.getLong(PREFIX + "maxPeakHeapMb");
+      profile.maxDbCalls = Integer.getInteger(PREFIX + "maxDbCalls");
+      profile.maxCacheWrites = Integer.getInteger(PREFIX + "maxCacheWrites");
+      return profile;
+    }
+
+    int issueCount() {
+      return files * (int) Math.round(linesPerFile * issueDensity);
+    }
+
+    int maxDbCalls() {
+      return maxDbCalls != null ? maxDbCalls : authors;
+    }
+
+    int maxCacheWrites() {
+      return maxCacheWrites != null ? maxCacheWrites : issueCount();
+    }
+  }
+}
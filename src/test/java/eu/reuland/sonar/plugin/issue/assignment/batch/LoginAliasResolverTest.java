@@ -0,0 +1,87 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import eu.reuland.sonar.plugin.issue.assignment.IssueAutoAssignPlugin;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class LoginAliasResolverTest {
+
+  private Settings settings = new Settings();
+
+  private LoginAliasResolver resolver(String rules) {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_LOGIN_ALIASES, rules);
+    return new LoginAliasResolver(settings);
+  }
+
+  @Test
+  public void shouldKeepScmAuthorsWhenNoAlias() {
+    LoginAliasResolver resolver = new LoginAliasResolver(settings);
+
+    assertThat(resolver.isEmpty()).isTrue();
+    assertThat(resolver.loginOf("loginA")).isEqualTo("loginA");
+  }
+
+  @Test
+  public void shouldResolveExactAliases() {
+    LoginAliasResolver resolver = resolver("jdoe@example.com=john\n  old.account = john  \r\nsomeone=else");
+
+    assertThat(resolver.loginOf("jdoe@example.com")).isEqualTo("john");
+    assertThat(resolver.loginOf("old.account")).isEqualTo("john");
+    assertThat(resolver.loginOf("someone")).isEqualTo("else");
+    assertThat(resolver.loginOf("JDOE@example.com")).isEqualTo("JDOE@example.com");
+  }
+
+  @Test
+  public void shouldResolveRegexAliases() {
+    LoginAliasResolver resolver = resolver("regex:(.+)_legacy=$1\nregex:svn-(\\w+)=$1");
+
+    assertThat(resolver.loginOf("john_legacy")).isEqualTo("john");
+    assertThat(resolver.loginOf("svn-jane")).isEqualTo("jane");
+    assertThat(resolver.loginOf("my-svn-jane")).isEqualTo("my-svn-jane");
+  }
+
+  @Test
+  public void shouldStripDomains() {
+    LoginAliasResolver resolver = resolver("domain:example.com");
+
+    assertThat(resolver.loginOf("jdoe@example.com")).isEqualTo("jdoe");
+    assertThat(resolver.loginOf("jdoe@EXAMPLE.com")).isEqualTo("jdoe");
+    assertThat(resolver.loginOf("John Doe <jdoe@example.com>")).isEqualTo("jdoe");
+    assertThat(resolver.loginOf("jdoe@other.com")).isEqualTo("jdoe@other.com");
+    assertThat(resolver.loginOf("jdoe@sub.example.com")).isEqualTo("jdoe@sub.example.com");
+    assertThat(resolver.loginOf("@example.com")).isEqualTo("@example.com");
+  }
+
+  @Test
+  public void shouldCheckExactAliasesFirstThenRulesInOrder() {
+    LoginAliasResolver resolver = resolver("regex:(.+)@example\\.com=regex-$1\ndomain:example.com\n" +
+        "boss@example.com=theboss");
+
+    assertThat(resolver.loginOf("boss@example.com")).isEqualTo("theboss");
+    assertThat(resolver.loginOf("jdoe@example.com")).isEqualTo("regex-jdoe");
+  }
+
+  @Test
+  public void shouldIgnoreMalformedRulesAndComments() {
+    LoginAliasResolver resolver = resolver("# comment\n\nnoSeparator\nregex:([=x\ndomain:\n=login\nvalid=login");
+
+    assertThat(resolver.loginOf("valid")).isEqualTo("login");
+    assertThat(resolver.loginOf("noSeparator")).isEqualTo("noSeparator");
+  }
+
+  @Test
+  public void shouldIgnoreRegexRulesWithInvalidReplacement() {
+    LoginAliasResolver resolver = resolver("regex:(.+)_x=$2\nregex:(.+)_y=$login\nregex:(.+)_z=$1\\\n" +
+        "regex:(.+)_w=$1$0");
+
+    assertThat(resolver.loginOf("jdoe_x")).isEqualTo("jdoe_x");
+    assertThat(resolver.loginOf("jdoe_y")).isEqualTo("jdoe_y");
+    assertThat(resolver.loginOf("jdoe_z")).isEqualTo("jdoe_z");
+    assertThat(resolver.loginOf("jdoe_w")).isEqualTo("jdoejdoe_w");
+  }
+}
@@ -0,0 +1,52 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class PathGlobTrieTest {
+
+  private PathGlobTrie trie = new PathGlobTrie();
+
+  @Test
+  public void shouldMatchLiteralPaths() {
+    trie.add("src/main/java/Foo.java", 0);
+
+    assertThat(trie.match("src/main/java/Foo.java")).isEqualTo(0);
+    assertThat(trie.match("src/main/java/Bar.java")).isEqualTo(PathGlobTrie.NO_MATCH);
+    assertThat(trie.match("src/main/java")).isEqualTo(PathGlobTrie.NO_MATCH);
+  }
+
+  @Test
+  public void shouldMatchAnyDepth() {
+    trie.add("generated/**", 0);
+
+    assertThat(trie.match("generated/Foo.java")).isEqualTo(0);
+    assertThat(trie.match("generated/org/foo/Foo.java")).isEqualTo(0);
+    assertThat(trie.match("src/generated/Foo.java")).isEqualTo(PathGlobTrie.NO_MATCH);
+  }
+
+  @Test
+  public void shouldMatchSegmentPatterns() {
+    trie.add("src/**/*Test.java", 0);
+    trie.add("**/gen?", 1);
+
+    assertThat(trie.match("src/test/java/org/FooTest.java")).isEqualTo(0);
+    assertThat(trie.match("src/FooTest.java")).isEqualTo(0);
+    assertThat(trie.match("src/test/java/org/Foo.java")).isEqualTo(PathGlobTrie.NO_MATCH);
+    assertThat(trie.match("x/y/gen1")).isEqualTo(1);
+    assertThat(trie.match("x/y/gen12")).isEqualTo(PathGlobTrie.NO_MATCH);
+  }
+
+  @Test
+  public void shouldReturnLowestValueOfMatchingGlobs() {
+    trie.add("src/*/java/**", 2);
+    trie.add("src/main/java/Foo.java", 1);
+
+    assertThat(trie.match("src/main/java/Foo.java")).isEqualTo(1);
+    assertThat(trie.match("src/main/java/Bar.java")).isEqualTo(2);
+  }
+}
@@ -0,0 +1,74 @@
+package eu.reuland.sonar.plugin.issue.assignment.batch;
+
+import org.junit.Test;
+import org.sonar.api.issue.internal.DefaultIssue;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class RoutingPolicyTest {
+
+  private static DefaultIssue issue(String ruleKey, String severity, String componentKey) {
+    return new DefaultIssue().setKey("issueKey").setRuleKey(RuleKey.parse(ruleKey)).setSeverity(severity)
+        .setComponentKey(componentKey);
+  }
+
+  private static String targetOf(RoutingPolicy policy, DefaultIssue issue) {
+    int route = policy.routeOf(issue);
+    return route == RoutingPolicy.NO_ROUTE ? "no route" : policy.target(route);
+  }
+
+  @Test
+  public void shouldNotRouteWithoutRules() {
+    RoutingPolicy policy = new RoutingPolicy(null);
+
+    assertThat(policy.isEmpty()).isTrue();
+    assertThat(policy.routeOf(issue("squid:S1", Severity.MAJOR, "project:Foo.java"))).isEqualTo(RoutingPolicy.NO_ROUTE);
+  }
+
+  @Test
+  public void shouldRouteByRuleSeverityAndPath() {
+    RoutingPolicy policy = new RoutingPolicy("rule:squid:S2068=appsec\n" +
+        "severity:blocker,CRITICAL=lead\n" +
+        "path:generated/**=-");
+
+    assertThat(targetOf(policy, issue("squid:S2068", Severity.MINOR, "project:src/Foo.java"))).isEqualTo("appsec");
+    assertThat(targetOf(policy, issue("squid:S1", Severity.BLOCKER, "project:src/Foo.java"))).isEqualTo("lead");
+    assertThat(targetOf(policy, issue("squid:S1", Severity.CRITICAL, "project:src/Foo.java"))).isEqualTo("lead");
+    assertThat(targetOf(policy, issue("squid:S1", Severity.MINOR, "project:generated/Foo.java"))).isNull();
+    assertThat(targetOf(policy, issue("squid:S1", Severity.MINOR, "project:src/Foo.java"))).isEqualTo("no route");
+  }
+
+  @Test
+  public void shouldMatchPathGlobsAgainstQualifiedClassNameOfJavaFiles() {
+    RoutingPolicy policy = new RoutingPolicy("path:org/foo/generated/**=wrong\npath:org.foo.generated.*=bot");
+    String generatedKey = "project:" + new JavaFile("org.foo.generated.Stub").getKey();
+    String otherKey = "project:" + new JavaFile("org.foo.Bar").getKey();
+
+    assertThat(targetOf(policy, issue("squid:S1", Severity.MINOR, generatedKey))).isEqualTo("bot");
+    assertThat(targetOf(policy, issue("squid:S1", Severity.MINOR, otherKey))).isEqualTo("no route");
+  }
+
+  @Test
+  public void shouldUseFirstDeclaredMatchingRule() {
+    RoutingPolicy policy = new RoutingPolicy("path:generated/**=bot\nrule:squid:S2068=appsec");
+
+    assertThat(targetOf(policy, issue("squid:S2068", Severity.MINOR, "project:generated/Foo.java"))).isEqualTo("bot");
+    assertThat(targetOf(policy, issue("squid:S2068", Severity.MINOR, "project:src/Foo.java"))).isEqualTo("appsec");
+  }
+
+  @Test
+  public void shouldIgnoreMalformedRules() {
+    RoutingPolicy policy = new RoutingPolicy("# comment\nrule:squid=appsec\nseverity:HUGE=lead\npath:=bot\n" +
+        "unknown:x=bot\nrule:squid:S1\nrule:squid:S2=\nrule:squid:=bot\nrule:a:b:c=bot\nseverity:MAJOR=team");
+
+    assertThat(targetOf(policy, issue("squid:S1", Severity.MAJOR, "project:Foo.java"))).isEqualTo("team");
+    assertThat(targetOf(policy, issue("squid:S2", Severity.MINOR, "project:Foo.java"))).isEqualTo("no route");
+    assertThat(targetOf(policy, issue("a:b", Severity.MINOR, "project:Foo.java"))).isEqualTo("no route");
+  }
+}
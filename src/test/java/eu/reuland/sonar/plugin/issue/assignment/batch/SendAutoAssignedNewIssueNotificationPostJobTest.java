@@ -35,6 +35,7 @@ public class SendAutoAssignedNewIssueNotificationPostJobTest {
   private Settings settings = new Settings(
       new PropertyDefinitions(IssueAutoAssignPlugin.propertyDefinitions()));
   private AutoAssignedNewIssueNotificationFactory notificationFactory = mock(AutoAssignedNewIssueNotificationFactory.class);
+  private AutoAssignedIssueRegistry autoAssignedIssueRegistry = new AutoAssignedIssueRegistry();
 
 
   @Before
@@ -47,15 +48,16 @@ public class SendAutoAssignedNewIssueNotificationPostJobTest {
   public void shouldSendNotificationIfNewIssueHasBeenAssigned() throws Exception {
     RuleKey ruleKey = RuleKey.of("squid", "AvoidCycles");
     Rule rule = new Rule("squid", "AvoidCycles");
-    DefaultIssue toBeNotifiedIssue = new DefaultIssue().setNew(true).setAssignee("defaultAssignee").setRuleKey(ruleKey);
+    DefaultIssue toBeNotifiedIssue = new DefaultIssue().setKey("A").setComponentKey("component").setNew(true).setAssignee("defaultAssignee").setRuleKey(ruleKey);
     when(project.getAnalysisDate()).thenReturn(DateUtils.parseDate("2013-12-31"));
-    when(issueCache.all()).thenReturn(Arrays.asList(
-        new DefaultIssue().setNew(true).setRuleKey(ruleKey), // no assignee (should not be notified)
+    when(issueCache.byComponent("component")).thenReturn(Arrays.asList(
+        new DefaultIssue().setKey("B").setComponentKey("component").setNew(true).setAssignee("otherAssignee"), // not auto-assigned (should not be notified)
         toBeNotifiedIssue,
-        new DefaultIssue().setNew(false).setAssignee("defaultAssignee") // not a new issue (should not be notified)
+        new DefaultIssue().setKey("C").setComponentKey("component").setNew(false).setAssignee("defaultAssignee") // not a new issue (should not be notified)
     ));
+    autoAssignedIssueRegistry.register(toBeNotifiedIssue);
 
-    SendAutoAssignedNewIssueNotificationPostJob job = new SendAutoAssignedNewIssueNotificationPostJob(settings, issueCache, notificationFactory, notificationManager);
+    SendAutoAssignedNewIssueNotificationPostJob job = newPostJob();
     job.executeOn(project, sensorContext);
 
     ArgumentCaptor<Notification> notificationCaptor = ArgumentCaptor.forClass(Notification.class);
@@ -63,14 +65,59 @@ public class SendAutoAssignedNewIssueNotificationPostJobTest {
     verify(notificationManager).scheduleForSending(notificationCaptor.capture());
     assertThat(notificationCaptor.getAllValues().size()).isEqualTo(1);
     assertThat(notificationCaptor.getValue()).isEqualTo(generatedNotification);
+    verify(issueCache, never()).all();
+  }
+
+  @Test
+  public void shouldSendOneDigestNotificationPerAssigneeInDigestMode() throws Exception {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_NOTIFICATION_DIGEST, true);
+    DefaultIssue issueA = new DefaultIssue().setKey("A").setComponentKey("component").setNew(true).setAssignee("userA");
+    DefaultIssue issueB = new DefaultIssue().setKey("B").setComponentKey("component").setNew(true).setAssignee("userB");
+    DefaultIssue issueC = new DefaultIssue().setKey("C").setComponentKey("component").setNew(true).setAssignee("userA");
+    when(issueCache.byComponent("component")).thenReturn(Arrays.asList(issueA, issueB, issueC));
+    autoAssignedIssueRegistry.register(issueA);
+    autoAssignedIssueRegistry.register(issueB);
+    autoAssignedIssueRegistry.register(issueC);
+
+    newPostJob().executeOn(project, sensorContext);
 
+    verify(notificationFactory).createDigest(project, "userA", Arrays.asList(issueA, issueC));
+    verify(notificationFactory).createDigest(project, "userB", Arrays.asList(issueB));
+    verify(notificationFactory, never()).create(any(Project.class), any(DefaultIssue.class));
+    verify(notificationManager, times(2)).scheduleForSending(any(Notification.class));
+  }
+
+  @Test
+  public void shouldSendCompactNotificationsInCompactMode() throws Exception {
+    settings.setProperty(IssueAutoAssignPlugin.PROPERTY_COMPACT_NOTIFICATIONS, true);
+    DefaultIssue issue = new DefaultIssue().setKey("A").setComponentKey("component").setNew(true).setAssignee("userA");
+    when(issueCache.byComponent("component")).thenReturn(Arrays.asList(issue));
+    autoAssignedIssueRegistry.register(issue);
+
+    newPostJob().executeOn(project, sensorContext);
+
+    verify(notificationFactory).createCompact(project, issue);
+    verify(notificationFactory, never()).create(any(Project.class), any(DefaultIssue.class));
+    verify(notificationManager).scheduleForSending(any(Notification.class));
+  }
+
+  @Test
+  public void shouldNotReadIssueCacheWhenNoIssueHasBeenAutoAssigned() throws Exception {
+    SendAutoAssignedNewIssueNotificationPostJob job = newPostJob();
+    job.executeOn(project, sensorContext);
+    verifyZeroInteractions(issueCache, notificationFactory, notificationManager);
   }
 
   @Test
   public void doNothingWhenNotEnabled() throws Exception {
     settings.setProperty(IssueAutoAssignPlugin.PROPERTY_PLUGIN_ENABLED, false);
-    SendAutoAssignedNewIssueNotificationPostJob job = new SendAutoAssignedNewIssueNotificationPostJob(settings, issueCache, notificationFactory, notificationManager);
+    SendAutoAssignedNewIssueNotificationPostJob job = newPostJob();
     job.executeOn(project, sensorContext);
     verifyZeroInteractions(project, sensorContext, issueCache, notificationFactory, notificationManager);
   }
+
+  private SendAutoAssignedNewIssueNotificationPostJob newPostJob() {
+    return new SendAutoAssignedNewIssueNotificationPostJob(settings, issueCache, autoAssignedIssueRegistry,
+        notificationFactory, notificationManager, AssignmentMetrics.DISABLED);
+  }
 }
\ No newline at end of file
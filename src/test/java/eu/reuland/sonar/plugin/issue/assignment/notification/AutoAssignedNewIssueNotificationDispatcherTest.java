@@ -49,4 +49,20 @@ public class AutoAssignedNewIssueNotificationDispatcherTest {
     verify(context).addUser("issueAssignee", emailChannel);
     verifyNoMoreInteractions(context);
   }
+
+  @Test
+  public void shouldLookUpSubscribersOncePerProjectForBurstOfNotifications() {
+    Multimap<String, NotificationChannel> recipients = HashMultimap.create();
+    recipients.put("issueAssignee", emailChannel);
+    when(notificationManager.findNotificationSubscribers(dispatcher, "struts")).thenReturn(recipients);
+
+    for (int i = 0; i < 500; i++) {
+      dispatcher.performDispatch(new Notification(NOTIFICATION_TYPE_KEY)
+          .setFieldValue(PROJECT_KEY.name(), "struts")
+          .setFieldValue(ASSIGNEE.name(), "issueAssignee"), context);
+    }
+
+    verify(notificationManager, times(1)).findNotificationSubscribers(dispatcher, "struts");
+    verify(context, times(500)).addUser("issueAssignee", emailChannel);
+  }
 }
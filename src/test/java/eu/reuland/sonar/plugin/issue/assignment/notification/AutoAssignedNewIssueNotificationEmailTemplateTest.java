@@ -2,16 +2,31 @@ package eu.reuland.sonar.plugin.issue.assignment.notification;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.api.component.Component;
 import org.sonar.api.config.EmailSettings;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.IssueFinder;
+import org.sonar.api.issue.IssueQuery;
+import org.sonar.api.issue.IssueQueryResult;
+import org.sonar.api.issue.internal.DefaultIssue;
 import org.sonar.api.notifications.Notification;
+import org.sonar.api.rule.RuleKey;
 import org.sonar.api.user.UserFinder;
 import org.sonar.plugins.emailnotifications.api.EmailMessage;
 import org.sonar.test.TestUtils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationField.*;
 import static org.fest.assertions.Assertions.assertThat;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
 
 /**
  * @author Vincent Reuland
@@ -19,13 +34,15 @@ import static org.mockito.Mockito.when;
 public class AutoAssignedNewIssueNotificationEmailTemplateTest {
 
   private UserFinder userFinder = mock(UserFinder.class);
+  private IssueFinder issueFinder = mock(IssueFinder.class);
+  private AutoAssignedNewIssueNotificationFactory notificationFactory = mock(AutoAssignedNewIssueNotificationFactory.class);
   private AutoAssignedNewIssueNotificationEmailTemplate template;
 
   @Before
   public void setUp() {
     EmailSettings settings = mock(EmailSettings.class);
     when(settings.getServerBaseURL()).thenReturn("http://localhost:9000");
-    template = new AutoAssignedNewIssueNotificationEmailTemplate(settings);
+    template = new AutoAssignedNewIssueNotificationEmailTemplate(settings, issueFinder, notificationFactory);
   }
 
   @Test
@@ -54,7 +71,105 @@ public class AutoAssignedNewIssueNotificationEmailTemplateTest {
     String expectedMessage = TestUtils.getResourceContent("/test/sample/notification/email_expected_body.txt");
     assertThat(email.getMessage()).isEqualTo(expectedMessage);
     assertThat(email.getFrom()).isNull();
+    verifyZeroInteractions(issueFinder, notificationFactory);
+  }
+
+  @Test
+  public void shouldCompleteCompactNotification() throws Exception {
+    RuleKey ruleKey = RuleKey.of("squid", "AvoidCycles");
+    DefaultIssue issue = new DefaultIssue().setKey("ABCDE").setComponentKey("org.apache:struts:org.apache.struts.Action")
+        .setSeverity("MAJOR").setRuleKey(ruleKey).setMessage("Has 3 cycles");
+    IssueQueryResult result = mock(IssueQueryResult.class);
+    Component project = mock(Component.class);
+    when(issueFinder.find(any(IssueQuery.class))).thenReturn(result);
+    when(result.issues()).thenReturn(Arrays.<Issue>asList(issue));
+    when(result.project(issue)).thenReturn(project);
+    when(project.longName()).thenReturn("Struts");
+    when(notificationFactory.ruleName(ruleKey)).thenReturn("Avoid Cycles");
+
+    Notification notification = new Notification(AutoAssignedNewIssueNotificationFactory.NOTIFICATION_TYPE_KEY)
+        .setFieldValue(PROJECT_KEY.name(), "org.apache:struts")
+        .setFieldValue(ISSUE_KEY.name(), "ABCDE")
+        .setFieldValue(ASSIGNEE.name(), "defaultAssignee");
+
+    EmailMessage email = template.format(notification);
+    assertThat(email.getSubject()).isEqualTo("Struts, a new issue has been assigned to you: #ABCDE");
+    String expectedMessage = TestUtils.getResourceContent("/test/sample/notification/email_expected_body.txt");
+    assertThat(email.getMessage()).isEqualTo(expectedMessage);
   }
 
+  @Test
+  public void shouldLoadLatestIssuesOfAssigneeOnceToCompleteSuccessiveCompactNotifications() {
+    DefaultIssue issueA = new DefaultIssue().setKey("ABCDE").setComponentKey("org.apache:struts:org.apache.struts.A")
+        .setRuleKey(RuleKey.of("squid", "AvoidCycles"));
+    DefaultIssue issueB = new DefaultIssue().setKey("FGHIJ").setComponentKey("org.apache:struts:org.apache.struts.B")
+        .setRuleKey(RuleKey.of("squid", "AvoidCycles"));
+    IssueQueryResult result = mock(IssueQueryResult.class);
+    when(issueFinder.find(any(IssueQuery.class))).thenReturn(result);
+    when(result.issues()).thenReturn(Arrays.<Issue>asList(issueA, issueB));
 
+    EmailMessage emailA = template.format(compactNotification("ABCDE"));
+    EmailMessage emailB = template.format(compactNotification("FGHIJ"));
+
+    assertThat(emailA.getMessage()).contains("org.apache.struts.A");
+    assertThat(emailB.getMessage()).contains("org.apache.struts.B");
+    verify(issueFinder, times(1)).find(any(IssueQuery.class));
+  }
+
+  @Test
+  public void shouldNotFormatCompactNotificationOfMissingIssue() {
+    IssueQueryResult result = mock(IssueQueryResult.class);
+    when(issueFinder.find(any(IssueQuery.class))).thenReturn(result);
+    when(result.issues()).thenReturn(new ArrayList<Issue>());
+
+    assertThat(template.format(compactNotification("ABCDE"))).isNull();
+    // The latest issues of the assignee, then the issue alone
+    verify(issueFinder, times(2)).find(any(IssueQuery.class));
+  }
+
+  private Notification compactNotification(String issueKey) {
+    return new Notification(AutoAssignedNewIssueNotificationFactory.NOTIFICATION_TYPE_KEY)
+        .setFieldValue(PROJECT_KEY.name(), "org.apache:struts")
+        .setFieldValue(ISSUE_KEY.name(), issueKey)
+        .setFieldValue(ASSIGNEE.name(), "defaultAssignee");
+  }
+
+  @Test
+  public void shouldFormatSameBodyForSuccessiveEmails() {
+    String first = template.format(notification("ABCDE")).getMessage();
+    String second = template.format(notification("ABCDE")).getMessage();
+    assertThat(second).isEqualTo(first);
+    assertThat(template.format(notification("FGHIJ")).getMessage()).contains("FGHIJ").excludes("ABCDE");
+  }
+
+  @Test
+  public void shouldFormatEmailsConcurrently() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> bodies = new ArrayList<Future<String>>();
+      for (int i = 0; i < 200; i++) {
+        final String issueKey = "ISSUE-" + i;
+        bodies.add(executor.submit(new Callable<String>() {
+          @Override
+          public String call() {
+            return template.format(notification(issueKey)).getMessage();
+          }
+        }));
+      }
+      for (int i = 0; i < bodies.size(); i++) {
+        assertThat(bodies.get(i).get()).isEqualTo(template.format(notification("ISSUE-" + i)).getMessage());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private Notification notification(String issueKey) {
+    return new Notification(AutoAssignedNewIssueNotificationFactory.NOTIFICATION_TYPE_KEY)
+        .setFieldValue(PROJECT_NAME.name(), "Struts")
+        .setFieldValue(COMPONENT_KEY.name(), "org.apache:struts:org.apache.struts.Action")
+        .setFieldValue(ISSUE_KEY.name(), issueKey)
+        .setFieldValue(RULE_NAME.name(), "Avoid Cycles")
+        .setFieldValue(MESSAGE.name(), "Has 3 cycles");
+  }
 }
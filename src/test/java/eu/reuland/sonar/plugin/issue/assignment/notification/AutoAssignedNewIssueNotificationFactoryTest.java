@@ -3,6 +3,7 @@ package eu.reuland.sonar.plugin.issue.assignment.notification;
 import org.junit.Test;
 import org.sonar.api.i18n.RuleI18n;
 import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.internal.DefaultIssue;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.resources.Project;
 import org.sonar.api.rule.RuleKey;
@@ -10,13 +11,14 @@ import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
 import org.sonar.core.i18n.RuleI18nManager;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationFactory.NOTIFICATION_TYPE_KEY;
 import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationField.*;
 import static org.fest.assertions.Assertions.assertThat;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 /**
  * @author Vincent Reuland
@@ -58,4 +60,88 @@ public class AutoAssignedNewIssueNotificationFactoryTest {
     assertThat(notification.getFieldValue(MESSAGE.name())).isEqualTo("Unused import message");
     assertThat(notification.getFieldValue(RULE_NAME.name())).isEqualTo("Useless imports should be removed");
   }
+
+  @Test
+  public void shouldCreateCompactNotification() {
+    Project project = new Project("org.apache.struts");
+    project.setName("Struts");
+    when(issue.componentKey()).thenReturn("org.apache.struts::org.apache:struts:org.apache.struts.Action");
+    when(issue.key()).thenReturn("ABCDE");
+    when(issue.assignee()).thenReturn("defaultAssignee");
+    when(issue.message()).thenReturn("Unused import message");
+
+    Notification notification = new AutoAssignedNewIssueNotificationFactory(ruleFinder, ruleI18n).createCompact(project, issue);
+
+    assertThat(notification.getType()).isEqualTo(NOTIFICATION_TYPE_KEY);
+    assertThat(notification.getFieldValue(PROJECT_KEY.name())).isEqualTo("org.apache.struts");
+    assertThat(notification.getFieldValue(ISSUE_KEY.name())).isEqualTo("ABCDE");
+    assertThat(notification.getFieldValue(ASSIGNEE.name())).isEqualTo("defaultAssignee");
+    assertThat(notification.getFieldValue(PROJECT_NAME.name())).isNull();
+    assertThat(notification.getFieldValue(COMPONENT_KEY.name())).isNull();
+    assertThat(notification.getFieldValue(MESSAGE.name())).isNull();
+    verifyZeroInteractions(ruleFinder, ruleI18n);
+  }
+
+  @Test
+  public void shouldLookUpEachRuleOnce() {
+    RuleKey ruleKeyA = RuleKey.parse("squid:A");
+    RuleKey ruleKeyB = RuleKey.parse("squid:B");
+    Rule ruleA = Rule.create("squid", "A", "Rule A");
+    Rule ruleB = Rule.create("squid", "B", "Rule B");
+    when(ruleFinder.findByKey(ruleKeyA)).thenReturn(ruleA);
+    when(ruleFinder.findByKey(ruleKeyB)).thenReturn(ruleB);
+    when(issue.ruleKey()).thenReturn(ruleKeyA, ruleKeyB, ruleKeyA);
+
+    AutoAssignedNewIssueNotificationFactory factory = new AutoAssignedNewIssueNotificationFactory(ruleFinder, ruleI18n);
+    Project project = new Project("org.apache.struts");
+
+    assertThat(factory.create(project, issue).getFieldValue(RULE_NAME.name())).isEqualTo("Rule A");
+    assertThat(factory.create(project, issue).getFieldValue(RULE_NAME.name())).isEqualTo("Rule B");
+    assertThat(factory.create(project, issue).getFieldValue(RULE_NAME.name())).isEqualTo("Rule A");
+    verify(ruleFinder, times(1)).findByKey(ruleKeyA);
+    verify(ruleFinder, times(1)).findByKey(ruleKeyB);
+  }
+
+  @Test
+  public void shouldReloadEvictedRuleNames() {
+    RuleKey ruleKeyA = RuleKey.parse("squid:A");
+    RuleKey ruleKeyB = RuleKey.parse("squid:B");
+    when(ruleFinder.findByKey(ruleKeyA)).thenReturn(Rule.create("squid", "A", "Rule A"));
+    when(ruleFinder.findByKey(ruleKeyB)).thenReturn(Rule.create("squid", "B", "Rule B"));
+
+    AutoAssignedNewIssueNotificationFactory factory = new AutoAssignedNewIssueNotificationFactory(ruleFinder, ruleI18n,
+        new RuleNameCache(1));
+    assertThat(factory.ruleName(ruleKeyA)).isEqualTo("Rule A");
+    assertThat(factory.ruleName(ruleKeyB)).isEqualTo("Rule B");
+    assertThat(factory.ruleName(ruleKeyA)).isEqualTo("Rule A");
+
+    verify(ruleFinder, times(2)).findByKey(ruleKeyA);
+    verify(ruleFinder, times(1)).findByKey(ruleKeyB);
+  }
+
+  @Test
+  public void shouldCreateDigestWithCappedIssueList() {
+    Project project = new Project("org.apache.struts");
+    project.setName("Struts");
+    RuleKey ruleKey = RuleKey.parse("squid:UselessImportCheck");
+    when(ruleFinder.findByKey(ruleKey)).thenReturn(Rule.create("squid", "UselessImportCheck", "Useless imports"));
+    List<Issue> issues = new ArrayList<Issue>();
+    for (int i = 0; i < AutoAssignedNewIssueNotificationFactory.DIGEST_MAX_LISTED_ISSUES + 5; i++) {
+      issues.add(new DefaultIssue().setKey("ISSUE-" + i).setComponentKey("Action" + i).setRuleKey(ruleKey)
+          .setSeverity("MINOR").setMessage("Unused import " + i));
+    }
+
+    AutoAssignedNewIssueNotificationFactory factory = new AutoAssignedNewIssueNotificationFactory(ruleFinder, ruleI18n);
+    Notification notification = factory.createDigest(project, "defaultAssignee", issues);
+
+    assertThat(notification.getType()).isEqualTo(AutoAssignedNewIssueNotificationFactory.DIGEST_NOTIFICATION_TYPE_KEY);
+    assertThat(notification.getFieldValue(AutoAssignedNewIssuesDigestField.PROJECT_KEY.name())).isEqualTo("org.apache.struts");
+    assertThat(notification.getFieldValue(AutoAssignedNewIssuesDigestField.ASSIGNEE.name())).isEqualTo("defaultAssignee");
+    assertThat(notification.getFieldValue(AutoAssignedNewIssuesDigestField.ISSUE_COUNT.name())).isEqualTo("25");
+    assertThat(notification.getFieldValue(AutoAssignedNewIssuesDigestField.LISTED_ISSUE_COUNT.name())).isEqualTo("20");
+    assertThat(notification.getFieldValue(AutoAssignedNewIssuesDigestField.listedIssueField(19, ISSUE_KEY))).isEqualTo("ISSUE-19");
+    assertThat(notification.getFieldValue(AutoAssignedNewIssuesDigestField.listedIssueField(19, RULE_NAME))).isEqualTo("Useless imports");
+    assertThat(notification.getFieldValue(AutoAssignedNewIssuesDigestField.listedIssueField(20, ISSUE_KEY))).isNull();
+    verify(ruleFinder, times(1)).findByKey(ruleKey);
+  }
 }
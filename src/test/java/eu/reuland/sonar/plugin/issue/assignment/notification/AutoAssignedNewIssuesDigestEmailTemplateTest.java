@@ -0,0 +1,71 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.config.EmailSettings;
+import org.sonar.api.notifications.Notification;
+import org.sonar.plugins.emailnotifications.api.EmailMessage;
+
+import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssuesDigestField.*;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Vincent Reuland
+ */
+public class AutoAssignedNewIssuesDigestEmailTemplateTest {
+
+  private AutoAssignedNewIssuesDigestEmailTemplate template;
+
+  @Before
+  public void setUp() {
+    EmailSettings settings = mock(EmailSettings.class);
+    when(settings.getServerBaseURL()).thenReturn("http://localhost:9000");
+    template = new AutoAssignedNewIssuesDigestEmailTemplate(settings);
+  }
+
+  @Test
+  public void shouldIgnoreOtherNotifications() {
+    assertThat(template.format(new Notification(AutoAssignedNewIssueNotificationFactory.NOTIFICATION_TYPE_KEY))).isNull();
+  }
+
+  @Test
+  public void formatEmail() {
+    Notification notification = new Notification(AutoAssignedNewIssueNotificationFactory.DIGEST_NOTIFICATION_TYPE_KEY)
+        .setFieldValue(PROJECT_NAME.name(), "Struts")
+        .setFieldValue(PROJECT_KEY.name(), "org.apache:struts")
+        .setFieldValue(ASSIGNEE.name(), "defaultAssignee")
+        .setFieldValue(ISSUE_COUNT.name(), "25")
+        .setFieldValue(LISTED_ISSUE_COUNT.name(), "2");
+    for (int i = 0; i < 2; i++) {
+      notification
+          .setFieldValue(listedIssueField(i, AutoAssignedNewIssueNotificationField.COMPONENT_KEY), "org.apache:struts:Action" + i)
+          .setFieldValue(listedIssueField(i, AutoAssignedNewIssueNotificationField.ISSUE_KEY), "ISSUE-" + i)
+          .setFieldValue(listedIssueField(i, AutoAssignedNewIssueNotificationField.SEVERITY), "MAJOR")
+          .setFieldValue(listedIssueField(i, AutoAssignedNewIssueNotificationField.RULE_NAME), "Avoid Cycles")
+          .setFieldValue(listedIssueField(i, AutoAssignedNewIssueNotificationField.MESSAGE), "Has " + i + " cycles");
+    }
+
+    EmailMessage email = template.format(notification);
+
+    assertThat(email.getMessageId()).isEqualTo("auto-assigned-new-issues-digest/org.apache:struts/defaultAssignee");
+    assertThat(email.getSubject()).isEqualTo("Struts, 25 new issues have been assigned to you");
+    assertThat(email.getMessage())
+        .startsWith("25 new issues have been automatically assigned to you")
+        .contains("[MAJOR] Avoid Cycles: Has 0 cycles")
+        .contains("http://localhost:9000/issue/show/ISSUE-1")
+        .contains("... and 23 more.");
+  }
+
+  @Test
+  public void shouldNotMentionUnlistedIssuesWhenAllAreListed() {
+    Notification notification = new Notification(AutoAssignedNewIssueNotificationFactory.DIGEST_NOTIFICATION_TYPE_KEY)
+        .setFieldValue(PROJECT_NAME.name(), "Struts")
+        .setFieldValue(ISSUE_COUNT.name(), "1")
+        .setFieldValue(LISTED_ISSUE_COUNT.name(), "1")
+        .setFieldValue(listedIssueField(0, AutoAssignedNewIssueNotificationField.ISSUE_KEY), "ISSUE-0");
+
+    assertThat(template.format(notification).getMessage()).contains("ISSUE-0").excludes("more.");
+  }
+}
@@ -0,0 +1,90 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+import org.antlr.stringtemplate.StringTemplate;
+import org.antlr.stringtemplate.StringTemplateGroup;
+import org.sonar.api.config.EmailSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.notifications.Notification;
+
+import static eu.reuland.sonar.plugin.issue.assignment.notification.AutoAssignedNewIssueNotificationField.*;
+
+/**
+ * Reports the number of auto-assigned new issue emails formatted per second, when the body template is loaded for
+ * each email (former behaviour) and when it is loaded once
+ * <p>
+ * Not a unit test: to be launched manually (i.e. from the IDE).
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public class EmailTemplateRenderingBenchmark {
+
+  private static final int NOTIFICATIONS = 10000;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    final EmailSettings settings = new EmailSettings(new Settings());
+    final Notification[] notifications = generateNotifications();
+    // Notifications are complete: no issue lookup nor rule name needed
+    final AutoAssignedNewIssueNotificationEmailTemplate template =
+        new AutoAssignedNewIssueNotificationEmailTemplate(settings, null, null);
+
+    for (int round = 1; round <= ROUNDS; round++) {
+      System.out.println("Round " + round);
+      report("Template loaded per email", new Renderer() {
+        @Override
+        public String render(Notification notification) {
+          return renderWithTemplateLoadedPerEmail(settings, notification);
+        }
+      }, notifications);
+      report("Template loaded once", new Renderer() {
+        @Override
+        public String render(Notification notification) {
+          return template.format(notification).getMessage();
+        }
+      }, notifications);
+    }
+  }
+
+  private interface Renderer {
+    String render(Notification notification);
+  }
+
+  private static void report(String name, Renderer renderer, Notification[] notifications) {
+    long length = 0;
+    long start = System.nanoTime();
+    for (Notification notification : notifications) {
+      length += renderer.render(notification).length();
+    }
+    long elapsed = System.nanoTime() - start;
+    System.out.println(String.format("  %-26s %,10.0f emails/s (%,d chars)", name,
+        notifications.length * 1e9 / elapsed, length));
+  }
+
+  // Former rendering of AutoAssignedNewIssueNotificationEmailTemplate.generateMessageBody
+  private static String renderWithTemplateLoadedPerEmail(EmailSettings settings, Notification notification) {
+    StringTemplate template = new StringTemplateGroup("templates")
+        .getInstanceOf(AutoAssignedNewIssueNotificationEmailTemplate.BODY_TEMPLATE_NAME);
+    template.setAttribute("SETTINGS", settings);
+    for (AutoAssignedNewIssueNotificationField field : AutoAssignedNewIssueNotificationField.values()) {
+      template.setAttribute(field.name(), notification.getFieldValue(field.name()));
+    }
+    return template.toString();
+  }
+
+  private static Notification[] generateNotifications() {
+    Notification[] notifications = new Notification[NOTIFICATIONS];
+    for (int i = 0; i < NOTIFICATIONS; i++) {
+      notifications[i] = new Notification(AutoAssignedNewIssueNotificationFactory.NOTIFICATION_TYPE_KEY)
+          .setFieldValue(PROJECT_NAME.name(), "Struts")
+          .setFieldValue(PROJECT_KEY.name(), "org.apache:struts")
+          .setFieldValue(COMPONENT_KEY.name(), "org.apache:struts:org.apache.struts.Action" + (i % 500))
+          .setFieldValue(ISSUE_KEY.name(), "ISSUE-" + i)
+          .setFieldValue(ASSIGNEE.name(), "developer" + (i % 30))
+          .setFieldValue(SEVERITY.name(), "MAJOR")
+          .setFieldValue(RULE_NAME.name(), "Avoid Cycles")
+          .setFieldValue(MESSAGE.name(), "Has " + i + " cycles");
+    }
+    return notifications;
+  }
+}
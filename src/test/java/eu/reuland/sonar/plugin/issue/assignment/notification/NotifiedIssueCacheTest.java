@@ -0,0 +1,49 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+import org.junit.Test;
+import org.sonar.api.issue.internal.DefaultIssue;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class NotifiedIssueCacheTest {
+
+  private DefaultIssue issueA = new DefaultIssue().setKey("A");
+  private DefaultIssue issueB = new DefaultIssue().setKey("B");
+  private DefaultIssue issueC = new DefaultIssue().setKey("C");
+
+  @Test
+  public void shouldReturnCachedIssues() {
+    NotifiedIssueCache cache = new NotifiedIssueCache();
+    cache.put(issueA, "Struts");
+
+    assertThat(cache.get("A").issue()).isSameAs(issueA);
+    assertThat(cache.get("A").projectName()).isEqualTo("Struts");
+    assertThat(cache.get("B")).isNull();
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedIssue() {
+    NotifiedIssueCache cache = new NotifiedIssueCache(2);
+    cache.put(issueA, "Struts");
+    cache.put(issueB, "Struts");
+    cache.get("A");
+    cache.put(issueC, "Struts");
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get("A")).isNotNull();
+    assertThat(cache.get("B")).isNull();
+    assertThat(cache.get("C")).isNotNull();
+  }
+
+  @Test
+  public void shouldMarkBatchesLoadedOnce() {
+    NotifiedIssueCache cache = new NotifiedIssueCache();
+
+    assertThat(cache.markBatchLoaded("struts/jdoe")).isTrue();
+    assertThat(cache.markBatchLoaded("struts/jdoe")).isFalse();
+    assertThat(cache.markBatchLoaded("struts/other")).isTrue();
+  }
+}
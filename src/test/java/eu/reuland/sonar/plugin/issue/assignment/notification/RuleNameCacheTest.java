@@ -0,0 +1,39 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class RuleNameCacheTest {
+
+  private RuleKey ruleKeyA = RuleKey.of("squid", "A");
+  private RuleKey ruleKeyB = RuleKey.of("squid", "B");
+  private RuleKey ruleKeyC = RuleKey.of("squid", "C");
+
+  @Test
+  public void shouldReturnCachedNames() {
+    RuleNameCache cache = new RuleNameCache();
+    cache.put(ruleKeyA, "Rule A");
+
+    assertThat(cache.get(RuleKey.of("squid", "A"))).isEqualTo("Rule A");
+    assertThat(cache.get(ruleKeyB)).isNull();
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedRule() {
+    RuleNameCache cache = new RuleNameCache(2);
+    cache.put(ruleKeyA, "Rule A");
+    cache.put(ruleKeyB, "Rule B");
+    cache.get(ruleKeyA);
+    cache.put(ruleKeyC, "Rule C");
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get(ruleKeyA)).isEqualTo("Rule A");
+    assertThat(cache.get(ruleKeyB)).isNull();
+    assertThat(cache.get(ruleKeyC)).isEqualTo("Rule C");
+  }
+}
@@ -0,0 +1,61 @@
+package eu.reuland.sonar.plugin.issue.assignment.notification;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import org.junit.Test;
+import org.sonar.api.notifications.NotificationChannel;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class SubscriberCacheTest {
+
+  private long now = 1000L;
+  private Multimap<String, NotificationChannel> subscribers = HashMultimap.create();
+
+  private SubscriberCache cache(int maxSize, long timeToLiveMs) {
+    return new SubscriberCache(maxSize, timeToLiveMs) {
+      @Override
+      long currentTimeMillis() {
+        return now;
+      }
+    };
+  }
+
+  @Test
+  public void shouldReturnCachedSubscribers() {
+    SubscriberCache cache = cache(10, 100L);
+    cache.put("struts", subscribers);
+
+    assertThat(cache.get("struts")).isSameAs(subscribers);
+    assertThat(cache.get("other")).isNull();
+  }
+
+  @Test
+  public void shouldExpireSubscribersAfterTimeToLive() {
+    SubscriberCache cache = cache(10, 100L);
+    cache.put("struts", subscribers);
+
+    now += 99L;
+    assertThat(cache.get("struts")).isSameAs(subscribers);
+    now += 1L;
+    assertThat(cache.get("struts")).isNull();
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedProject() {
+    SubscriberCache cache = cache(2, 100L);
+    cache.put("projectA", subscribers);
+    cache.put("projectB", subscribers);
+    cache.get("projectA");
+    cache.put("projectC", subscribers);
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get("projectA")).isNotNull();
+    assertThat(cache.get("projectB")).isNull();
+    assertThat(cache.get("projectC")).isNotNull();
+  }
+}
@@ -0,0 +1,50 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class AuthorDictionaryTest {
+
+  private AuthorDictionary dictionary = new AuthorDictionary();
+
+  @Test
+  public void shouldAssignSameIdToSameAuthor() {
+    int id = dictionary.idOf("1=loginA;", 2, 8);
+
+    assertThat(id).isEqualTo(0);
+    assertThat(dictionary.idOf("loginA")).isEqualTo(id);
+    assertThat(dictionary.idOf("42=loginA", 3, 9)).isEqualTo(id);
+    assertThat(dictionary.author(id)).isEqualTo("loginA");
+    assertThat(dictionary.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldAssignDistinctIdsToDistinctAuthors() {
+    for (int i = 0; i < 1000; i++) {
+      assertThat(dictionary.idOf("login" + i)).isEqualTo(i);
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertThat(dictionary.idOf("login" + i)).isEqualTo(i);
+      assertThat(dictionary.author(i)).isEqualTo("login" + i);
+    }
+    assertThat(dictionary.size()).isEqualTo(1000);
+  }
+
+  @Test
+  public void shouldNotConfusePrefixes() {
+    int shortId = dictionary.idOf("login");
+    int longId = dictionary.idOf("loginA");
+
+    assertThat(shortId).isNotEqualTo(longId);
+    assertThat(dictionary.idOf("loginAB", 0, 5)).isEqualTo(shortId);
+  }
+
+  @Test
+  public void shouldReturnNullForNoAuthor() {
+    assertThat(dictionary.author(AuthorDictionary.NO_AUTHOR)).isNull();
+  }
+}
@@ -0,0 +1,92 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reports the heap retained by the different representations of the SCM blame information of a large file
+ * <p>
+ * Not a unit test: to be launched manually (i.e. from the IDE), ideally with a fixed heap size (<code>-Xms1g -Xmx1g</code>).
+ * </p>
+ *
+ * @author Vincent Reuland
+ */
+public class AuthorsByLineMemoryBenchmark {
+
+  private static final int LINES = 100000;
+  private static final int AUTHORS = 50;
+  private static final int AVERAGE_RUN_LENGTH = 40;
+  private static final int COPIES = 20;
+
+  public static void main(String[] args) {
+    String data = generateMeasureData();
+    System.out.println("Measure data of " + LINES + " lines: " + data.length() + " chars");
+
+    report("HashMap<Integer, String>", new Factory() {
+      @Override
+      public Object create(String data) {
+        return parseToHashMap(data);
+      }
+    }, data);
+    report("DenseAuthorsByLine", new Factory() {
+      @Override
+      public Object create(String data) {
+        return ScmAuthorsByLineParser.parseDense(data, new AuthorDictionary());
+      }
+    }, data);
+    report("RunLengthAuthorsByLine", new Factory() {
+      @Override
+      public Object create(String data) {
+        return ScmAuthorsByLineParser.parse(data, new AuthorDictionary());
+      }
+    }, data);
+  }
+
+  private interface Factory {
+    Object create(String data);
+  }
+
+  private static void report(String name, Factory factory, String data) {
+    Object[] copies = new Object[COPIES];
+    long before = usedHeap();
+    for (int i = 0; i < COPIES; i++) {
+      copies[i] = factory.create(data);
+    }
+    long after = usedHeap();
+    System.out.println(String.format("%-25s %,12d bytes per file", name, (after - before) / COPIES));
+    if (copies[COPIES - 1] == null) {
+      throw new IllegalStateException();
+    }
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static String generateMeasureData() {
+    StringBuilder data = new StringBuilder();
+    int author = 0;
+    for (int line = 1; line <= LINES; line++) {
+      if (line % AVERAGE_RUN_LENGTH == 0) {
+        author = (author * 31 + 7) % AUTHORS;
+      }
+      data.append(line).append('=').append("developer.").append(author).append("@example.com;");
+    }
+    return data.toString();
+  }
+
+  // Former representation, built the same way as the former IssueAutoAssignDecorator.parseAuthorsByLineMeasure
+  private static Map<Integer, String> parseToHashMap(String data) {
+    Map<Integer, String> authorsByLine = new HashMap<Integer, String>();
+    for (String lineNumberWithAuthor : data.split(";")) {
+      int separatorIndex = lineNumberWithAuthor.indexOf('=');
+      authorsByLine.put(Integer.valueOf(lineNumberWithAuthor.substring(0, separatorIndex)),
+          lineNumberWithAuthor.substring(separatorIndex + 1));
+    }
+    return authorsByLine;
+  }
+}
@@ -0,0 +1,196 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary.NO_AUTHOR;
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class PersistentBlameCacheTest {
+
+  private static final long MAX_SIZE = 1024L * 1024L;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File cacheFile() {
+    return new File(temp.getRoot(), PersistentBlameCache.FILE_NAME);
+  }
+
+  private static String measureData(String... authors) {
+    StringBuilder data = new StringBuilder();
+    for (int i = 0; i < authors.length; i++) {
+      data.append(i + 1).append('=').append(authors[i]).append(';');
+    }
+    return data.toString();
+  }
+
+  @Test
+  public void shouldParseWithoutWritingAnythingWhenDisabled() {
+    PersistentBlameCache cache = new PersistentBlameCache(cacheFile(), 0);
+    AuthorDictionary dictionary = new AuthorDictionary();
+
+    AuthorsByLine authorsByLine = cache.parse("componentA", measureData("loginA", "loginB"), dictionary);
+    cache.stop();
+
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(dictionary.author(authorsByLine.authorIdAt(2))).isEqualTo("loginB");
+    assertThat(cacheFile().exists()).isFalse();
+  }
+
+  @Test
+  public void shouldRestoreUnchangedComponentsOnNextAnalysis() {
+    String data = measureData("loginA", "loginA", "loginB", "loginA");
+    PersistentBlameCache firstAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    firstAnalysis.parse("componentA", data, new AuthorDictionary());
+    firstAnalysis.stop();
+    assertThat(cacheFile().isFile()).isTrue();
+
+    PersistentBlameCache secondAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    AuthorDictionary dictionary = new AuthorDictionary();
+    // Ids of the restored authors are the ones of the dictionary of the analysis
+    dictionary.idOf("loginB");
+    AuthorsByLine authorsByLine = secondAnalysis.parse("componentA", data, dictionary);
+
+    assertThat(authorsByLine).isInstanceOf(RunLengthAuthorsByLine.class);
+    assertThat(dictionary.author(authorsByLine.authorIdAt(1))).isEqualTo("loginA");
+    assertThat(dictionary.author(authorsByLine.authorIdAt(2))).isEqualTo("loginA");
+    assertThat(dictionary.author(authorsByLine.authorIdAt(3))).isEqualTo("loginB");
+    assertThat(dictionary.author(authorsByLine.authorIdAt(4))).isEqualTo("loginA");
+    assertThat(authorsByLine.authorIdAt(5)).isEqualTo(NO_AUTHOR);
+    assertThat(authorsByLine.authorIdAt(3)).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldParseAgainChangedComponents() {
+    PersistentBlameCache firstAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    firstAnalysis.parse("componentA", measureData("loginA", "loginA"), new AuthorDictionary());
+    firstAnalysis.stop();
+
+    PersistentBlameCache secondAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    AuthorDictionary dictionary = new AuthorDictionary();
+    AuthorsByLine authorsByLine = secondAnalysis.parse("componentA", measureData("loginA", "loginC"), dictionary);
+    secondAnalysis.stop();
+
+    assertThat(dictionary.author(authorsByLine.authorIdAt(2))).isEqualTo("loginC");
+
+    // The changed entry replaces the former one
+    PersistentBlameCache thirdAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    assertThat(thirdAnalysis.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldKeepUnusedEntries() {
+    PersistentBlameCache firstAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    firstAnalysis.parse("componentA", measureData("loginA"), new AuthorDictionary());
+    firstAnalysis.parse("componentB", measureData("loginB"), new AuthorDictionary());
+    firstAnalysis.stop();
+
+    PersistentBlameCache secondAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    secondAnalysis.parse("componentA", measureData("loginA"), new AuthorDictionary());
+    secondAnalysis.stop();
+
+    assertThat(new PersistentBlameCache(cacheFile(), MAX_SIZE).size()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldEvictUnusedEntriesFirstToCapTheFileSize() {
+    String dataA = measureData("loginA", "loginB");
+    String dataB = measureData("loginC", "loginD");
+    PersistentBlameCache firstAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    firstAnalysis.parse("componentA", dataA, new AuthorDictionary());
+    firstAnalysis.stop();
+    long oneEntrySize = cacheFile().length();
+
+    // Room for a single entry: the new one is kept
+    PersistentBlameCache secondAnalysis = new PersistentBlameCache(cacheFile(), oneEntrySize);
+    secondAnalysis.parse("componentB", dataB, new AuthorDictionary());
+    secondAnalysis.stop();
+
+    assertThat(new PersistentBlameCache(cacheFile(), MAX_SIZE).currentFile().length())
+        .isLessThanOrEqualTo(oneEntrySize);
+    PersistentBlameCache thirdAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    assertThat(thirdAnalysis.size()).isEqualTo(1);
+    AuthorDictionary dictionary = new AuthorDictionary();
+    thirdAnalysis.parse("componentB", dataB, dictionary);
+    thirdAnalysis.stop();
+    assertThat(dictionary.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldIgnoreCorruptedFile() throws IOException {
+    FileOutputStream output = new FileOutputStream(cacheFile());
+    output.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+    output.close();
+
+    PersistentBlameCache cache = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    AuthorDictionary dictionary = new AuthorDictionary();
+    AuthorsByLine authorsByLine = cache.parse("componentA", measureData("loginA"), dictionary);
+    cache.stop();
+
+    assertThat(dictionary.author(authorsByLine.authorIdAt(1))).isEqualTo("loginA");
+    assertThat(new PersistentBlameCache(cacheFile(), MAX_SIZE).size()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldIgnoreEntryWithCorruptedAuthorCount() throws IOException {
+    // Author count of the entry of componentA, after the header, key, hash, data length and payload length
+    shouldIgnoreCorruptedEntry(8 + 2 + 10 + 8 + 4 + 4, Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void shouldIgnoreEntryWithCorruptedAuthorOfRun() throws IOException {
+    // Author of the first run, after the author count, the single author, the run count, the end line and the start
+    shouldIgnoreCorruptedEntry(36 + 4 + 2 + 6 + 4 + 4 + 4, 5);
+  }
+
+  private void shouldIgnoreCorruptedEntry(int offset, int value) throws IOException {
+    String data = measureData("loginA", "loginA");
+    PersistentBlameCache firstAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    firstAnalysis.parse("componentA", data, new AuthorDictionary());
+    firstAnalysis.stop();
+    RandomAccessFile file = new RandomAccessFile(cacheFile(), "rw");
+    file.seek(offset);
+    file.writeInt(value);
+    file.close();
+
+    PersistentBlameCache secondAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    AuthorDictionary dictionary = new AuthorDictionary();
+    AuthorsByLine authorsByLine = secondAnalysis.parse("componentA", data, dictionary);
+    secondAnalysis.stop();
+
+    assertThat(dictionary.author(authorsByLine.authorIdAt(2))).isEqualTo("loginA");
+    assertThat(new PersistentBlameCache(cacheFile(), MAX_SIZE).size()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldNotReplaceTheMappedFile() {
+    PersistentBlameCache firstAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    firstAnalysis.parse("componentA", measureData("loginA"), new AuthorDictionary());
+    firstAnalysis.stop();
+
+    PersistentBlameCache secondAnalysis = new PersistentBlameCache(cacheFile(), MAX_SIZE);
+    secondAnalysis.parse("componentA", measureData("loginA"), new AuthorDictionary());
+    secondAnalysis.parse("componentB", measureData("loginB"), new AuthorDictionary());
+    secondAnalysis.stop();
+
+    File currentFile = new PersistentBlameCache(cacheFile(), MAX_SIZE).currentFile();
+    assertThat(currentFile).isNotEqualTo(cacheFile());
+    assertThat(new PersistentBlameCache(cacheFile(), MAX_SIZE).size()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldNotHashDifferentDataTheSameWay() {
+    assertThat(PersistentBlameCache.hash("1=loginA;2=loginB"))
+        .isNotEqualTo(PersistentBlameCache.hash("1=loginB;2=loginA"));
+  }
+}
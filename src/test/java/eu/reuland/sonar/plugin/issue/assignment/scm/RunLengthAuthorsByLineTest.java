@@ -0,0 +1,74 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import org.junit.Test;
+
+import static eu.reuland.sonar.plugin.issue.assignment.scm.AuthorDictionary.NO_AUTHOR;
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class RunLengthAuthorsByLineTest {
+
+  private RunLengthAuthorsByLine authorsByLine = new RunLengthAuthorsByLine();
+
+  @Test
+  public void shouldMergeConsecutiveLinesOfSameAuthor() {
+    appendRun(1, 100, 0);
+    appendRun(101, 150, 1);
+    appendRun(151, 300, 0);
+
+    assertThat(authorsByLine.runCount()).isEqualTo(3);
+    assertThat(authorsByLine.authorIdAt(1)).isEqualTo(0);
+    assertThat(authorsByLine.authorIdAt(100)).isEqualTo(0);
+    assertThat(authorsByLine.authorIdAt(101)).isEqualTo(1);
+    assertThat(authorsByLine.authorIdAt(125)).isEqualTo(1);
+    assertThat(authorsByLine.authorIdAt(151)).isEqualTo(0);
+    assertThat(authorsByLine.authorIdAt(300)).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldReturnNoAuthorOutsideOfRuns() {
+    appendRun(5, 10, 0);
+    appendRun(20, 30, 0);
+
+    assertThat(authorsByLine.runCount()).isEqualTo(3);
+    assertThat(authorsByLine.authorIdAt(0)).isEqualTo(NO_AUTHOR);
+    assertThat(authorsByLine.authorIdAt(4)).isEqualTo(NO_AUTHOR);
+    assertThat(authorsByLine.authorIdAt(11)).isEqualTo(NO_AUTHOR);
+    assertThat(authorsByLine.authorIdAt(19)).isEqualTo(NO_AUTHOR);
+    assertThat(authorsByLine.authorIdAt(20)).isEqualTo(0);
+    assertThat(authorsByLine.authorIdAt(31)).isEqualTo(NO_AUTHOR);
+  }
+
+  @Test
+  public void shouldRefuseLinesNotInAscendingOrder() {
+    assertThat(authorsByLine.append(10, 0)).isTrue();
+    assertThat(authorsByLine.append(10, 1)).isFalse();
+    assertThat(authorsByLine.append(3, 1)).isFalse();
+    assertThat(authorsByLine.authorIdAt(10)).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldBeSmallerThanDenseArrayForClusteredBlame() {
+    DenseAuthorsByLine dense = new DenseAuthorsByLine();
+    for (int line = 1; line <= 100000; line++) {
+      int authorId = (line / 500) % 10;
+      authorsByLine.append(line, authorId);
+      dense.put(line, authorId);
+    }
+    authorsByLine.trimToSize();
+
+    assertThat(authorsByLine.runCount()).isEqualTo(201);
+    assertThat(authorsByLine.sizeInBytes() * 100).isLessThan(dense.sizeInBytes());
+    for (int line = 1; line <= 100000; line += 37) {
+      assertThat(authorsByLine.authorIdAt(line)).isEqualTo(dense.authorIdAt(line));
+    }
+  }
+
+  private void appendRun(int firstLine, int lastLine, int authorId) {
+    for (int line = firstLine; line <= lastLine; line++) {
+      assertThat(authorsByLine.append(line, authorId)).isTrue();
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class ScmAuthorsByLineParserTest {
+
+  private AuthorDictionary dictionary = new AuthorDictionary();
+
+  @Test
+  public void shouldParseAuthorsByLine() {
+    AuthorsByLine authorsByLine = ScmAuthorsByLineParser.parse("1=loginA;2=loginB;3=loginA", dictionary);
+
+    assertThat(dictionary.author(authorsByLine.authorIdAt(1))).isEqualTo("loginA");
+    assertThat(dictionary.author(authorsByLine.authorIdAt(2))).isEqualTo("loginB");
+    assertThat(authorsByLine.authorIdAt(3)).isEqualTo(authorsByLine.authorIdAt(1));
+    assertThat(dictionary.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldReturnNoAuthorForUnknownLines() {
+    AuthorsByLine authorsByLine = ScmAuthorsByLineParser.parse("2=loginA;3=loginB", dictionary);
+
+    assertThat(authorsByLine.authorIdAt(0)).isEqualTo(AuthorDictionary.NO_AUTHOR);
+    assertThat(authorsByLine.authorIdAt(1)).isEqualTo(AuthorDictionary.NO_AUTHOR);
+    assertThat(authorsByLine.authorIdAt(4)).isEqualTo(AuthorDictionary.NO_AUTHOR);
+    assertThat(authorsByLine.authorIdAt(100000)).isEqualTo(AuthorDictionary.NO_AUTHOR);
+  }
+
+  @Test
+  public void shouldParseLargeFiles() {
+    StringBuilder data = new StringBuilder();
+    for (int line = 1; line <= 20000; line++) {
+      data.append(line).append('=').append("login").append(line % 7).append(';');
+    }
+
+    AuthorsByLine authorsByLine = ScmAuthorsByLineParser.parse(data.toString(), dictionary);
+
+    assertThat(dictionary.author(authorsByLine.authorIdAt(12345))).isEqualTo("login" + (12345 % 7));
+    assertThat(dictionary.author(authorsByLine.authorIdAt(20000))).isEqualTo("login" + (20000 % 7));
+    assertThat(dictionary.size()).isEqualTo(7);
+  }
+
+  @Test
+  public void shouldIgnoreMalformedEntries() {
+    AuthorsByLine authorsByLine = ScmAuthorsByLineParser.parse(
+        "1=loginA;;noSeparator;x=loginB;=loginC;99999999999=loginD;5=;6=loginE;7=login=F", dictionary);
+
+    assertThat(dictionary.author(authorsByLine.authorIdAt(1))).isEqualTo("loginA");
+    assertThat(authorsByLine.authorIdAt(5)).isEqualTo(AuthorDictionary.NO_AUTHOR);
+    assertThat(dictionary.author(authorsByLine.authorIdAt(6))).isEqualTo("loginE");
+    assertThat(dictionary.author(authorsByLine.authorIdAt(7))).isEqualTo("login=F");
+    assertThat(dictionary.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldParseEmptyData() {
+    AuthorsByLine authorsByLine = ScmAuthorsByLineParser.parse("", dictionary);
+
+    assertThat(authorsByLine.authorIdAt(1)).isEqualTo(AuthorDictionary.NO_AUTHOR);
+    assertThat(dictionary.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldLookupRequestedLinesOnly() {
+    AuthorsByLine authorsByLine = ScmAuthorsByLineParser.lookup(
+        "1=loginA;2=loginB;3=loginC;4=loginD", new int[]{2, 4}, dictionary);
+
+    assertThat(dictionary.author(authorsByLine.authorIdAt(2))).isEqualTo("loginB");
+    assertThat(dictionary.author(authorsByLine.authorIdAt(4))).isEqualTo("loginD");
+    assertThat(authorsByLine.authorIdAt(1)).isEqualTo(AuthorDictionary.NO_AUTHOR);
+    assertThat(authorsByLine.authorIdAt(3)).isEqualTo(AuthorDictionary.NO_AUTHOR);
+    // Authors of the other lines have never been decoded
+    assertThat(dictionary.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldStopLookupOnceAllLinesAreResolved() {
+    AuthorsByLine authorsByLine = ScmAuthorsByLineParser.lookup(
+        "1=loginA;2=loginB;2=loginC;3=loginD", new int[]{1, 2}, dictionary);
+
+    assertThat(dictionary.author(authorsByLine.authorIdAt(1))).isEqualTo("loginA");
+    assertThat(dictionary.author(authorsByLine.authorIdAt(2))).isEqualTo("loginB");
+    assertThat(dictionary.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldLookupUnorderedMeasureData() {
+    AuthorsByLine authorsByLine = ScmAuthorsByLineParser.lookup(
+        "3=loginC;bad;1=loginA;2=", new int[]{1, 2, 5}, dictionary);
+
+    assertThat(dictionary.author(authorsByLine.authorIdAt(1))).isEqualTo("loginA");
+    assertThat(authorsByLine.authorIdAt(2)).isEqualTo(AuthorDictionary.NO_AUTHOR);
+    assertThat(authorsByLine.authorIdAt(5)).isEqualTo(AuthorDictionary.NO_AUTHOR);
+  }
+
+  @Test
+  public void shouldBuildRunsFromSortedData() {
+    AuthorsByLine authorsByLine = ScmAuthorsByLineParser.parse("1=loginA;2=loginA;3=loginB;4=loginB;5=loginA", dictionary);
+
+    assertThat(authorsByLine).isInstanceOf(RunLengthAuthorsByLine.class);
+    assertThat(((RunLengthAuthorsByLine) authorsByLine).runCount()).isEqualTo(3);
+    assertThat(dictionary.author(authorsByLine.authorIdAt(2))).isEqualTo("loginA");
+    assertThat(dictionary.author(authorsByLine.authorIdAt(4))).isEqualTo("loginB");
+  }
+
+  @Test
+  public void shouldParseUnsortedData() {
+    AuthorsByLine authorsByLine = ScmAuthorsByLineParser.parse("3=loginC;1=loginA;2=loginB", dictionary);
+
+    assertThat(authorsByLine).isInstanceOf(DenseAuthorsByLine.class);
+    assertThat(dictionary.author(authorsByLine.authorIdAt(1))).isEqualTo("loginA");
+    assertThat(dictionary.author(authorsByLine.authorIdAt(2))).isEqualTo("loginB");
+    assertThat(dictionary.author(authorsByLine.authorIdAt(3))).isEqualTo("loginC");
+  }
+
+  @Test
+  public void shouldIgnoreLinesFarBeyondEntryCountInUnsortedData() {
+    AuthorsByLine authorsByLine = ScmAuthorsByLineParser.parse("2=loginB;1=loginA;999999999=loginC", dictionary);
+
+    assertThat(authorsByLine).isInstanceOf(DenseAuthorsByLine.class);
+    assertThat(((DenseAuthorsByLine) authorsByLine).sizeInBytes()).isLessThan(4096L);
+    assertThat(dictionary.author(authorsByLine.authorIdAt(1))).isEqualTo("loginA");
+    assertThat(authorsByLine.authorIdAt(999999999)).isEqualTo(AuthorDictionary.NO_AUTHOR);
+  }
+}
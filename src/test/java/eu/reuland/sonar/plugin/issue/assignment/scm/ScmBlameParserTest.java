@@ -0,0 +1,95 @@
+package eu.reuland.sonar.plugin.issue.assignment.scm;
+
+import org.junit.Test;
+import org.sonar.api.utils.DateUtils;
+
+import java.util.EnumSet;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * @author Vincent Reuland
+ */
+public class ScmBlameParserTest {
+
+  private AuthorDictionary dictionary = new AuthorDictionary();
+
+  @Test
+  public void shouldParseAllColumnsTogether() {
+    ScmBlame blame = ScmBlameParser.parse("1=loginA;2=loginB;3=loginA",
+        "1=rev1;2=rev2;3=rev1",
+        "1=2013-03-13T16:22:31+0100;2=2013-10-01T08:00:00+0000;3=2013-03-13T16:22:31+0100",
+        EnumSet.allOf(ScmColumn.class), dictionary);
+
+    assertThat(blame.lineCount()).isEqualTo(3);
+    assertThat(dictionary.author(blame.authorIdAt(2))).isEqualTo("loginB");
+    assertThat(blame.revisionAt(1)).isEqualTo("rev1");
+    assertThat(blame.revisionAt(2)).isEqualTo("rev2");
+    assertThat(blame.commitTimeAt(1)).isEqualTo(DateUtils.parseDateTime("2013-03-13T16:22:31+0100").getTime());
+    assertThat(blame.commitTimeAt(2)).isEqualTo(DateUtils.parseDateTime("2013-10-01T08:00:00+0000").getTime());
+    assertThat(dictionary.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldOnlyLoadRequestedColumns() {
+    ScmBlame blame = ScmBlameParser.parse("1=loginA", "1=rev1", "1=2013-03-13T16:22:31+0100",
+        EnumSet.of(ScmColumn.COMMIT_TIME), dictionary);
+
+    assertThat(blame.hasColumn(ScmColumn.COMMIT_TIME)).isTrue();
+    assertThat(blame.hasColumn(ScmColumn.REVISION)).isFalse();
+    assertThat(blame.revisionAt(1)).isNull();
+    assertThat(blame.commitTimeAt(1)).isNotEqualTo(ScmBlame.NO_COMMIT_TIME);
+  }
+
+  @Test
+  public void shouldHandleMissingLinesInColumns() {
+    ScmBlame blame = ScmBlameParser.parse("1=loginA;2=loginB;4=loginC", null,
+        "2=2013-10-01T08:00:00+0000;3=2013-10-01T08:00:00+0000;4=malformed",
+        EnumSet.of(ScmColumn.COMMIT_TIME), dictionary);
+
+    assertThat(blame.commitTimeAt(1)).isEqualTo(ScmBlame.NO_COMMIT_TIME);
+    assertThat(blame.commitTimeAt(2)).isNotEqualTo(ScmBlame.NO_COMMIT_TIME);
+    assertThat(blame.commitTimeAt(3)).isEqualTo(ScmBlame.NO_COMMIT_TIME);
+    assertThat(blame.commitTimeAt(4)).isEqualTo(ScmBlame.NO_COMMIT_TIME);
+    assertThat(dictionary.author(blame.authorIdAt(4))).isEqualTo("loginC");
+  }
+
+  @Test
+  public void shouldKeepLinesWithoutAuthor() {
+    ScmBlame blame = ScmBlameParser.parse("1=;x=loginB;2=loginA", null, "1=2013-10-01T08:00:00+0000",
+        EnumSet.of(ScmColumn.COMMIT_TIME), dictionary);
+
+    assertThat(blame.lineCount()).isEqualTo(2);
+    assertThat(blame.authorIdAt(1)).isEqualTo(AuthorDictionary.NO_AUTHOR);
+    assertThat(blame.commitTimeAt(1)).isNotEqualTo(ScmBlame.NO_COMMIT_TIME);
+  }
+
+  @Test
+  public void shouldNotParseUnsortedAuthors() {
+    assertThat(ScmBlameParser.parse("2=loginA;1=loginB", null, null, EnumSet.noneOf(ScmColumn.class), dictionary))
+        .isNull();
+  }
+
+  @Test
+  public void shouldParseCommitTimesWithAnyOffset() {
+    long time = DateUtils.parseDateTime("2000-02-29T12:00:00+0530").getTime();
+
+    assertThat(parseCommitTime("2000-02-29T12:00:00+0530")).isEqualTo(time);
+    assertThat(parseCommitTime("2000-02-29T12:00:00+05:30")).isEqualTo(time);
+    assertThat(parseCommitTime("2000-02-29T06:30:00Z")).isEqualTo(time);
+    assertThat(parseCommitTime("2000-02-29T06:30:00")).isEqualTo(time);
+    assertThat(parseCommitTime("1969-12-31T23:59:59-0000")).isEqualTo(-1000L);
+  }
+
+  @Test
+  public void shouldNotParseMalformedCommitTimes() {
+    assertThat(parseCommitTime("2013-10-01")).isEqualTo(ScmBlame.NO_COMMIT_TIME);
+    assertThat(parseCommitTime("2013-13-01T08:00:00+0000")).isEqualTo(ScmBlame.NO_COMMIT_TIME);
+    assertThat(parseCommitTime("2013-10-01T08:00:00+01")).isEqualTo(ScmBlame.NO_COMMIT_TIME);
+    assertThat(parseCommitTime("2013/10/01T08:00:00+0000")).isEqualTo(ScmBlame.NO_COMMIT_TIME);
+  }
+
+  private static long parseCommitTime(String value) {
+    return ScmBlameParser.parseCommitTime(value, 0, value.length());
+  }
+}